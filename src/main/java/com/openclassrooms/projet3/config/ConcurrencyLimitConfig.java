@@ -0,0 +1,76 @@
+package com.openclassrooms.projet3.config;
+
+import com.openclassrooms.projet3.utils.ConcurrencyLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Adaptive concurrency limits of the endpoint groups ({@link ConcurrencyLimitFilter}), so that logins hashing
+ * passwords, picture uploads and rental reads do not queue behind each other when the service is overloaded. The
+ * limit and in-flight requests of each group are published as {@code http.server.concurrency.limit} and
+ * {@code http.server.concurrency.active}, rejected requests as {@code http.server.concurrency.rejected}.
+ * <p>
+ * The streamed picture uploads have a fixed limit, the number of upload buffers by default: their latency is the one
+ * of the client connection, not a sign of overload.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.concurrency-limits.enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            MeterRegistry meterRegistry,
+            @Value("${app.concurrency-limits.min-limit:2}") int minLimit,
+            @Value("${app.concurrency-limits.retry-after:1s}") Duration retryAfter,
+            @Value("${app.concurrency-limits.auth.initial-limit:50}") int authInitial,
+            @Value("${app.concurrency-limits.auth.max-limit:200}") int authMax,
+            @Value("${app.concurrency-limits.rental-reads.initial-limit:100}") int rentalReadsInitial,
+            @Value("${app.concurrency-limits.rental-reads.max-limit:200}") int rentalReadsMax,
+            @Value("${app.concurrency-limits.rental-writes.initial-limit:50}") int rentalWritesInitial,
+            @Value("${app.concurrency-limits.rental-writes.max-limit:200}") int rentalWritesMax,
+            @Value("${app.concurrency-limits.messages.initial-limit:50}") int messagesInitial,
+            @Value("${app.concurrency-limits.messages.max-limit:200}") int messagesMax,
+            @Value("${app.concurrency-limits.uploads.limit:${app.uploads.stream-buffers:16}}") int uploadsLimit) {
+        Map<String, ConcurrencyLimiter> limiters = new HashMap<>();
+        limiters.put(ConcurrencyLimitFilter.AUTH,
+                new ConcurrencyLimiter(ConcurrencyLimitFilter.AUTH, authInitial, minLimit, authMax));
+        limiters.put(ConcurrencyLimitFilter.RENTAL_READS,
+                new ConcurrencyLimiter(ConcurrencyLimitFilter.RENTAL_READS, rentalReadsInitial, minLimit, rentalReadsMax));
+        limiters.put(ConcurrencyLimitFilter.RENTAL_WRITES,
+                new ConcurrencyLimiter(ConcurrencyLimitFilter.RENTAL_WRITES, rentalWritesInitial, minLimit, rentalWritesMax));
+        limiters.put(ConcurrencyLimitFilter.MESSAGES,
+                new ConcurrencyLimiter(ConcurrencyLimitFilter.MESSAGES, messagesInitial, minLimit, messagesMax));
+        limiters.put(ConcurrencyLimitFilter.UPLOADS,
+                new ConcurrencyLimiter(ConcurrencyLimitFilter.UPLOADS, uploadsLimit, uploadsLimit, uploadsLimit));
+
+        Map<String, Counter> rejections = new HashMap<>();
+        for (ConcurrencyLimiter limiter : limiters.values()) {
+            Gauge.builder("http.server.concurrency.limit", limiter, ConcurrencyLimiter::getLimit)
+                    .tag("group", limiter.getName())
+                    .register(meterRegistry);
+            Gauge.builder("http.server.concurrency.active", limiter, ConcurrencyLimiter::getInFlight)
+                    .tag("group", limiter.getName())
+                    .register(meterRegistry);
+            rejections.put(limiter.getName(), Counter.builder("http.server.concurrency.rejected")
+                    .tag("group", limiter.getName())
+                    .register(meterRegistry));
+        }
+
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(
+                new ConcurrencyLimitFilter(limiters, rejections, Math.max(1, retryAfter.toSeconds())));
+        // after the request observations, so that rejections are measured, and before authentication
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 2);
+        return registration;
+    }
+}
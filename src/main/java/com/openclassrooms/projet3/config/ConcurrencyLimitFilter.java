@@ -0,0 +1,96 @@
+package com.openclassrooms.projet3.config;
+
+import com.openclassrooms.projet3.excepton.ProblemDetails;
+import com.openclassrooms.projet3.utils.ConcurrencyLimiter;
+import io.micrometer.core.instrument.Counter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Limits the requests of each endpoint group handled at the same time with its {@link ConcurrencyLimiter}: a request
+ * above the limit of its group is rejected right away with a 503 problem and a {@code Retry-After} header, before
+ * authentication, instead of waiting for a worker thread behind requests that are already too slow. Requests outside
+ * of the groups are not limited.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    static final String AUTH = "auth";
+    static final String RENTAL_READS = "rental-reads";
+    static final String RENTAL_WRITES = "rental-writes";
+    static final String MESSAGES = "messages";
+    static final String UPLOADS = "uploads";
+
+    private static final byte[] REJECTED = ProblemDetails.cachedBody(HttpStatus.SERVICE_UNAVAILABLE, "Service overloaded, retry later");
+
+    private final Map<String, ConcurrencyLimiter> limiters;
+    private final Map<String, Counter> rejections;
+    private final String retryAfter;
+
+    public ConcurrencyLimitFilter(Map<String, ConcurrencyLimiter> limiters, Map<String, Counter> rejections,
+                                  long retryAfterSeconds) {
+        this.limiters = limiters;
+        this.rejections = rejections;
+        this.retryAfter = Long.toString(retryAfterSeconds);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String group = group(request);
+        ConcurrencyLimiter limiter = group == null ? null : limiters.get(group);
+        if (limiter == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!limiter.tryAcquire()) {
+            rejections.get(group).increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+            response.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+            response.setContentLength(REJECTED.length);
+            response.getOutputStream().write(REJECTED);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean overloaded = false;
+        try {
+            filterChain.doFilter(request, response);
+            overloaded = response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value()
+                    || response.getStatus() == HttpStatus.GATEWAY_TIMEOUT.value();
+        } finally {
+            limiter.release(System.nanoTime() - start, overloaded);
+        }
+    }
+
+    /**
+     * @return the endpoint group of the request, {@code null} when it is in none.
+     */
+    static String group(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.startsWith("/api/auth/")) {
+            return AUTH;
+        }
+        if (path.startsWith("/api/messages")) {
+            return MESSAGES;
+        }
+        if (path.startsWith("/api/rentals") && path.endsWith("/picture") && "PUT".equals(request.getMethod())) {
+            return UPLOADS;
+        }
+        if (path.startsWith("/api/rentals")) {
+            return "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod()) ? RENTAL_READS : RENTAL_WRITES;
+        }
+        if (path.startsWith("/uploads/")) {
+            return RENTAL_READS;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,181 @@
+package com.openclassrooms.projet3.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.openclassrooms.projet3.dtos.RentalDTO;
+import com.openclassrooms.projet3.dtos.RentalListResponse;
+import com.openclassrooms.projet3.dtos.UserDTO;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Hand-written serializers of the DTOs of the hot read endpoints ({@link RentalDTO}, {@link RentalListResponse},
+ * {@link UserDTO}), writing the same JSON as the reflective ones: field names are encoded once, and dates are written
+ * from their fields instead of through a {@code String}. With {@code compactDates}, dates are written as a
+ * {@code YYYYMMDD} number instead of an ISO 8601 {@code "YYYY-MM-DD"} string.
+ */
+public class DtoJsonModule extends SimpleModule {
+
+    private static final SerializableString RENTALS = new SerializedString("rentals");
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString SURFACE = new SerializedString("surface");
+    private static final SerializableString PRICE = new SerializedString("price");
+    private static final SerializableString PICTURE = new SerializedString("picture");
+    private static final SerializableString DESCRIPTION = new SerializedString("description");
+    private static final SerializableString OWNER_ID = new SerializedString("owner_id");
+    private static final SerializableString EMAIL = new SerializedString("email");
+    private static final SerializableString CREATED_AT = new SerializedString("created_at");
+    private static final SerializableString UPDATED_AT = new SerializedString("updated_at");
+
+    public DtoJsonModule(boolean compactDates) {
+        super("DtoJsonModule");
+        RentalSerializer rentalSerializer = new RentalSerializer(compactDates);
+        addSerializer(RentalDTO.class, rentalSerializer);
+        addSerializer(RentalListResponse.class, new RentalListSerializer(rentalSerializer));
+        addSerializer(UserDTO.class, new UserSerializer(compactDates));
+    }
+
+    private static class RentalSerializer extends StdSerializer<RentalDTO> {
+
+        private final boolean compactDates;
+
+        RentalSerializer(boolean compactDates) {
+            super(RentalDTO.class);
+            this.compactDates = compactDates;
+        }
+
+        @Override
+        public void serialize(RentalDTO rental, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            write(rental, gen, new char[10]);
+        }
+
+        void write(RentalDTO rental, JsonGenerator gen, char[] buffer) throws IOException {
+            gen.writeStartObject(rental);
+            gen.writeFieldName(ID);
+            writeNumber(gen, rental.getId());
+            gen.writeFieldName(NAME);
+            gen.writeString(rental.getName());
+            gen.writeFieldName(SURFACE);
+            gen.writeNumber(rental.getSurface());
+            gen.writeFieldName(PRICE);
+            gen.writeNumber(rental.getPrice());
+            gen.writeFieldName(PICTURE);
+            gen.writeString(rental.getPicture());
+            gen.writeFieldName(DESCRIPTION);
+            gen.writeString(rental.getDescription());
+            gen.writeFieldName(OWNER_ID);
+            writeNumber(gen, rental.getOwner_id());
+            gen.writeFieldName(CREATED_AT);
+            writeDate(gen, rental.getCreated_at(), compactDates, buffer);
+            gen.writeFieldName(UPDATED_AT);
+            writeDate(gen, rental.getUpdated_at(), compactDates, buffer);
+            gen.writeEndObject();
+        }
+    }
+
+    private static class RentalListSerializer extends StdSerializer<RentalListResponse> {
+
+        private final RentalSerializer rentalSerializer;
+
+        RentalListSerializer(RentalSerializer rentalSerializer) {
+            super(RentalListResponse.class);
+            this.rentalSerializer = rentalSerializer;
+        }
+
+        @Override
+        public void serialize(RentalListResponse response, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            gen.writeStartObject(response);
+            gen.writeFieldName(RENTALS);
+            List<RentalDTO> rentals = response.getRentals();
+            if (rentals == null) {
+                gen.writeNull();
+            } else {
+                char[] buffer = new char[10];
+                gen.writeStartArray(rentals, rentals.size());
+                for (RentalDTO rental : rentals) {
+                    if (rental == null) {
+                        gen.writeNull();
+                    } else {
+                        rentalSerializer.write(rental, gen, buffer);
+                    }
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    private static class UserSerializer extends StdSerializer<UserDTO> {
+
+        private final boolean compactDates;
+
+        UserSerializer(boolean compactDates) {
+            super(UserDTO.class);
+            this.compactDates = compactDates;
+        }
+
+        @Override
+        public void serialize(UserDTO user, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            char[] buffer = new char[10];
+            gen.writeStartObject(user);
+            gen.writeFieldName(ID);
+            writeNumber(gen, user.getId());
+            gen.writeFieldName(NAME);
+            gen.writeString(user.getName());
+            gen.writeFieldName(EMAIL);
+            gen.writeString(user.getEmail());
+            gen.writeFieldName(CREATED_AT);
+            writeDate(gen, user.getCreated_at(), compactDates, buffer);
+            gen.writeFieldName(UPDATED_AT);
+            writeDate(gen, user.getUpdated_at(), compactDates, buffer);
+            gen.writeEndObject();
+        }
+    }
+
+    private static void writeNumber(JsonGenerator gen, Long value) throws IOException {
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value.longValue());
+        }
+    }
+
+    /**
+     * Writes the date as a {@code YYYYMMDD} number when compact, else as an ISO 8601 string formatted in the buffer,
+     * as {@link LocalDate#toString()} would for years 0 to 9999.
+     */
+    private static void writeDate(JsonGenerator gen, LocalDate date, boolean compact, char[] buffer) throws IOException {
+        if (date == null) {
+            gen.writeNull();
+            return;
+        }
+        int year = date.getYear();
+        int month = date.getMonthValue();
+        int day = date.getDayOfMonth();
+        if (compact) {
+            gen.writeNumber(year * 10_000 + month * 100 + day);
+        } else if (year < 0 || year > 9999) {
+            gen.writeString(date.toString());
+        } else {
+            buffer[0] = (char) ('0' + year / 1000);
+            buffer[1] = (char) ('0' + year / 100 % 10);
+            buffer[2] = (char) ('0' + year / 10 % 10);
+            buffer[3] = (char) ('0' + year % 10);
+            buffer[4] = '-';
+            buffer[5] = (char) ('0' + month / 10);
+            buffer[6] = (char) ('0' + month % 10);
+            buffer[7] = '-';
+            buffer[8] = (char) ('0' + day / 10);
+            buffer[9] = (char) ('0' + day % 10);
+            gen.writeString(buffer, 0, 10);
+        }
+    }
+}
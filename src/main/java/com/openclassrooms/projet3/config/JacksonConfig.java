@@ -0,0 +1,18 @@
+package com.openclassrooms.projet3.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Jackson modules registered by Spring Boot in the object mapper of the application, used by the MVC and reactive
+ * APIs.
+ */
+@Configuration
+public class JacksonConfig {
+
+    @Bean
+    public DtoJsonModule dtoJsonModule(@Value("${app.json.compact-dates:false}") boolean compactDates) {
+        return new DtoJsonModule(compactDates);
+    }
+}
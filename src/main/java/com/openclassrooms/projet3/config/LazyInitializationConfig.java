@@ -0,0 +1,27 @@
+package com.openclassrooms.projet3.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.web.SecurityFilterChain;
+
+/**
+ * Beans still created at startup when {@code spring.main.lazy-initialization=true}: the ones every first request
+ * needs (security, JWT, password hashing, and the entity manager factory with the datasource and the Flyway
+ * migrations it depends on), so that startup fails fast on a configuration or database error and the first requests
+ * do not pay for them. Controllers, services, the picture cache and store, the OpenAPI documentation are created on
+ * first use; the {@code @Scheduled} jobs are kept eager by Spring Boot.
+ */
+@Configuration
+public class LazyInitializationConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerInfrastructure() {
+        return LazyInitializationExcludeFilter.forBeanTypes(SecurityFilterChain.class, JwtDecoder.class,
+                JwtEncoder.class, PasswordEncoder.class, EntityManagerFactory.class);
+    }
+}
@@ -0,0 +1,124 @@
+package com.openclassrooms.projet3.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.projet3.controller.ReactiveRentalHandler;
+import com.openclassrooms.projet3.controller.ReactiveUserHandler;
+import com.openclassrooms.projet3.excepton.ProblemDetails;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.WebFilter;
+
+/**
+ * Reactive read API, enabled with the {@code reactive} profile.
+ * <p>
+ * {@code GET /api/rentals}, {@code GET /api/rentals/{id}} and {@code GET /api/user/{id}} are served on
+ * {@code app.reactive.port} by a Reactor Netty server, next to the MVC application which keeps serving every
+ * endpoint on {@code server.port}. Database reads go through R2DBC ({@code app.reactive.r2dbc.*}), so no thread is blocked
+ * while waiting for the database. Requests are authenticated with the same JWT bearer tokens as the MVC API.
+ * <p>
+ * The R2DBC connection pool ({@code app.reactive.r2dbc.*}) is kept out of the context: Spring Boot does not create
+ * the JDBC datasource the rest of the application uses when a {@code ConnectionFactory} bean exists.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveApiConfig implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveApiConfig.class);
+
+    private ConnectionPool connectionPool;
+
+    @Bean
+    public DatabaseClient databaseClient(@Value("${app.reactive.r2dbc.url}") String url,
+                                         @Value("${app.reactive.r2dbc.username:}") String username,
+                                         @Value("${app.reactive.r2dbc.password:}") String password,
+                                         @Value("${app.reactive.r2dbc.pool-size:20}") int poolSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .initialSize(Math.min(10, poolSize))
+                .maxSize(poolSize)
+                .build());
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> reactiveReadRoutes(ReactiveRentalHandler rentalHandler, ReactiveUserHandler userHandler) {
+        return RouterFunctions.route()
+                .GET("/api/rentals", rentalHandler::getRentals)
+                .GET("/api/rentals/{id}", rentalHandler::getRentalById)
+                .GET("/api/user/{id}", userHandler::getUserById)
+                .onError(Exception.class, (e, request) -> {
+                    // answered like the MVC API does, the details are logged instead of sent to the client
+                    logger.error("Reactive request {} failed", request.path(), e);
+                    return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                            .bodyValue(ProblemDetails.cachedBody(HttpStatus.INTERNAL_SERVER_ERROR, "An unexpected error occurred"));
+                })
+                .build();
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public WebServer reactiveApiServer(RouterFunction<ServerResponse> reactiveReadRoutes,
+                                       JwtDecoder jwtDecoder,
+                                       ObjectMapper objectMapper,
+                                       @Value("${app.reactive.port:3002}") int port) {
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper)))
+                .webFilter(bearerAuthentication(jwtDecoder))
+                .build();
+        return new NettyReactiveWebServerFactory(port)
+                .getWebServer(RouterFunctions.toHttpHandler(reactiveReadRoutes, strategies));
+    }
+
+    /**
+     * Rejects requests without a valid bearer token with 401 Unauthorized, as the resource server of the MVC API
+     * does. Tokens are signed with a shared secret, so checking them needs no I/O.
+     */
+    private static WebFilter bearerAuthentication(JwtDecoder jwtDecoder) {
+        return (exchange, chain) -> {
+            String authorization = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            if (authorization != null && authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+                try {
+                    jwtDecoder.decode(authorization.substring(7).trim());
+                    return chain.filter(exchange);
+                } catch (JwtException e) {
+                    // falls through to the 401 response
+                }
+            }
+            exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+            exchange.getResponse().getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+            return exchange.getResponse().setComplete();
+        };
+    }
+
+    @Override
+    public void destroy() {
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+}
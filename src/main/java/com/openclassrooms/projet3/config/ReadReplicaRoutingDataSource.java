@@ -0,0 +1,169 @@
+package com.openclassrooms.projet3.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Data source sending read-only transactions to read replicas and everything else to the primary.
+ * <p>
+ * Replicas are used in turn, skipping the ones marked down: by {@link #checkReplicas()}, or when one fails to give
+ * a connection, in which case the read goes to the primary. A user who committed a write less than the read-your-
+ * writes window ago reads from the primary as well, so they see their change before the replicas have caught up.
+ * <p>
+ * The target is chosen when a connection is requested, which must happen once the transaction has started: wrap
+ * this data source in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadReplicaRoutingDataSource.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long readYourWritesWindowNanos;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    // authenticated user -> System.nanoTime() of their last committed write
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public ReadReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration readYourWritesWindow) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.readYourWritesWindowNanos = readYourWritesWindow.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = selectReplica();
+        if (replica != null) {
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException | RuntimeException e) {
+                replica.markDown(e);
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    /**
+     * Checks that every replica gives a valid connection, marking it down or up again accordingly, and forgets the
+     * writes older than the read-your-writes window.
+     */
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    replica.markUp();
+                } else {
+                    replica.markDown(null);
+                }
+            } catch (SQLException | RuntimeException e) {
+                replica.markDown(e);
+            }
+        }
+        long now = System.nanoTime();
+        lastWrites.values().removeIf(writtenAt -> now - writtenAt >= readYourWritesWindowNanos);
+    }
+
+    /**
+     * Number of replicas currently used for reads.
+     */
+    public int healthyReplicas() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    /**
+     * Replica for the current read-only transaction, {@code null} for the primary.
+     */
+    private Replica selectReplica() {
+        String user = currentUser();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (user != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        lastWrites.put(user, System.nanoTime());
+                    }
+                });
+            }
+            return null;
+        }
+        if (user != null) {
+            Long writtenAt = lastWrites.get(user);
+            if (writtenAt != null && System.nanoTime() - writtenAt < readYourWritesWindowNanos) {
+                return null;
+            }
+        }
+        int count = replicas.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), Math.max(count, 1));
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas.get((start + i) % count);
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+
+    private static class Replica {
+
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        void markDown(Exception cause) {
+            if (healthy) {
+                healthy = false;
+                logger.warn("Read replica {} is down, reading from the primary", dataSource, cause);
+            }
+        }
+
+        void markUp() {
+            if (!healthy) {
+                healthy = true;
+                logger.info("Read replica {} is back up", dataSource);
+            }
+        }
+    }
+}
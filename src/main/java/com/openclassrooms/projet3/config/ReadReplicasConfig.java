@@ -0,0 +1,101 @@
+package com.openclassrooms.projet3.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read/write splitting, enabled by listing read replicas in {@code app.datasource.replicas.urls}.
+ * <p>
+ * The application data source then routes read-only transactions (Spring Data repository reads, services marked
+ * {@code @Transactional(readOnly = true)}) to the replicas and everything else to the primary described by
+ * {@code spring.datasource.*}, see {@link ReadReplicaRoutingDataSource}. Replicas are checked every
+ * {@code app.datasource.replicas.health-check-interval}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replicas.urls")
+public class ReadReplicasConfig implements DisposableBean {
+
+    private ReadReplicaRoutingDataSource routingDataSource;
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties,
+                                 Environment environment,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.datasource.replicas.urls}") List<String> replicaUrls,
+                                 @Value("${app.datasource.replicas.username:${spring.datasource.username:}}") String username,
+                                 @Value("${app.datasource.replicas.password:${spring.datasource.password:}}") String password,
+                                 @Value("${app.datasource.replicas.pool-size:10}") int poolSize,
+                                 @Value("${app.datasource.replicas.connection-timeout:1s}") Duration connectionTimeout,
+                                 @Value("${app.datasource.replicas.read-your-writes-window:5s}") Duration readYourWritesWindow) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+        // Spring Boot only binds the metrics of a pool exposed as the data source, each pool is bound here
+        MicrometerMetricsTrackerFactory poolMetrics = new MicrometerMetricsTrackerFactory(meterRegistry);
+        primary.setMetricsTrackerFactory(poolMetrics);
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            HikariDataSource replica = new HikariDataSource();
+            binder.bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setMaximumPoolSize(poolSize);
+            // a replica that does not answer quickly is skipped, the read goes to the primary
+            replica.setConnectionTimeout(connectionTimeout.toMillis());
+            replica.setReadOnly(true);
+            replica.setMetricsTrackerFactory(poolMetrics);
+            replicas.add(replica);
+        }
+
+        routingDataSource = new ReadReplicaRoutingDataSource(primary, replicas, readYourWritesWindow);
+        // the connection is only fetched on the first statement, once the transaction is known to be read-only
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * Releases the connection at the end of each transaction instead of holding it for the whole entity manager
+     * (the whole request with open-in-view), so that every transaction gets the connection its type calls for.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionsAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replicas.health-check-interval:PT5S}")
+    public void checkReplicas() {
+        routingDataSource.checkReplicas();
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (routingDataSource != null) {
+            routingDataSource.close();
+        }
+    }
+}
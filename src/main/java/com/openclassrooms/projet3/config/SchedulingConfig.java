@@ -0,0 +1,12 @@
+package com.openclassrooms.projet3.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the {@code @Scheduled} background jobs (message archival, picture garbage collection).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
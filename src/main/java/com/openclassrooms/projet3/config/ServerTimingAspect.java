@@ -0,0 +1,35 @@
+package com.openclassrooms.projet3.config;
+
+import com.openclassrooms.projet3.utils.ServerTiming;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * Measures the repository calls ({@code db}) and the picture reads and writes ({@code img}: image utilities, picture
+ * store and picture responses) of the requests whose {@link ServerTiming} are collected.
+ */
+@Aspect
+public class ServerTimingAspect {
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(ServerTiming.Metric.DB, joinPoint);
+    }
+
+    @Around("execution(* com.openclassrooms.projet3.utils.ImageUtils.*(..))"
+            + " || execution(* com.openclassrooms.projet3.utils.PictureStore.*(..))"
+            + " || execution(* com.openclassrooms.projet3.utils.PictureResponseWriter.*(..))")
+    public Object timePictures(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(ServerTiming.Metric.IMAGE, joinPoint);
+    }
+
+    private static Object time(ServerTiming.Metric metric, ProceedingJoinPoint joinPoint) throws Throwable {
+        long begin = ServerTiming.begin(metric);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ServerTiming.end(metric, begin);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.openclassrooms.projet3.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.projet3.utils.ServerTiming;
+import jakarta.servlet.Filter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.util.FastByteArrayOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+/**
+ * {@code Server-Timing} header with the latency breakdown of each request, opt-in with
+ * {@code app.server-timing.enabled=true}: time spent in the security filter chain ({@code auth}, JWT decoding
+ * included), repository calls ({@code db}), DTO mapping ({@code dto}), picture reads and writes ({@code img}) and JSON
+ * serialization ({@code json}). Nothing is registered when disabled; the DTO mappings then only check a thread local.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.server-timing.enabled", havingValue = "true")
+public class ServerTimingConfig {
+
+    @Bean
+    public FilterRegistrationBean<ServerTimingFilter> serverTimingFilter(
+            @Value("${app.server-timing.log:false}") boolean log) {
+        FilterRegistrationBean<ServerTimingFilter> registration = new FilterRegistrationBean<>(new ServerTimingFilter(log));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
+    }
+
+    /**
+     * Records the time spent since the start of the collection, just before the security filter chain, once the
+     * request went through it. Requests rejected by the chain have no {@code auth} timing.
+     */
+    @Bean
+    public FilterRegistrationBean<Filter> serverTimingAuthenticatedFilter() {
+        Filter filter = (request, response, chain) -> {
+            ServerTiming timing = ServerTiming.current();
+            if (timing != null) {
+                timing.record(ServerTiming.Metric.AUTH, timing.elapsed());
+            }
+            chain.doFilter(request, response);
+        };
+        FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        return registration;
+    }
+
+    @Bean
+    public ServerTimingAspect serverTimingAspect() {
+        return new ServerTimingAspect();
+    }
+
+    /**
+     * JSON converter serializing to a buffer first, so that the {@code json} timing is complete when the header is
+     * added, before the buffer is written to the response.
+     */
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+                    throws IOException, HttpMessageNotWritableException {
+                long begin = ServerTiming.begin(ServerTiming.Metric.JSON);
+                FastByteArrayOutputStream buffer = new FastByteArrayOutputStream();
+                try {
+                    super.writeInternal(object, type, new HttpOutputMessage() {
+                        @Override
+                        public OutputStream getBody() {
+                            return buffer;
+                        }
+
+                        @Override
+                        public HttpHeaders getHeaders() {
+                            return outputMessage.getHeaders();
+                        }
+                    });
+                } finally {
+                    ServerTiming.end(ServerTiming.Metric.JSON, begin);
+                }
+                buffer.writeTo(outputMessage.getBody());
+            }
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package com.openclassrooms.projet3.config;
+
+import com.openclassrooms.projet3.utils.ServerTiming;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Collects the {@link ServerTiming} of each request, from just before the security filter chain, and adds them to
+ * the response as a {@code Server-Timing} header when it is committed, which is once the body is written or flushed.
+ * Also writes them to the {@code server-timing} logger when {@code app.server-timing.log=true}.
+ */
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    static final String HEADER = "Server-Timing";
+    private static final Logger logger = LoggerFactory.getLogger("server-timing");
+
+    private final boolean log;
+
+    public ServerTimingFilter(boolean log) {
+        this.log = log;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ServerTiming timing = ServerTiming.start();
+        HttpServletResponse timedResponse = new OnCommittedResponseWrapper(response) {
+            @Override
+            protected void onResponseCommitted() {
+                response.setHeader(HEADER, timing.header());
+            }
+        };
+        try {
+            filterChain.doFilter(request, timedResponse);
+        } finally {
+            if (!response.isCommitted()) {
+                response.setHeader(HEADER, timing.header());
+            }
+            ServerTiming.stop();
+            if (log) {
+                logger.info("method={} uri={} status={} {}", request.getMethod(), request.getRequestURI(),
+                        response.getStatus(), timing.logFields());
+            }
+        }
+    }
+}
@@ -2,10 +2,15 @@ package com.openclassrooms.projet3.config;
 
 import javax.crypto.spec.SecretKeySpec;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.security.servlet.PathRequest;
+import org.springframework.boot.web.context.WebServerApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
@@ -19,6 +24,7 @@ import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.web.context.support.WebApplicationContextUtils;
 
 import com.nimbusds.jose.jwk.source.ImmutableSecret;
 
@@ -31,31 +37,77 @@ public class SpringSecurityConfig{
 
 
 
+    /**
+     * Actuator endpoints are served on the management port, only reachable from the machine itself
+     * ({@code management.server.address}), and need no authentication.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain actuatorFilterChain(HttpSecurity http) throws Exception {
+        return http.securityMatcher(SpringSecurityConfig::isManagementServer)
+                .csrf(AbstractHttpConfigurer::disable)
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
+                .build();
+    }
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         return http.csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/api/auth/login", "/api/auth/register", "/api/swagger-ui.html", "/api/swagger-ui/**", "/v3/api-docs/**", "/uploads/**").permitAll()
+                        .requestMatchers("/api/auth/login", "/api/auth/register", "/api/swagger-ui.html", "/api/swagger-ui/**", "/v3/api-docs/**", "/api/docs", "/api/docs/**", "/uploads/**").permitAll()
                         .requestMatchers(PathRequest.toStaticResources().atCommonLocations()).permitAll()
                         .anyRequest().authenticated())
                 .oauth2ResourceServer((oauth2) -> oauth2.jwt(Customizer.withDefaults()))
                 .build();
     }
 
+    /**
+     * BCrypt encoder timing hashing and password checks in {@code security.password.hashing}.
+     */
     @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BCryptPasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        Timer encode = securityTimer(meterRegistry, "security.password.hashing", "encode");
+        Timer matches = securityTimer(meterRegistry, "security.password.hashing", "matches");
+        return new BCryptPasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return encode.record(() -> super.encode(rawPassword));
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return matches.record(() -> super.matches(rawPassword, encodedPassword));
+            }
+        };
     }
 
     @Bean
-    public JwtDecoder jwtDecoder() {
-        return NimbusJwtDecoder.withSecretKey(new SecretKeySpec(this.jwtKey.getBytes(), "HmacSHA256")).build();
+    public JwtDecoder jwtDecoder(MeterRegistry meterRegistry) {
+        JwtDecoder decoder = NimbusJwtDecoder.withSecretKey(new SecretKeySpec(this.jwtKey.getBytes(), "HmacSHA256")).build();
+        Timer timer = securityTimer(meterRegistry, "security.jwt", "decode");
+        return token -> timer.record(() -> decoder.decode(token));
     }
 
     @Bean
-    public JwtEncoder jwtEncoder() {
-        return new NimbusJwtEncoder(new ImmutableSecret<>(this.jwtKey.getBytes()));
+    public JwtEncoder jwtEncoder(MeterRegistry meterRegistry) {
+        JwtEncoder encoder = new NimbusJwtEncoder(new ImmutableSecret<>(this.jwtKey.getBytes()));
+        Timer timer = securityTimer(meterRegistry, "security.jwt", "encode");
+        return parameters -> timer.record(() -> encoder.encode(parameters));
+    }
+
+    /**
+     * Whether the request was received by the management server. {@code EndpointRequest} matchers cannot tell: they
+     * are bound to the context of the first request they see, the application one.
+     */
+    private static boolean isManagementServer(HttpServletRequest request) {
+        return WebServerApplicationContext.hasServerNamespace(
+                WebApplicationContextUtils.getWebApplicationContext(request.getServletContext()), "management");
+    }
+
+    private static Timer securityTimer(MeterRegistry meterRegistry, String name, String operation) {
+        return Timer.builder(name).tag("operation", operation).register(meterRegistry);
     }
 
     @Bean
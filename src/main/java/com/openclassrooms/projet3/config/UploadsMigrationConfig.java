@@ -0,0 +1,21 @@
+package com.openclassrooms.projet3.config;
+
+import com.openclassrooms.projet3.service.PictureMigrationService;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Migrates the uploads directory to the sharded layout at startup. The migration is opt-in with
+ * {@code app.uploads.migration.enabled=true} and only needs to run once per environment.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.uploads.migration.enabled", havingValue = "true")
+public class UploadsMigrationConfig {
+
+    @Bean
+    public ApplicationRunner uploadsMigrationRunner(PictureMigrationService pictureMigrationService) {
+        return args -> pictureMigrationService.migrateUploads();
+    }
+}
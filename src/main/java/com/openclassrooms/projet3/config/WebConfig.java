@@ -1,9 +1,12 @@
 package com.openclassrooms.projet3.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
@@ -19,9 +22,23 @@ public class WebConfig implements WebMvcConfigurer {
                 .maxAge(3600); // Préflight request max age
     }
 
+    // /uploads/** is served by PictureController, from app.uploads.location
+
+    /**
+     * OpenAPI document generated at package time (see {@code OpenApiDocumentGenerator}) and its Swagger UI page,
+     * served with their pre-compressed copies to the clients accepting gzip, revalidated with their Last-Modified date.
+     */
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:/C:/Users/JB/lab/OC-parcours/Projet 3/OC-projet-3/uploads/");
+        registry.addResourceHandler("/api/docs/**")
+                .addResourceLocations("classpath:/openapi/")
+                .setCacheControl(CacheControl.noCache())
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver());
+    }
+
+    @Override
+    public void addViewControllers(ViewControllerRegistry registry) {
+        registry.addRedirectViewController("/api/docs", "/api/docs/index.html");
     }
-}
\ No newline at end of file
+}
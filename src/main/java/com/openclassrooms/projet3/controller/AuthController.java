@@ -1,9 +1,6 @@
 package com.openclassrooms.projet3.controller;
 
 import com.openclassrooms.projet3.dtos.UserDTO;
-import com.openclassrooms.projet3.excepton.CustomAlreadyExistsException;
-import com.openclassrooms.projet3.excepton.CustomAuthenticationException;
-import com.openclassrooms.projet3.excepton.CustomNotFoundException;
 import com.openclassrooms.projet3.model.LoginRequest;
 import com.openclassrooms.projet3.model.RegistrationRequest;
 import com.openclassrooms.projet3.service.AuthenticationService;
@@ -41,19 +38,20 @@ public class AuthController {
                     @ApiResponse(responseCode = "201", description = "User registered successfully, JWT token returned",
                             content = @Content(mediaType = "application/json",
                                     examples = @ExampleObject(value = "{\"token\": \"jwt\"}"))),
-                    @ApiResponse(responseCode = "500", description = "Internal server error",
-                            content = @Content(mediaType = "application/json",
-                                    examples = @ExampleObject(value = "{\"error\": \"Could not register the user. Please try again later.\"}")))
+                    @ApiResponse(responseCode = "400", description = "Email already in use",
+                            content = @Content(mediaType = "application/problem+json",
+                                    examples = @ExampleObject(value = """
+                                            {
+                                                "type": "about:blank",
+                                                "title": "Bad Request",
+                                                "status": 400,
+                                                "detail": "Email already in use."
+                                            }
+                                            """)))
             })
-    public ResponseEntity<?> registerUser(@RequestBody RegistrationRequest registrationRequest) {
-        try {
-            Map<String, String> tokenResponse = authenticationService.registerUserAndGenerateToken(registrationRequest);
-            return ResponseEntity.status(HttpStatus.CREATED).body(tokenResponse);
-        } catch (CustomAlreadyExistsException e) {
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Could not register the user. Please try again later."));
-        }
+    public ResponseEntity<Map<String, String>> registerUser(@RequestBody RegistrationRequest registrationRequest) {
+        Map<String, String> tokenResponse = authenticationService.registerUserAndGenerateToken(registrationRequest);
+        return ResponseEntity.status(HttpStatus.CREATED).body(tokenResponse);
     }
 
     /**
@@ -74,20 +72,19 @@ public class AuthController {
                                             }
                                             """))),
                     @ApiResponse(responseCode = "401", description = "Unauthorized",
-                            content = @Content(mediaType = "application/json",
+                            content = @Content(mediaType = "application/problem+json",
                                     examples = @ExampleObject(value = """
                                             {
-                                                "error": "Invalid username or password"
+                                                "type": "about:blank",
+                                                "title": "Unauthorized",
+                                                "status": 401,
+                                                "detail": "Invalid username or password"
                                             }
                                             """)))
             })
-    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
-        try {
-            Map<String, String> tokenResponse = authenticationService.authenticateAndGenerateToken(loginRequest);
-            return ResponseEntity.ok(tokenResponse);
-        } catch (CustomAuthenticationException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", e.getMessage()));
-        }
+    public ResponseEntity<Map<String, String>> login(@RequestBody LoginRequest loginRequest) {
+        Map<String, String> tokenResponse = authenticationService.authenticateAndGenerateToken(loginRequest);
+        return ResponseEntity.ok(tokenResponse);
     }
 
     /**
@@ -111,20 +108,19 @@ public class AuthController {
                                             }
                                             """))),
                     @ApiResponse(responseCode = "404", description = "User not found",
-                            content = @Content(mediaType = "application/json",
+                            content = @Content(mediaType = "application/problem+json",
                                     examples = @ExampleObject(value = """
                                             {
-                                                "error": "User not found"
+                                                "type": "about:blank",
+                                                "title": "Not Found",
+                                                "status": 404,
+                                                "detail": "User not found"
                                             }
                                             """)))
             })
-    public ResponseEntity<?> getCurrentUserDetails() {
-        try {
-            UserDTO userDTO = authenticationService.getCurrentUserDetails();
-            return ResponseEntity.ok(userDTO);
-        } catch (CustomNotFoundException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
-        }
+    public ResponseEntity<UserDTO> getCurrentUserDetails() {
+        UserDTO userDTO = authenticationService.getCurrentUserDetails();
+        return ResponseEntity.ok(userDTO);
     }
 
 }
@@ -1,22 +1,18 @@
 package com.openclassrooms.projet3.controller;
 
 import com.openclassrooms.projet3.dtos.UserDTO;
-import com.openclassrooms.projet3.excepton.CustomNotFoundException;
 import com.openclassrooms.projet3.service.DBUserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.Map;
-
 @RestController
 @RequestMapping("/api/user")
 public class DBUserController {
@@ -57,19 +53,18 @@ public class DBUserController {
                                             }
                                             """))),
                     @ApiResponse(responseCode = "404", description = "User not found",
-                            content = @Content(mediaType = "application/json",
+                            content = @Content(mediaType = "application/problem+json",
                                     examples = @ExampleObject(value = """
                                             {
-                                                "error": "User not found"
+                                                "type": "about:blank",
+                                                "title": "Not Found",
+                                                "status": 404,
+                                                "detail": "User not found"
                                             }
                                             """)))
             })
-    public ResponseEntity<?> getUserById(@PathVariable Long id) {
-        try {
-            UserDTO userDTO = dbUserService.findUserDTOById(id);
-            return ResponseEntity.ok(userDTO);
-        } catch (CustomNotFoundException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
-        }
+    public ResponseEntity<UserDTO> getUserById(@PathVariable Long id) {
+        UserDTO userDTO = dbUserService.findUserDTOById(id);
+        return ResponseEntity.ok(userDTO);
     }
 }
@@ -1,15 +1,18 @@
 package com.openclassrooms.projet3.controller;
 
 import com.openclassrooms.projet3.dtos.MessageDTO;
-import com.openclassrooms.projet3.excepton.CustomNotFoundException;
+import com.openclassrooms.projet3.service.AuthenticationService;
 import com.openclassrooms.projet3.service.MessageService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -22,9 +25,11 @@ import java.util.Map;
 public class MessageController {
 
     private final MessageService messageService;
+    private final AuthenticationService authenticationService;
 
-    public MessageController(MessageService messageService) {
+    public MessageController(MessageService messageService, AuthenticationService authenticationService) {
         this.messageService = messageService;
+        this.authenticationService = authenticationService;
     }
 
     /**
@@ -60,28 +65,67 @@ public class MessageController {
                                             }
                                             """))),
                     @ApiResponse(responseCode = "404", description = "Rental/User not found",
-                            content = @Content(mediaType = "application/json",
+                            content = @Content(mediaType = "application/problem+json",
                                     examples = @ExampleObject(value = """
                                             {
-                                                "error": "Rental/User not found"
+                                                "type": "about:blank",
+                                                "title": "Not Found",
+                                                "status": 404,
+                                                "detail": "Rental not found"
                                             }
                                             """))),
                     @ApiResponse(responseCode = "500", description = "Internal server error",
-                            content = @Content(mediaType = "application/json",
+                            content = @Content(mediaType = "application/problem+json",
                                     examples = @ExampleObject(value = """
                                             {
-                                                "error": "Could not send the message. Please try again later."
+                                                "type": "about:blank",
+                                                "title": "Internal Server Error",
+                                                "status": 500,
+                                                "detail": "An unexpected error occurred"
                                             }
                                             """)))
             })
     public ResponseEntity<Map<String, String>> createMessage(@RequestBody @Valid MessageDTO messageDTO) {
-        try {
-            messageService.createAndSaveMessage(messageDTO);
-            return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("message", "Message sent successfully"));
-        } catch (CustomNotFoundException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Could not send the message. Please try again later."));
-        }
+        messageService.createAndSaveMessage(messageDTO);
+        return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("message", "Message sent successfully"));
+    }
+
+    /**
+     * Retrieves a message identified by its unique ID.
+     * <p>
+     * Messages that were moved to the archive by the retention job are still returned by this endpoint;
+     * the service looks them up in the archive when they are no longer in the database. Only the author of the
+     * message and the owner of its rental can read it; for anyone else it is not found.
+     *
+     * @param id The unique identifier of the message to retrieve.
+     * @return A ResponseEntity containing the {@link MessageDTO} if found, or a 404 Not Found status otherwise.
+     */
+    @GetMapping("/{id}")
+    @Operation(summary = "Get a message by its ID",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Message retrieved successfully",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = MessageDTO.class),
+                                    examples = @ExampleObject(value = """
+                                            {
+                                                "rental_id": 1,
+                                                "user_id": 2,
+                                                "message": "Is the cottage available in July?"
+                                            }
+                                            """))),
+                    @ApiResponse(responseCode = "404", description = "Message not found",
+                            content = @Content(mediaType = "application/problem+json",
+                                    examples = @ExampleObject(value = """
+                                            {
+                                                "type": "about:blank",
+                                                "title": "Not Found",
+                                                "status": 404,
+                                                "detail": "Message not found"
+                                            }
+                                            """)))
+            })
+    public ResponseEntity<MessageDTO> getMessageById(@PathVariable Long id) {
+        MessageDTO messageDTO = messageService.findMessageDTOById(id, authenticationService.getAuthenticatedUserEmail());
+        return ResponseEntity.ok(messageDTO);
     }
 }
@@ -0,0 +1,131 @@
+package com.openclassrooms.projet3.controller;
+
+import com.openclassrooms.projet3.service.PictureVariantService;
+import com.openclassrooms.projet3.utils.ImageUtils;
+import com.openclassrooms.projet3.utils.PictureFormat;
+import com.openclassrooms.projet3.utils.PictureResponseWriter;
+import com.openclassrooms.projet3.utils.PictureStore;
+import com.openclassrooms.projet3.utils.PictureVariant;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/uploads")
+public class PictureController {
+
+    private final ImageUtils imageUtils;
+    private final PictureVariantService pictureVariantService;
+    private final PictureResponseWriter pictureResponseWriter;
+    private final PictureStore pictureStore;
+
+    public PictureController(ImageUtils imageUtils, PictureVariantService pictureVariantService,
+                             PictureResponseWriter pictureResponseWriter, PictureStore pictureStore) {
+        this.imageUtils = imageUtils;
+        this.pictureVariantService = pictureVariantService;
+        this.pictureResponseWriter = pictureResponseWriter;
+        this.pictureStore = pictureStore;
+    }
+
+    /**
+     * Serves a stored picture, or the variant of it that best fits the client.
+     * <p>
+     * Without a {@code w} parameter the original upload is returned. With it, the smallest variant at least
+     * {@code w} pixels wide is returned as JPEG, unless the {@code Accept} header excludes {@code image/jpeg}, in
+     * which case the original is returned. Variants that do not exist yet are generated in the background and the
+     * original is returned in the meantime.
+     * <p>
+     * Content-addressed pictures and their variants never change, so they are served as immutable with a strong
+     * ETag. Conditional ({@code If-None-Match}) and single {@code Range} requests are supported, and large files are
+     * sent with zero-copy file transfer. When pictures are kept in a remote object store, originals are not
+     * served by this node: the client is redirected to a presigned URL of the store.
+     *
+     * @param filename The name of the stored picture, as found at the end of {@code Rental.picture}.
+     * @param width    The optional display width, in pixels, the picture is requested for.
+     * @param accept   The {@code Accept} header of the request, used to negotiate the variant format.
+     * @param request  The current request.
+     * @param response The current response, the picture is written directly to it. Its status is 404 Not Found
+     *                 if there is no such picture.
+     * @throws IOException if the picture cannot be read or written to the response.
+     */
+    @GetMapping("/{filename:.+}")
+    @Operation(summary = "Get a stored picture, optionally resized",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Picture or picture variant content",
+                            content = @Content(mediaType = "image/*")),
+                    @ApiResponse(responseCode = "206", description = "Requested byte range of the picture",
+                            content = @Content(mediaType = "image/*")),
+                    @ApiResponse(responseCode = "302", description = "Redirect to the picture in the object store",
+                            content = @Content),
+                    @ApiResponse(responseCode = "304", description = "Picture not modified since the cached version",
+                            content = @Content),
+                    @ApiResponse(responseCode = "404", description = "Picture not found",
+                            content = @Content)
+            })
+    public void getPicture(@PathVariable String filename,
+                           @RequestParam(value = "w", required = false) Integer width,
+                           @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                           HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        String key = imageUtils.pictureKey(filename);
+        Optional<Path> original = key == null ? Optional.empty() : pictureStore.localFile(key);
+        Optional<URI> remote = key == null || original.isPresent() ? Optional.empty() : pictureStore.downloadUrl(key);
+        if (original.isEmpty() && remote.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        if (width != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        boolean immutable = imageUtils.digestOf(filename) != null;
+        if (width != null && width > 0) {
+            // variants are cached on the local disk of every node, whatever the store of the originals
+            Optional<PictureVariant> variant = pictureVariantService.findBestVariant(filename, width, parseAccept(accept));
+            if (variant.isPresent()) {
+                pictureResponseWriter.write(request, response, variant.get().path(),
+                        MediaType.parseMediaType(variant.get().contentType()), immutable);
+                return;
+            }
+        }
+
+        if (remote.isPresent()) {
+            // the original is downloaded straight from the store, not through this node
+            response.sendRedirect(remote.get().toString());
+            return;
+        }
+        MediaType contentType = PictureFormat.fromFilename(filename)
+                .map(format -> MediaType.parseMediaType(format.getContentType()))
+                .orElseGet(() -> MediaTypeFactory.getMediaType(filename).orElse(MediaType.APPLICATION_OCTET_STREAM));
+        pictureResponseWriter.write(request, response, original.get(), contentType, immutable);
+    }
+
+    private static List<MediaType> parseAccept(String accept) {
+        if (accept == null) {
+            return List.of();
+        }
+        try {
+            return MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return List.of();
+        }
+    }
+}
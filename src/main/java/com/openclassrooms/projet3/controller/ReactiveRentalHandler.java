@@ -0,0 +1,50 @@
+package com.openclassrooms.projet3.controller;
+
+import com.openclassrooms.projet3.dtos.RentalListResponse;
+import com.openclassrooms.projet3.repository.ReactiveRentalRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking implementation of the read endpoints of {@link RentalController}, served by the reactive read API
+ * (see {@link com.openclassrooms.projet3.config.ReactiveApiConfig}). Responses are the same as the MVC ones.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveRentalHandler {
+
+    private final ReactiveRentalRepository rentalRepository;
+
+    public ReactiveRentalHandler(ReactiveRentalRepository rentalRepository) {
+        this.rentalRepository = rentalRepository;
+    }
+
+    /**
+     * {@code GET /api/rentals}: all the rentals, as {@code {"rentals": [...]}}.
+     */
+    public Mono<ServerResponse> getRentals(ServerRequest request) {
+        return rentalRepository.findAll()
+                .collectList()
+                .flatMap(rentals -> ReactiveResponses.ok(new RentalListResponse(rentals)));
+    }
+
+    /**
+     * {@code GET /api/rentals/{id}}: the rental, 400 Bad Request if the id is not a positive number, 404 Not Found
+     * if there is no such rental.
+     */
+    public Mono<ServerResponse> getRentalById(ServerRequest request) {
+        Long id = ReactiveResponses.pathId(request);
+        if (id == null) {
+            return ReactiveResponses.invalidId(request);
+        }
+        if (id < 1) {
+            return ReactiveResponses.validationError("getRentalById.id: must be greater than or equal to 1");
+        }
+        return rentalRepository.findById(id)
+                .flatMap(ReactiveResponses::ok)
+                .switchIfEmpty(Mono.defer(() -> ReactiveResponses.notFound("Rental not found")));
+    }
+}
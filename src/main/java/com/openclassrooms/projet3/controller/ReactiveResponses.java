@@ -0,0 +1,55 @@
+package com.openclassrooms.projet3.controller;
+
+import com.openclassrooms.projet3.excepton.ProblemDetails;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Responses shared by the reactive handlers, with the same bodies as the ones of {@code GlobalExceptionHandler}
+ * for the MVC controllers ({@link ProblemDetails}).
+ */
+final class ReactiveResponses {
+
+    private ReactiveResponses() {
+    }
+
+    /**
+     * Parses the {@code id} path variable.
+     *
+     * @return the id, or {@code null} if it is not a number.
+     */
+    static Long pathId(ServerRequest request) {
+        try {
+            return Long.valueOf(request.pathVariable("id"));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static Mono<ServerResponse> ok(Object body) {
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(body);
+    }
+
+    static Mono<ServerResponse> invalidId(ServerRequest request) {
+        return error(HttpStatus.BAD_REQUEST, ProblemDetails.body(HttpStatus.BAD_REQUEST,
+                "Failed to convert value of type 'java.lang.String' to required type 'java.lang.Long'; "
+                        + "For input string: \"" + request.pathVariable("id") + "\""));
+    }
+
+    static Mono<ServerResponse> validationError(String violation) {
+        return error(HttpStatus.BAD_REQUEST, ProblemDetails.validationBody("Validation error", List.of(violation)));
+    }
+
+    static Mono<ServerResponse> notFound(String detail) {
+        return error(HttpStatus.NOT_FOUND, ProblemDetails.cachedBody(HttpStatus.NOT_FOUND, detail));
+    }
+
+    private static Mono<ServerResponse> error(HttpStatus status, byte[] body) {
+        return ServerResponse.status(status).contentType(MediaType.APPLICATION_PROBLEM_JSON).bodyValue(body);
+    }
+}
@@ -0,0 +1,37 @@
+package com.openclassrooms.projet3.controller;
+
+import com.openclassrooms.projet3.repository.ReactiveUserRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking implementation of {@link DBUserController}, served by the reactive read API (see
+ * {@link com.openclassrooms.projet3.config.ReactiveApiConfig}). Responses are the same as the MVC ones.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveUserHandler {
+
+    private final ReactiveUserRepository userRepository;
+
+    public ReactiveUserHandler(ReactiveUserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * {@code GET /api/user/{id}}: the user, 400 Bad Request if the id is not a number, 404 Not Found if there is
+     * no such user.
+     */
+    public Mono<ServerResponse> getUserById(ServerRequest request) {
+        Long id = ReactiveResponses.pathId(request);
+        if (id == null) {
+            return ReactiveResponses.invalidId(request);
+        }
+        return userRepository.findById(id)
+                .flatMap(ReactiveResponses::ok)
+                .switchIfEmpty(Mono.defer(() -> ReactiveResponses.notFound("User not found")));
+    }
+}
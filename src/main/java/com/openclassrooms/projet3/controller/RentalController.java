@@ -3,16 +3,18 @@ package com.openclassrooms.projet3.controller;
 import com.openclassrooms.projet3.dtos.ApiStandardResponse;
 import com.openclassrooms.projet3.dtos.RentalDTO;
 import com.openclassrooms.projet3.dtos.RentalListResponse;
-import com.openclassrooms.projet3.excepton.CustomNotFoundException;
+import com.openclassrooms.projet3.excepton.CustomBadRequestException;
 import com.openclassrooms.projet3.model.Rental;
 import com.openclassrooms.projet3.service.AuthenticationService;
 import com.openclassrooms.projet3.service.RentalService;
 import com.openclassrooms.projet3.service.impl.RentalServiceImpl;
+import com.openclassrooms.projet3.utils.PresignedUpload;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -24,6 +26,8 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.channels.Channels;
 import java.util.List;
 import java.util.Map;
 
@@ -90,11 +94,13 @@ public class RentalController {
                                             }
                                             """))),
                     @ApiResponse(responseCode = "500", description = "Internal server error",
-                            content = @Content(mediaType = "application/json",
+                            content = @Content(mediaType = "application/problem+json",
                                     examples = @ExampleObject(value = """
                                             {
-                                                "error": "An unexpected error occurred",
-                                                "details": "Specific error message here"
+                                                "type": "about:blank",
+                                                "title": "Internal Server Error",
+                                                "status": 500,
+                                                "detail": "An unexpected error occurred"
                                             }
                                             """)))
             })
@@ -150,11 +156,14 @@ public class RentalController {
                                             }
                                             """))),
                     @ApiResponse(responseCode = "400", description = "Validation error on request parameters",
-                            content = @Content(mediaType = "application/json",
+                            content = @Content(mediaType = "application/problem+json",
                                     examples = @ExampleObject(value = """
                                             {
-                                                "error": "Validation error",
-                                                "details": ["ID must be greater than 0"]
+                                                "type": "about:blank",
+                                                "title": "Bad Request",
+                                                "status": 400,
+                                                "detail": "Validation error",
+                                                "errors": ["ID must be greater than 0"]
                                             }
                                             """))),
                     @ApiResponse(responseCode = "404", description = "Rental not found for the provided ID",
@@ -168,12 +177,16 @@ public class RentalController {
     /**
      * Handles the creation of a new rental listing.
      * This endpoint consumes multipart/form-data to allow for picture uploads alongside rental data.
+     * Instead of the picture itself, the key of a picture uploaded straight to the picture store (see
+     * {@link #createPictureUpload}) can be given.
      *
      * @param name        The name of the rental property, must not be blank.
      * @param surface     The surface area of the rental property in square meters, must be a positive integer.
      * @param price       The rental price, must be a positive number.
      * @param description A description of the rental property, must not be blank.
-     * @param picture     A multipart file containing the picture of the rental property, required.
+     * @param picture     A multipart file containing the picture of the rental property, required unless
+     *                    {@code pictureKey} is given.
+     * @param pictureKey  The key of a picture already uploaded to the picture store.
      * @return A ResponseEntity containing a success message with HTTP status 201 if the rental is created successfully,
      * a not found message with HTTP status 404 if the owner is not found,
      * or an error message with HTTP status 500 if an internal server error occurs during the creation process.
@@ -192,18 +205,38 @@ public class RentalController {
                                                 "message": "Rental created successfully!"
                                             }
                                             """))),
-                    @ApiResponse(responseCode = "404", description = "Owner not found",
-                            content = @Content(mediaType = "application/json",
+                    @ApiResponse(responseCode = "400", description = "Neither a picture nor a picture key was given",
+                            content = @Content(mediaType = "application/problem+json",
+                                    examples = @ExampleObject(value = """
+                                            {
+                                                "type": "about:blank",
+                                                "title": "Bad Request",
+                                                "status": 400,
+                                                "detail": "A picture or a picture key is required"
+                                            }
+                                            """))),
+                    @ApiResponse(responseCode = "404", description = "Owner or uploaded picture not found",
+                            content = @Content(mediaType = "application/problem+json",
                                     examples = @ExampleObject(value = """
                                             {
-                                                "error": "Owner not found"
+                                                "type": "about:blank",
+                                                "title": "Not Found",
+                                                "status": 404,
+                                                "detail": "Owner not found"
                                             }
                                             """))),
+                    @ApiResponse(responseCode = "413", description = "Uploaded picture exceeds the upload limit",
+                            content = @Content),
+                    @ApiResponse(responseCode = "415", description = "Uploaded picture is not a supported image type",
+                            content = @Content),
                     @ApiResponse(responseCode = "500", description = "Internal server error",
-                            content = @Content(mediaType = "application/json",
+                            content = @Content(mediaType = "application/problem+json",
                                     examples = @ExampleObject(value = """
                                             {
-                                                "error": "Could not create the rental"
+                                                "type": "about:blank",
+                                                "title": "Internal Server Error",
+                                                "status": 500,
+                                                "detail": "An unexpected error occurred"
                                             }
                                             """)))
             })
@@ -211,22 +244,70 @@ public class RentalController {
                                                             @RequestParam @NotNull @Positive int surface,
                                                             @RequestParam @NotNull @Positive double price,
                                                             @RequestParam @NotBlank String description,
-                                                            @RequestParam("picture") MultipartFile picture) {
-        try {
-            String email = authenticationService.getAuthenticatedUserEmail();
-            Rental rental = rentalService.createRental(name, surface, price, description, picture, email);
-            ApiStandardResponse response = new ApiStandardResponse(true, "Rental created successfully!", Map.of("rentalId", rental.getId()));
-            return new ResponseEntity<>(response, HttpStatus.CREATED);
-        } catch (CustomNotFoundException e) {
-            ApiStandardResponse errorResponse = new ApiStandardResponse(e.getMessage());
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
-        } catch (Exception e) {
-            ApiStandardResponse errorResponse = new ApiStandardResponse("Could not create the rental");
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+                                                            @RequestParam(value = "picture", required = false) MultipartFile picture,
+                                                            @RequestParam(value = "pictureKey", required = false) String pictureKey) throws Exception {
+        boolean hasPicture = picture != null && !picture.isEmpty();
+        if (!hasPicture && (pictureKey == null || pictureKey.isBlank())) {
+            throw new CustomBadRequestException("A picture or a picture key is required");
         }
+        String email = authenticationService.getAuthenticatedUserEmail();
+        Rental rental = rentalService.createRental(name, surface, price, description, hasPicture ? picture : null, pictureKey, email);
+        ApiStandardResponse response = new ApiStandardResponse(true, "Rental created successfully!", Map.of("rentalId", rental.getId()));
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
 
+    /**
+     * Authorizes the upload of a rental picture straight to the picture store.
+     * <p>
+     * The client computes the SHA-256 digest of the picture, then sends the picture with the returned method, URL
+     * and headers to the store, without going through this API. The store only accepts a body of the declared
+     * length whose digest matches. The returned {@code key} is then given as {@code pictureKey} when creating the
+     * rental. The URL expires after a few minutes.
+     *
+     * @param sha256        The hex-encoded SHA-256 digest of the picture.
+     * @param contentType   The content type of the picture, one of the accepted image types.
+     * @param contentLength The exact length of the picture in bytes.
+     * @return A ResponseEntity with the upload authorization, or an error message.
+     */
+    @PostMapping("/picture-uploads")
+    @Operation(summary = "Get a presigned URL to upload a rental picture straight to the picture store",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Upload authorized",
+                            content = @Content(mediaType = "application/json",
+                                    examples = @ExampleObject(value = """
+                                            {
+                                                "success": true,
+                                                "message": "Upload authorized",
+                                                "data": {
+                                                    "key": "9f/86/9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08.jpg",
+                                                    "url": "https://pictures.example.com/chatop/9f/86/9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08.jpg?X-Amz-Algorithm=...",
+                                                    "method": "PUT",
+                                                    "headers": {
+                                                        "content-type": "image/jpeg",
+                                                        "content-length": "24576",
+                                                        "x-amz-checksum-sha256": "n4bQgYhMfWWaL+qgxVrQFaO/TxsrC4Is0V1sFbDwCgg="
+                                                    },
+                                                    "expiresAt": "2024-02-07T12:15:00Z"
+                                                }
+                                            }
+                                            """))),
+                    @ApiResponse(responseCode = "400", description = "Missing or malformed digest or length",
+                            content = @Content),
+                    @ApiResponse(responseCode = "413", description = "Picture exceeds the upload limit",
+                            content = @Content),
+                    @ApiResponse(responseCode = "415", description = "Content type not accepted",
+                            content = @Content),
+                    @ApiResponse(responseCode = "501", description = "The picture store does not support direct uploads",
+                            content = @Content)
+            })
+    public ResponseEntity<ApiStandardResponse> createPictureUpload(@RequestParam @NotBlank String sha256,
+                                                                   @RequestParam @NotBlank String contentType,
+                                                                   @RequestParam @Positive long contentLength) {
+        PresignedUpload upload = rentalService.presignPictureUpload(sha256, contentType, contentLength);
+        return ResponseEntity.ok(new ApiStandardResponse(true, "Upload authorized", upload));
+    }
+
     /**
      * Updates an existing rental with the provided details.
      * <p>
@@ -259,24 +340,33 @@ public class RentalController {
                                             }
                                             """))),
                     @ApiResponse(responseCode = "403", description = "User is not the owner of the rental",
-                            content = @Content(mediaType = "application/json",
+                            content = @Content(mediaType = "application/problem+json",
                                     examples = @ExampleObject(value = """
                                             {
-                                                "message": "User is not the owner of the rental"
+                                                "type": "about:blank",
+                                                "title": "Forbidden",
+                                                "status": 403,
+                                                "detail": "User is not the owner of the rental"
                                             }
                                             """))),
                     @ApiResponse(responseCode = "404", description = "Rental not found",
-                            content = @Content(mediaType = "application/json",
+                            content = @Content(mediaType = "application/problem+json",
                                     examples = @ExampleObject(value = """
                                             {
-                                                "message": "Rental not found"
+                                                "type": "about:blank",
+                                                "title": "Not Found",
+                                                "status": 404,
+                                                "detail": "Rental not found"
                                             }
                                             """))),
                     @ApiResponse(responseCode = "500", description = "Error updating rental",
-                            content = @Content(mediaType = "application/json",
+                            content = @Content(mediaType = "application/problem+json",
                                     examples = @ExampleObject(value = """
                                             {
-                                                "message": "Error updating rental: [Error details here]"
+                                                "type": "about:blank",
+                                                "title": "Internal Server Error",
+                                                "status": 500,
+                                                "detail": "An unexpected error occurred"
                                             }
                                             """)))
             })
@@ -285,17 +375,84 @@ public class RentalController {
                                                             @RequestParam @NotNull @Positive int surface,
                                                             @RequestParam @NotNull @Positive double price,
                                                             @RequestParam @NotBlank String description,
-                                                            @RequestParam(value = "picture", required = false) MultipartFile picture) {
-        try {
-            String ownerEmail = authenticationService.getAuthenticatedUserEmail();
-            Rental updatedRental = rentalService.updateRental(id, name, surface, price, description, picture, ownerEmail);
-            return ResponseEntity.ok(new ApiStandardResponse(true, "Rental updated successfully!"));
-        } catch (CustomNotFoundException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiStandardResponse(e.getMessage()));
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ApiStandardResponse("Error updating rental: " + e.getMessage()));
-        }
+                                                            @RequestParam(value = "picture", required = false) MultipartFile picture) throws IOException {
+        String ownerEmail = authenticationService.getAuthenticatedUserEmail();
+        rentalService.updateRental(id, name, surface, price, description, picture, ownerEmail);
+        return ResponseEntity.ok(new ApiStandardResponse(true, "Rental updated successfully!"));
     }
 
-
+    /**
+     * Replaces the picture of an existing rental with the raw request body.
+     * <p>
+     * This endpoint is the streaming alternative to the multipart {@code picture} field of the update endpoint:
+     * the body is the picture itself ({@code Content-Type: image/jpeg}, {@code image/png}, {@code image/gif} or
+     * {@code image/webp}) and is written straight to its final file while being read, instead of being spooled to
+     * a multipart temporary file first. The upload is aborted as soon as it exceeds the upload limit or its first
+     * bytes do not match the declared content type.
+     *
+     * @param id      The ID of the rental whose picture is replaced, must be greater than 0.
+     * @param request The current request, whose body is the picture content.
+     * @return A ResponseEntity with a success message and the new picture URL, or an error message.
+     */
+    @PutMapping(value = "/{id}/picture", consumes = {MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_GIF_VALUE, "image/webp"})
+    @Operation(summary = "Stream a new picture for an existing rental",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Picture successfully updated",
+                            content = @Content(mediaType = "application/json",
+                                    examples = @ExampleObject(value = """
+                                            {
+                                                "success": true,
+                                                "message": "Picture updated successfully!",
+                                                "data": {
+                                                    "picture": "http://localhost:3001/uploads/9f/86/9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08.jpg"
+                                                }
+                                            }
+                                            """))),
+                    @ApiResponse(responseCode = "404", description = "Rental not found or user is not the owner",
+                            content = @Content(mediaType = "application/problem+json",
+                                    examples = @ExampleObject(value = """
+                                            {
+                                                "type": "about:blank",
+                                                "title": "Not Found",
+                                                "status": 404,
+                                                "detail": "Rental not found"
+                                            }
+                                            """))),
+                    @ApiResponse(responseCode = "413", description = "Picture exceeds the upload limit",
+                            content = @Content(mediaType = "application/problem+json",
+                                    examples = @ExampleObject(value = """
+                                            {
+                                                "type": "about:blank",
+                                                "title": "Request Entity Too Large",
+                                                "status": 413,
+                                                "detail": "Picture exceeds the maximum upload size of 104857600 bytes"
+                                            }
+                                            """))),
+                    @ApiResponse(responseCode = "415", description = "Content type not accepted or not matching the content",
+                            content = @Content(mediaType = "application/problem+json",
+                                    examples = @ExampleObject(value = """
+                                            {
+                                                "type": "about:blank",
+                                                "title": "Unsupported Media Type",
+                                                "status": 415,
+                                                "detail": "Picture content does not match its declared type image/png"
+                                            }
+                                            """))),
+                    @ApiResponse(responseCode = "503", description = "Too many concurrent uploads",
+                            content = @Content(mediaType = "application/problem+json",
+                                    examples = @ExampleObject(value = """
+                                            {
+                                                "type": "about:blank",
+                                                "title": "Service Unavailable",
+                                                "status": 503,
+                                                "detail": "Too many concurrent uploads, please try again later."
+                                            }
+                                            """)))
+            })
+    public ResponseEntity<ApiStandardResponse> updateRentalPicture(@PathVariable @Min(1) Long id, HttpServletRequest request) throws IOException {
+        String ownerEmail = authenticationService.getAuthenticatedUserEmail();
+        Rental updatedRental = rentalService.updateRentalPicture(id, Channels.newChannel(request.getInputStream()),
+                request.getContentType(), request.getContentLengthLong(), ownerEmail);
+        return ResponseEntity.ok(new ApiStandardResponse(true, "Picture updated successfully!", Map.of("picture", updatedRental.getPicture())));
+    }
 }
@@ -2,6 +2,8 @@ package com.openclassrooms.projet3.dtos;
 
 import lombok.Data;
 
+import java.time.LocalDate;
+
 /**
  * Data Transfer Object representing rental property information.
  * <p>
@@ -47,16 +49,16 @@ public class RentalDTO {
     private Long owner_id;
 
     /**
-     * The timestamp when the rental property was created.
+     * The date when the rental property was created.
      * <p>
-     * Should be in ISO 8601 format: YYYY-MM-DDTHH:MM:SSZ
+     * Serialized in ISO 8601 format: YYYY-MM-DD, or as a YYYYMMDD number with {@code app.json.compact-dates=true}.
      */
-    private String created_at;
+    private LocalDate created_at;
 
     /**
-     * The timestamp when the rental property information was last updated.
+     * The date when the rental property information was last updated.
      * <p>
-     * Should be in ISO 8601 format: YYYY-MM-DDTHH:MM:SSZ
+     * Serialized in ISO 8601 format: YYYY-MM-DD, or as a YYYYMMDD number with {@code app.json.compact-dates=true}.
      */
-    private String updated_at;
+    private LocalDate updated_at;
 }
@@ -1,10 +1,11 @@
 package com.openclassrooms.projet3.excepton;
 
+import org.springframework.http.HttpStatus;
 
-public class CustomAlreadyExistsException extends RuntimeException {
+public class CustomAlreadyExistsException extends CustomApiException {
 
     public CustomAlreadyExistsException(String message) {
-        super(message);
+        super(HttpStatus.BAD_REQUEST, message);
     }
 
 }
@@ -0,0 +1,42 @@
+package com.openclassrooms.projet3.excepton;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Domain exception answered with its HTTP status and its message as the detail of an {@code application/problem+json}
+ * response by {@link GlobalExceptionHandler}.
+ * <p>
+ * These exceptions drive expected outcomes such as 404s and failed logins, so they do not fill in a stack trace: a
+ * {@code cause}, when given, keeps its own. Their messages are constant by default, and the response bodies cached
+ * ({@link ProblemDetails#cachedBody}); a message quoting the request must be created as not constant.
+ */
+public abstract class CustomApiException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final boolean constantMessage;
+
+    protected CustomApiException(HttpStatus status, String message) {
+        this(status, message, null);
+    }
+
+    protected CustomApiException(HttpStatus status, String message, Throwable cause) {
+        this(status, message, cause, true);
+    }
+
+    protected CustomApiException(HttpStatus status, String message, Throwable cause, boolean constantMessage) {
+        super(message, cause, false, false);
+        this.status = status;
+        this.constantMessage = constantMessage;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return {@code true} if the message is one of a fixed set of texts, {@code false} if it quotes the request.
+     */
+    public boolean hasConstantMessage() {
+        return constantMessage;
+    }
+}
@@ -1,7 +1,9 @@
 package com.openclassrooms.projet3.excepton;
 
-public class CustomAuthenticationException extends RuntimeException {
+import org.springframework.http.HttpStatus;
+
+public class CustomAuthenticationException extends CustomApiException {
     public CustomAuthenticationException(String message) {
-        super(message);
+        super(HttpStatus.UNAUTHORIZED, message);
     }
 }
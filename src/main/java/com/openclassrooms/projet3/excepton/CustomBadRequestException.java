@@ -0,0 +1,9 @@
+package com.openclassrooms.projet3.excepton;
+
+import org.springframework.http.HttpStatus;
+
+public class CustomBadRequestException extends CustomApiException {
+    public CustomBadRequestException(String message) {
+        super(HttpStatus.BAD_REQUEST, message);
+    }
+}
@@ -1,11 +1,13 @@
 package com.openclassrooms.projet3.excepton;
 
-public class CustomNotFoundException extends RuntimeException {
+import org.springframework.http.HttpStatus;
+
+public class CustomNotFoundException extends CustomApiException {
     public CustomNotFoundException(String message) {
-        super(message);
+        super(HttpStatus.NOT_FOUND, message);
     }
 
     public CustomNotFoundException(String message, Throwable cause) {
-        super(message, cause);
+        super(HttpStatus.NOT_FOUND, message, cause);
     }
 }
@@ -0,0 +1,9 @@
+package com.openclassrooms.projet3.excepton;
+
+import org.springframework.http.HttpStatus;
+
+public class CustomNotImplementedException extends CustomApiException {
+    public CustomNotImplementedException(String message) {
+        super(HttpStatus.NOT_IMPLEMENTED, message);
+    }
+}
@@ -0,0 +1,9 @@
+package com.openclassrooms.projet3.excepton;
+
+import org.springframework.http.HttpStatus;
+
+public class CustomPayloadTooLargeException extends CustomApiException {
+    public CustomPayloadTooLargeException(String message) {
+        super(HttpStatus.PAYLOAD_TOO_LARGE, message);
+    }
+}
@@ -0,0 +1,9 @@
+package com.openclassrooms.projet3.excepton;
+
+import org.springframework.http.HttpStatus;
+
+public class CustomServiceUnavailableException extends CustomApiException {
+    public CustomServiceUnavailableException(String message) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.openclassrooms.projet3.excepton;
+
+import org.springframework.http.HttpStatus;
+
+public class CustomUnsupportedMediaTypeException extends CustomApiException {
+    public CustomUnsupportedMediaTypeException(String message) {
+        super(HttpStatus.UNSUPPORTED_MEDIA_TYPE, message);
+    }
+
+    public CustomUnsupportedMediaTypeException(String message, boolean constantMessage) {
+        super(HttpStatus.UNSUPPORTED_MEDIA_TYPE, message, null, constantMessage);
+    }
+}
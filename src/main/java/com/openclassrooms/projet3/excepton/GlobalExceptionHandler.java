@@ -1,40 +1,45 @@
 package com.openclassrooms.projet3.excepton;
 
 import jakarta.validation.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.ErrorResponse;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
-import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
+/**
+ * Answers the exceptions thrown by the controllers with {@code application/problem+json} responses
+ * ({@link ProblemDetails}): the domain exceptions with their own status, the exceptions of Spring MVC (unknown path,
+ * method not allowed, missing parameter...) with the status they define, and anything else with a 500.
+ */
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+    private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+
     /**
      * Handles constraint violation exceptions.
      * <p>
      * This method processes exceptions thrown due to constraint violations in request parameters or path variables,
-     * constructing a detailed error response that includes the specific violations encountered.
+     * constructing an error response that lists the specific violations encountered.
      *
      * @param ex the caught ConstraintViolationException
      * @return a ResponseEntity containing the error details and a BAD_REQUEST status
      */
     @ExceptionHandler(ConstraintViolationException.class)
-    public ResponseEntity<Object> handleConstraintViolationException(ConstraintViolationException ex) {
-        Map<String, Object> body = new HashMap<>();
-        body.put("error", "Validation error");
+    public ResponseEntity<byte[]> handleConstraintViolationException(ConstraintViolationException ex) {
         List<String> errors = ex.getConstraintViolations().stream()
                 .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
-                .collect(Collectors.toList());
-        body.put("details", errors);
-
-        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+                .toList();
+        return problem(HttpStatus.BAD_REQUEST, ProblemDetails.validationBody("Validation error", errors), null);
     }
 
     /**
@@ -47,48 +52,51 @@ public class GlobalExceptionHandler {
      * @return a ResponseEntity with error details and a BAD_REQUEST status
      */
     @ExceptionHandler(MethodArgumentTypeMismatchException.class)
-    public ResponseEntity<?> handleMethodArgumentTypeMismatch(MethodArgumentTypeMismatchException ex) {
-        Map<String, Object> body = new HashMap<>();
-        body.put("error", "Invalid request parameter");
-        body.put("details", ex.getMessage());
-
-        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    public ResponseEntity<byte[]> handleMethodArgumentTypeMismatch(MethodArgumentTypeMismatchException ex) {
+        return problem(HttpStatus.BAD_REQUEST, ProblemDetails.body(HttpStatus.BAD_REQUEST, ex.getMessage()), null);
     }
 
     /**
-     * Handles custom "not found" exceptions.
+     * Handles the domain exceptions ({@link CustomNotFoundException}, {@link CustomAuthenticationException}...).
      * <p>
-     * This method responds to exceptions indicating that a requested resource was not found,
-     * with an error response detailing the resource and reason it could not be found.
+     * Their message is a constant text in most cases, whose serialized response is cached.
      *
-     * @param ex the caught CustomNotFoundException
-     * @return a ResponseEntity with error details and a NOT_FOUND status
+     * @param ex the caught domain exception
+     * @return a ResponseEntity with the message of the exception and its status
      */
-    @ExceptionHandler(CustomNotFoundException.class)
-    public ResponseEntity<?> handleCustomNotFoundException(CustomNotFoundException ex) {
-        Map<String, Object> body = new HashMap<>();
-        body.put("error", "Not Found");
-        body.put("details", ex.getMessage());
-        return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
+    @ExceptionHandler(CustomApiException.class)
+    public ResponseEntity<byte[]> handleCustomApiException(CustomApiException ex) {
+        byte[] body = ex.hasConstantMessage()
+                ? ProblemDetails.cachedBody(ex.getStatus(), ex.getMessage())
+                : ProblemDetails.body(ex.getStatus(), ex.getMessage());
+        return problem(ex.getStatus(), body, null);
     }
 
     /**
      * Handles all other exceptions not specifically addressed by other @ExceptionHandler methods.
      * <p>
-     * This generic method catches all other exceptions, providing a general error response
-     * that includes a message about the unexpected error.
+     * The exceptions of Spring MVC carry their status and detail; any other exception is unexpected and answered
+     * with a generic message, its details being logged instead of sent to the client.
      *
-     * @param ex      the caught Exception
-     * @param request the WebRequest in which the exception occurred
-     * @return a ResponseEntity with error details and an INTERNAL_SERVER_ERROR status
+     * @param ex the caught Exception
+     * @return a ResponseEntity with error details and the status of the exception, INTERNAL_SERVER_ERROR by default
      */
     @ExceptionHandler(Exception.class)
-    public ResponseEntity<Object> handleAllExceptions(Exception ex, WebRequest request) {
-        Map<String, Object> body = new HashMap<>();
-        body.put("error", "An unexpected error occurred");
-        body.put("details", ex.getMessage());
-
-        return new ResponseEntity<>(body, HttpStatus.INTERNAL_SERVER_ERROR);
+    public ResponseEntity<byte[]> handleAllExceptions(Exception ex) {
+        if (ex instanceof ErrorResponse errorResponse) {
+            HttpStatusCode status = errorResponse.getStatusCode();
+            return problem(status, ProblemDetails.body(status, errorResponse.getBody().getDetail()),
+                    errorResponse.getHeaders());
+        }
+        logger.error("Unexpected error", ex);
+        return problem(HttpStatus.INTERNAL_SERVER_ERROR,
+                ProblemDetails.cachedBody(HttpStatus.INTERNAL_SERVER_ERROR, "An unexpected error occurred"), null);
     }
 
+    private static ResponseEntity<byte[]> problem(HttpStatusCode status, byte[] body, HttpHeaders headers) {
+        return ResponseEntity.status(status)
+                .headers(headers)
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .body(body);
+    }
 }
@@ -0,0 +1,80 @@
+package com.openclassrooms.projet3.excepton;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.util.FastByteArrayOutputStream;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bodies of the error responses of the API, in the RFC 9457 problem details format
+ * ({@code application/problem+json}): {@code type}, {@code title} (the reason phrase of the status), {@code status},
+ * {@code detail} and, for validation errors, the {@code errors} found.
+ * <p>
+ * Errors are mostly answered with the same few messages ("Rental not found", "Invalid username or password"): the
+ * bodies of these constant details are cached by status and detail ({@link #cachedBody}). Details quoting the request,
+ * such as an unknown path or a rejected value, are serialized for each response ({@link #body}), so that they cannot
+ * fill the cache.
+ */
+public final class ProblemDetails {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final Map<String, byte[]> BODIES = new ConcurrentHashMap<>();
+
+    private ProblemDetails() {
+    }
+
+    /**
+     * @return the serialized problem of the given status and detail.
+     */
+    public static byte[] body(HttpStatusCode status, String detail) {
+        return serialize(status, detail, null);
+    }
+
+    /**
+     * @param detail one of a fixed set of messages, never text taken from the request.
+     * @return the serialized problem of the given status and detail, shared between responses: it must not be
+     * modified.
+     */
+    public static byte[] cachedBody(HttpStatusCode status, String detail) {
+        return BODIES.computeIfAbsent(status.value() + detail, key -> serialize(status, detail, null));
+    }
+
+    /**
+     * @return the serialized problem of a request whose content is invalid, with the errors found.
+     */
+    public static byte[] validationBody(String detail, List<String> errors) {
+        return serialize(HttpStatus.BAD_REQUEST, detail, errors);
+    }
+
+    private static byte[] serialize(HttpStatusCode status, String detail, List<String> errors) {
+        FastByteArrayOutputStream out = new FastByteArrayOutputStream(128);
+        try (JsonGenerator gen = JSON.createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeStringField("type", "about:blank");
+            HttpStatus resolved = HttpStatus.resolve(status.value());
+            gen.writeStringField("title", resolved != null ? resolved.getReasonPhrase() : String.valueOf(status.value()));
+            gen.writeNumberField("status", status.value());
+            if (detail != null) {
+                gen.writeStringField("detail", detail);
+            }
+            if (errors != null) {
+                gen.writeArrayFieldStart("errors");
+                for (String error : errors) {
+                    gen.writeString(error);
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArrayUnsafe();
+    }
+}
@@ -0,0 +1,65 @@
+package com.openclassrooms.projet3.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A write to a cached entity, appended to the change feed in the transaction of the write so that the other nodes
+ * evict the entity from their second-level cache (see {@code CacheChangeFeedService}).
+ * <p>
+ * {@code origin} identifies the process that made the write, which does not need to evict anything: Hibernate
+ * already updated its own cache.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "cache_changes")
+public class CacheChange {
+
+    /**
+     * Cached entities whose writes are published.
+     */
+    public enum Type {
+        RENTAL,
+        USER
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity", nullable = false, length = 16)
+    private Type entity;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(name = "origin", nullable = false, length = 36)
+    private String origin;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public CacheChange(Type entity, Long entityId, String origin) {
+        this.entity = entity;
+        this.entityId = entityId;
+        this.origin = origin;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -5,6 +5,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -17,10 +18,16 @@ import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Data
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 @Schema(description = "User entity representing a user in the system")
 public class DBUser {
 
@@ -41,8 +48,11 @@ public class DBUser {
     @Schema(description = "Encrypted password of the user", example = "encryptedPassword", requiredMode = Schema.RequiredMode.REQUIRED)
     private String password;
 
+    // left out of equals, hashCode and toString, which would load the collection
     @OneToMany(mappedBy = "owner", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @Schema(description = "Set of rental properties owned by the user")
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Set<Rental> houses = new HashSet<>();
 
     @Column(name = "created_at")
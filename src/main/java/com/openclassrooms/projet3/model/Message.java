@@ -2,6 +2,8 @@ package com.openclassrooms.projet3.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -17,10 +19,14 @@ public class Message {
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "rental_id", referencedColumnName = "id",  nullable = false)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Rental rental;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", referencedColumnName = "id",  nullable = false)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private DBUser user;
 
     @Column(name = "message", length = 2000)
@@ -0,0 +1,34 @@
+package com.openclassrooms.projet3.model;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Flat, relation-free view of a {@link Message} as it is written to the message archive.
+ * <p>
+ * Only the identifiers of the rental and the user are kept so that an archived message can be read back
+ * without touching the {@code rentals} or {@code users} tables. The property order is fixed because archive
+ * lookups match on the leading {@code id} field of each serialized line.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonPropertyOrder({"id", "rentalId", "userId", "message", "createdAt", "updatedAt"})
+public class MessageArchiveEntry {
+
+    private Long id;
+
+    private Long rentalId;
+
+    private Long userId;
+
+    private String message;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,56 @@
+package com.openclassrooms.projet3.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * A content-addressed picture file, shared by every rental whose {@code picture} points to it.
+ * <p>
+ * {@code refCount} is the number of rentals referencing the file. It is only changed through the atomic
+ * update queries of {@code PictureBlobRepository}; a blob whose count dropped to zero is no longer used.
+ */
+@Data
+@Entity
+@Table(name = "pictures")
+public class PictureBlob {
+
+    @Id
+    @Column(name = "digest", length = 64)
+    private String digest;
+
+    @Column(name = "filename", nullable = false)
+    private String filename;
+
+    @Column(name = "content_type", nullable = false)
+    private String contentType;
+
+    @Column(name = "size", nullable = false)
+    private long size;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
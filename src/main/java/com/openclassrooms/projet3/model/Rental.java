@@ -2,6 +2,7 @@ package com.openclassrooms.projet3.model;
 
 import java.time.LocalDate;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
@@ -14,10 +15,16 @@ import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Data
 @Entity
 @Table(name = "rentals")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "rentals")
 public class Rental {
 
     @Id
@@ -39,8 +46,12 @@ public class Rental {
     @Column(name = "description", length = 2000)
     private String description;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    // only the id is needed to list rentals, it comes with the rental; left out of equals, hashCode and toString,
+    // which would load the owner
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_id", nullable = false)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private DBUser owner;
 
     @Column(name = "created_at")
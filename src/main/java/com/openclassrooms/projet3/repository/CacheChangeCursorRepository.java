@@ -0,0 +1,7 @@
+package com.openclassrooms.projet3.repository;
+
+import com.openclassrooms.projet3.model.CacheChangeCursor;
+import org.springframework.data.repository.CrudRepository;
+
+public interface CacheChangeCursorRepository extends CrudRepository<CacheChangeCursor, String> {
+}
@@ -0,0 +1,23 @@
+package com.openclassrooms.projet3.repository;
+
+import com.openclassrooms.projet3.model.CacheChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface CacheChangeRepository extends CrudRepository<CacheChange, Long> {
+
+    List<CacheChange> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("select coalesce(max(c.id), 0) from CacheChange c")
+    long findMaxId();
+
+    @Modifying
+    @Query("delete from CacheChange c where c.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
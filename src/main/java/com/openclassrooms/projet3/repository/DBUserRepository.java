@@ -1,15 +1,21 @@
 package com.openclassrooms.projet3.repository;
 
 import com.openclassrooms.projet3.model.DBUser;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 
 import java.util.Optional;
 
 public interface DBUserRepository extends CrudRepository<DBUser, Long> {
 
-    Optional<DBUser> findByName(String username);
-
+    // looked up on every authenticated request, results cached until the users table changes
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "users-by-email")})
     Optional<DBUser> findByEmail(String email);
 
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "users-by-email")})
     boolean existsByEmail(String email);
 }
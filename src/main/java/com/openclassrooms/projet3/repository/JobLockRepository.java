@@ -0,0 +1,34 @@
+package com.openclassrooms.projet3.repository;
+
+import com.openclassrooms.projet3.model.JobLock;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface JobLockRepository extends CrudRepository<JobLock, String> {
+
+    // the table written is declared, otherwise the native insert would empty the whole second-level cache
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "job_locks"))
+    @Query(value = "insert ignore into job_locks (name, locked_until, locked_by) values (:name, :expired, '')",
+            nativeQuery = true)
+    void insertIfAbsent(@Param("name") String name, @Param("expired") LocalDateTime expired);
+
+    /**
+     * Takes the lease only if it has expired, so that a single node wins when several try at once.
+     */
+    @Modifying
+    @Query("update JobLock l set l.lockedUntil = :until, l.lockedBy = :owner where l.name = :name and l.lockedUntil <= :now")
+    int acquire(@Param("name") String name, @Param("owner") String owner,
+                @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("update JobLock l set l.lockedUntil = :now where l.name = :name and l.lockedBy = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner, @Param("now") LocalDateTime now);
+}
@@ -1,8 +1,26 @@
 package com.openclassrooms.projet3.repository;
 
 import com.openclassrooms.projet3.model.Message;
-import org.springframework.data.jpa.repository.JpaRepository;
+import com.openclassrooms.projet3.model.MessageArchiveEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 public interface MessageRepository extends CrudRepository<Message, Long> {
+
+    @Query("select new com.openclassrooms.projet3.model.MessageArchiveEntry(m.id, m.rental.id, m.user.id, m.message, m.createdAt, m.updatedAt) " +
+            "from Message m where m.createdAt < :cutoff order by m.id")
+    List<MessageArchiveEntry> findArchivableMessages(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("delete from Message m where m.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,44 @@
+package com.openclassrooms.projet3.repository;
+
+import com.openclassrooms.projet3.model.PictureBlob;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PictureBlobRepository extends CrudRepository<PictureBlob, String> {
+
+    // the table written is declared, otherwise the native insert would empty the whole second-level cache
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "pictures"))
+    @Query(value = "insert ignore into pictures (digest, filename, content_type, size, ref_count, created_at, updated_at) " +
+            "values (:digest, :filename, :contentType, :size, 0, :now, :now)", nativeQuery = true)
+    void insertIfAbsent(@Param("digest") String digest, @Param("filename") String filename,
+                        @Param("contentType") String contentType, @Param("size") long size,
+                        @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update PictureBlob p set p.refCount = p.refCount + 1, p.updatedAt = :now where p.digest = :digest")
+    int incrementRefCount(@Param("digest") String digest, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update PictureBlob p set p.refCount = p.refCount - 1, p.updatedAt = :now where p.digest = :digest and p.refCount > 0")
+    int decrementRefCount(@Param("digest") String digest, @Param("now") LocalDateTime now);
+
+    @Query("select p from PictureBlob p where p.refCount = 0 and p.updatedAt < :cutoff order by p.updatedAt")
+    List<PictureBlob> findUnreferencedSince(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    /**
+     * Deletes a picture row only if it is still unreferenced, so a reference taken concurrently always wins.
+     */
+    @Modifying
+    @Query("delete from PictureBlob p where p.digest = :digest and p.refCount = 0 and p.updatedAt < :cutoff")
+    int deleteIfUnreferenced(@Param("digest") String digest, @Param("cutoff") LocalDateTime cutoff);
+}
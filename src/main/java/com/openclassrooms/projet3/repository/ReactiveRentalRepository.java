@@ -0,0 +1,56 @@
+package com.openclassrooms.projet3.repository;
+
+import com.openclassrooms.projet3.dtos.RentalDTO;
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking reads of the {@code rentals} table, for the reactive read API.
+ * <p>
+ * Rows are mapped straight to {@link RentalDTO}: the owner is only needed for its id, which the row already holds,
+ * so no user is loaded.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveRentalRepository {
+
+    private static final String SELECT_RENTALS =
+            "SELECT id, name, surface, price, picture, description, owner_id, created_at, updated_at FROM rentals";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveRentalRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Flux<RentalDTO> findAll() {
+        return databaseClient.sql(SELECT_RENTALS + " ORDER BY id")
+                .map(ReactiveRentalRepository::toDTO)
+                .all();
+    }
+
+    public Mono<RentalDTO> findById(Long id) {
+        return databaseClient.sql(SELECT_RENTALS + " WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveRentalRepository::toDTO)
+                .one();
+    }
+
+    private static RentalDTO toDTO(Readable row) {
+        RentalDTO dto = new RentalDTO();
+        dto.setId(ReactiveRows.number(row, "id").longValue());
+        dto.setName(row.get("name", String.class));
+        dto.setSurface(ReactiveRows.number(row, "surface").intValue());
+        dto.setPrice(ReactiveRows.number(row, "price").doubleValue());
+        dto.setPicture(row.get("picture", String.class));
+        dto.setDescription(row.get("description", String.class));
+        dto.setOwner_id(ReactiveRows.number(row, "owner_id").longValue());
+        dto.setCreated_at(ReactiveRows.localDate(row, "created_at"));
+        dto.setUpdated_at(ReactiveRows.localDate(row, "updated_at"));
+        return dto;
+    }
+}
@@ -0,0 +1,30 @@
+package com.openclassrooms.projet3.repository;
+
+import io.r2dbc.spi.Readable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Column conversions shared by the reactive repositories. Drivers map SQL types to different Java types (a
+ * {@code numeric} column is a {@code BigDecimal} with MySQL, a {@code timestamp} a {@code LocalDateTime}), so values
+ * are converted to the types of the JPA entities whatever the schema and the driver.
+ */
+final class ReactiveRows {
+
+    private ReactiveRows() {
+    }
+
+    static Number number(Readable row, String column) {
+        Number value = row.get(column, Number.class);
+        return value != null ? value : 0;
+    }
+
+    static LocalDate localDate(Readable row, String column) {
+        Object value = row.get(column);
+        if (value instanceof LocalDateTime dateTime) {
+            return dateTime.toLocalDate();
+        }
+        return (LocalDate) value;
+    }
+}
@@ -0,0 +1,38 @@
+package com.openclassrooms.projet3.repository;
+
+import com.openclassrooms.projet3.dtos.UserDTO;
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking reads of the {@code users} table, for the reactive read API.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveUserRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveUserRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<UserDTO> findById(Long id) {
+        return databaseClient.sql("SELECT id, name, email, created_at, updated_at FROM users WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveUserRepository::toDTO)
+                .one();
+    }
+
+    private static UserDTO toDTO(Readable row) {
+        return new UserDTO(
+                ReactiveRows.number(row, "id").longValue(),
+                row.get("name", String.class),
+                row.get("email", String.class),
+                ReactiveRows.localDate(row, "created_at"),
+                ReactiveRows.localDate(row, "updated_at"));
+    }
+}
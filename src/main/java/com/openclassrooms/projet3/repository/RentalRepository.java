@@ -1,9 +1,26 @@
 package com.openclassrooms.projet3.repository;
 
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
 import com.openclassrooms.projet3.model.Rental;
 
+import java.util.List;
+
 public interface RentalRepository extends CrudRepository<Rental, Long>{
-    
+
+    /**
+     * Reads the picture of every rental, once per run of the jobs handling the files uploaded before content
+     * addressing: their URL starts with the host they were uploaded through, so they cannot be looked up by file name
+     * with an index.
+     */
+    @Query("select r.id as id, r.picture as picture from Rental r where r.picture is not null")
+    List<PictureReference> findAllPictures();
+
+    interface PictureReference {
+
+        Long getId();
+
+        String getPicture();
+    }
 }
@@ -0,0 +1,32 @@
+package com.openclassrooms.projet3.service;
+
+public interface CacheChangeFeedService {
+
+    /**
+     * Appends a write to a rental to the change feed, in the transaction of the write, which must be active.
+     */
+    void recordRentalChange(Long rentalId);
+
+    /**
+     * Appends a write to a user to the change feed, in the transaction of the write, which must be active.
+     */
+    void recordUserChange(Long userId);
+
+    /**
+     * Evicts from the second-level cache of this node the entities written by the other nodes since the last call.
+     * <p>
+     * Changes are read in the order of their id. An id missing from the feed may belong to a transaction still
+     * running, so the changes after it are applied but the position of the node, persisted to resume after a
+     * restart, only moves past it once it has been missing for {@code app.cache-changes.gap-timeout}.
+     *
+     * @return the number of changes applied during this call.
+     */
+    int applyChanges();
+
+    /**
+     * Deletes the changes older than {@code app.cache-changes.retention}.
+     *
+     * @return the number of changes deleted.
+     */
+    int pruneChanges();
+}
@@ -41,6 +41,12 @@ public interface DBUserService {
      */
     UserDTO findUserDTOById(Long id);
 
-
+    /**
+     * Deletes a user and, by cascade, the rentals they own, releasing the references these rentals held on their
+     * pictures. Does nothing if no user has this ID.
+     *
+     * @param id The unique identifier of the user to be deleted.
+     */
+    void deleteUser(Long id);
 }
 
@@ -0,0 +1,26 @@
+package com.openclassrooms.projet3.service;
+
+import java.time.Duration;
+
+public interface JobLockService {
+
+    /**
+     * Takes the lease on a job shared by all the nodes using the database, if no other node holds it.
+     * <p>
+     * The lease expires after {@code lease} even if it is not released, so a node that dies while running the job
+     * does not block it forever; the lease must therefore be longer than any run of the job.
+     *
+     * @param name  the name of the job.
+     * @param lease how long the lease is held at most.
+     * @return {@code true} if this node now holds the lease and may run the job.
+     */
+    boolean tryLock(String name, Duration lease);
+
+    /**
+     * Releases the lease on a job taken by this node with {@link #tryLock(String, Duration)}. Does nothing if the
+     * lease expired and was taken by another node since.
+     *
+     * @param name the name of the job.
+     */
+    void unlock(String name);
+}
@@ -0,0 +1,33 @@
+package com.openclassrooms.projet3.service;
+
+import com.openclassrooms.projet3.model.MessageArchiveEntry;
+
+import java.io.IOException;
+import java.util.Optional;
+
+public interface MessageArchiveService {
+
+    /**
+     * Moves the messages older than the configured retention period out of the {@code messages} table.
+     * <p>
+     * Messages are processed in bounded batches, ordered by ID. Each batch is grouped by the month of its
+     * creation date and written to a compressed archive segment on local disk before the corresponding rows
+     * are deleted, so a message is never removed from the database without being archived first.
+     * The number of batches handled per call is capped to keep each run short.
+     *
+     * @return the number of messages archived during this call.
+     * @throws IOException if an archive segment cannot be written. Messages of the failed batch stay in the database.
+     */
+    int archiveExpiredMessages() throws IOException;
+
+    /**
+     * Looks up an archived message by its unique identifier.
+     * <p>
+     * The segment index is loaded lazily on the first lookup; only the segments whose ID range contains the
+     * requested ID are decompressed and scanned.
+     *
+     * @param id the unique identifier of the archived message.
+     * @return an {@link Optional} of {@link MessageArchiveEntry}, empty if the message is not in the archive.
+     */
+    Optional<MessageArchiveEntry> findArchivedMessage(Long id);
+}
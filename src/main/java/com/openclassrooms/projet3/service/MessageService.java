@@ -23,4 +23,22 @@ public interface MessageService {
      * @throws CustomNotFoundException if the rental or user specified in the DTO does not exist.
      */
     void createAndSaveMessage(MessageDTO messageDTO) throws CustomNotFoundException;
+
+    /**
+     * Finds a message by its ID and converts it to a DTO, if the requester may read it.
+     * <p>
+     * The message is first looked up in the {@code messages} table. Messages that were moved out of it by the
+     * archival job are then looked up lazily in the message archive, so callers do not need to know where a
+     * message currently lives.
+     * <p>
+     * A message can only be read by its author and by the owner of its rental; it is not found for anyone else, so
+     * that the existence of a message is not disclosed either.
+     *
+     * @param id             the unique identifier of the message to find.
+     * @param requesterEmail the email of the authenticated user asking for the message.
+     * @return a {@link MessageDTO} representing the found message.
+     * @throws CustomNotFoundException if no message is found with the given ID, neither in the database nor in the
+     *                                 archive, or if the requester is neither its author nor the owner of its rental.
+     */
+    MessageDTO findMessageDTOById(Long id, String requesterEmail) throws CustomNotFoundException;
 }
@@ -0,0 +1,23 @@
+package com.openclassrooms.projet3.service;
+
+import java.io.IOException;
+
+public interface PictureGarbageCollectionService {
+
+    /**
+     * Deletes a bounded number of picture files that are no longer referenced by any rental.
+     * <p>
+     * Two kinds of files are collected, both only once they have been unused for the configured grace period:
+     * - pictures whose reference count dropped to zero, together with their variants and their row;
+     * - orphan files of the uploads directory: content-addressed files without a picture row (e.g. uploads
+     * whose transaction was rolled back), interrupted temporary uploads and legacy files no rental points to.
+     * <p>
+     * Orphan files are found by scanning a few shard directories per call, resuming where the previous call
+     * stopped, so the whole directory is covered over successive calls without any call listing all of it.
+     * Deletions are made in batches separated by a pause, and capped per call, to keep the I/O load low.
+     *
+     * @return the number of pictures deleted during this call.
+     * @throws IOException if the uploads directory cannot be scanned.
+     */
+    int collectGarbage() throws IOException;
+}
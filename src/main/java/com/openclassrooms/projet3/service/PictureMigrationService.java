@@ -0,0 +1,21 @@
+package com.openclassrooms.projet3.service;
+
+import java.io.IOException;
+
+public interface PictureMigrationService {
+
+    /**
+     * Moves the pictures stored directly in the uploads root to the hash-prefix sharded layout.
+     * <p>
+     * Each file is re-hashed and copied to the shard directory of its digest. Files uploaded before content
+     * addressing get their content-addressed name: the rentals pointing to them are updated and their references
+     * recorded in the same transaction, then the old file is deleted. Files that are not supported pictures, or
+     * too large, are left in place. The flat variants are moved to their shard as well.
+     * <p>
+     * The migration can be interrupted and run again: files already migrated are no longer in the root.
+     *
+     * @return the number of pictures migrated.
+     * @throws IOException if a file cannot be read, copied or deleted.
+     */
+    int migrateUploads() throws IOException;
+}
@@ -0,0 +1,31 @@
+package com.openclassrooms.projet3.service;
+
+import com.openclassrooms.projet3.utils.StoredPicture;
+
+public interface PictureService {
+
+    /**
+     * Records a new reference to a stored picture.
+     * <p>
+     * The picture row is created on its first reference, then its reference count is incremented atomically.
+     * This method must run in the same transaction as the rental update that points {@code Rental.picture}
+     * to the picture, so the count never drifts from the actual references.
+     * <p>
+     * Fails with an {@link IllegalStateException}, rolling the transaction back, if the file was removed by the
+     * garbage collector between its upload and this call.
+     *
+     * @param picture the stored picture a rental now references.
+     */
+    void acquire(StoredPicture picture);
+
+    /**
+     * Drops a reference to the picture a rental pointed to.
+     * <p>
+     * URLs that do not point to a content-addressed file, such as pictures uploaded before content addressing
+     * was introduced, are ignored. The file itself is never deleted here; pictures whose count reached zero are
+     * left to {@link PictureGarbageCollectionService}.
+     *
+     * @param pictureUrl the previous value of {@code Rental.picture}, may be {@code null}.
+     */
+    void release(String pictureUrl);
+}
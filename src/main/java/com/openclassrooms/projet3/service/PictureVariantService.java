@@ -0,0 +1,54 @@
+package com.openclassrooms.projet3.service;
+
+import com.openclassrooms.projet3.utils.PictureVariant;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+public interface PictureVariantService {
+
+    /**
+     * Schedules the generation of every variant of a stored picture on the bounded variant executor.
+     * <p>
+     * The picture is decoded once and a JPEG copy is written for each configured width smaller than the original.
+     * The call returns immediately: if the executor queue is full the request is dropped and the variants are
+     * generated lazily on their first request instead. Concurrent requests for the same picture share a single
+     * generation.
+     *
+     * @param filename the content-addressed file name of the stored picture.
+     */
+    void generateVariantsAsync(String filename);
+
+    /**
+     * Selects the variant that best fits a requested display width and the formats the client accepts.
+     * <p>
+     * The smallest variant at least as wide as the requested width is chosen, if the client accepts JPEG.
+     * If the variants of the picture have not been generated yet, their generation is scheduled and an empty
+     * result is returned so that the original is served in the meantime.
+     *
+     * @param filename      the content-addressed file name of the stored picture.
+     * @param width         the requested display width in pixels.
+     * @param acceptedTypes the media types accepted by the client, from the {@code Accept} header.
+     * @return the best variant, or empty if the original should be served.
+     */
+    Optional<PictureVariant> findBestVariant(String filename, int width, List<MediaType> acceptedTypes);
+
+    /**
+     * Deletes every variant of a picture, once the picture itself is no longer stored.
+     *
+     * @param digest the hex-encoded SHA-256 digest of the picture.
+     * @throws IOException if a variant cannot be deleted.
+     */
+    void deleteVariants(String digest) throws IOException;
+
+    /**
+     * Moves the variants written before the sharded layout, directly in the variants directory, to the shard
+     * directory of their picture.
+     *
+     * @return the number of files moved.
+     * @throws IOException if a variant cannot be moved.
+     */
+    int shardFlatVariants() throws IOException;
+}
@@ -2,10 +2,13 @@ package com.openclassrooms.projet3.service;
 
 import com.openclassrooms.projet3.dtos.RentalDTO;
 import com.openclassrooms.projet3.excepton.CustomNotFoundException;
+import com.openclassrooms.projet3.excepton.CustomNotImplementedException;
 import com.openclassrooms.projet3.model.Rental;
+import com.openclassrooms.projet3.utils.PresignedUpload;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
 import java.util.List;
 import java.util.Optional;
 
@@ -57,19 +60,35 @@ public interface RentalService {
      * Creates a new rental with the provided details and saves it to the repository.
      * <p>
      * This method creates a new {@link Rental} entity, populating it with the provided details,
-     * including uploading and storing the picture, if provided, and associating the rental with
+     * including uploading and storing the picture, and associating the rental with
      * an owner identified by their email. The new rental is then saved to the repository.
+     * <p>
+     * The picture is either uploaded with the request, or was uploaded beforehand straight to the picture store
+     * (see {@link #presignPictureUpload(String, String, long)}), in which case only its key is given.
      *
      * @param name        the name of the rental.
      * @param surface     the surface area of the rental in square meters.
      * @param price       the price of the rental per month.
      * @param description a description of the rental.
-     * @param picture     a picture of the rental, which is optional.
+     * @param picture     a picture of the rental, or {@code null} if {@code pictureKey} is given.
+     * @param pictureKey  the key of a picture uploaded to the picture store, used when {@code picture} is {@code null}.
      * @param ownerEmail  the email of the rental's owner.
      * @return the newly created and saved {@link Rental} entity.
      * @throws Exception if the rental creation or saving process fails.
      */
-    Rental createRental(String name, int surface, double price, String description, MultipartFile picture, String ownerEmail) throws Exception;
+    Rental createRental(String name, int surface, double price, String description, MultipartFile picture, String pictureKey, String ownerEmail) throws Exception;
+
+    /**
+     * Authorizes a client to upload a rental picture straight to the picture store, so the picture bytes do not
+     * go through the API. The returned key is then given to {@link #createRental}.
+     *
+     * @param sha256        the hex-encoded SHA-256 digest of the picture, computed by the client.
+     * @param contentType   the content type of the picture.
+     * @param contentLength the exact length of the picture.
+     * @return the URL, method and headers of the upload, and the key of the picture.
+     * @throws CustomNotImplementedException if the configured picture store does not support direct uploads.
+     */
+    PresignedUpload presignPictureUpload(String sha256, String contentType, long contentLength);
 
     /**
      * Updates the details of an existing rental.
@@ -92,7 +111,25 @@ public interface RentalService {
     Rental updateRental(Long id, String name, int surface, double price, String description, MultipartFile picture, String ownerEmail) throws CustomNotFoundException, IOException;
 
     /**
-     * Deletes a rental by its ID.
+     * Replaces the picture of an existing rental with content streamed from the request body.
+     * <p>
+     * The picture is written directly to its final location without being buffered in memory or spooled
+     * to a multipart temporary file first. The method checks that the authenticated user is the owner of
+     * the rental before reading any of the content.
+     *
+     * @param id            the ID of the rental to update.
+     * @param picture       the channel the picture content is read from.
+     * @param contentType   the declared content type of the picture.
+     * @param contentLength the declared content length, or {@code -1} if unknown.
+     * @param ownerEmail    the email of the rental's owner, used to verify ownership.
+     * @return the updated {@link Rental} entity.
+     * @throws CustomNotFoundException if the rental or owner is not found, or if the user is not the owner.
+     * @throws IOException             if an error occurs while storing the picture.
+     */
+    Rental updateRentalPicture(Long id, ReadableByteChannel picture, String contentType, long contentLength, String ownerEmail) throws CustomNotFoundException, IOException;
+
+    /**
+     * Deletes a rental by its ID, releasing the reference it held on its picture. Does nothing if no rental has this ID.
      *
      * @param id the unique identifier of the rental to be deleted.
      */
@@ -103,7 +140,7 @@ public interface RentalService {
      *
      * @param rentalId the ID of the rental to check ownership against.
      * @return true if the authenticated user is the owner of the rental; false otherwise.
-     * @throws RuntimeException if the rental is not found.
+     * @throws CustomNotFoundException if the rental is not found.
      */
     boolean isUserOwnerOfRental(Long rentalId);
 
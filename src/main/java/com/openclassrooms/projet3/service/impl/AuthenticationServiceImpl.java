@@ -9,6 +9,7 @@ import com.openclassrooms.projet3.model.LoginRequest;
 import com.openclassrooms.projet3.model.RegistrationRequest;
 import com.openclassrooms.projet3.repository.DBUserRepository;
 import com.openclassrooms.projet3.service.AuthenticationService;
+import com.openclassrooms.projet3.service.CacheChangeFeedService;
 import com.openclassrooms.projet3.service.JwtService;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -18,6 +19,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collections;
 import java.util.Map;
@@ -29,15 +31,18 @@ public class AuthenticationServiceImpl implements AuthenticationService {
     private final BCryptPasswordEncoder bCryptPasswordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final CacheChangeFeedService cacheChangeFeedService;
 
-    public AuthenticationServiceImpl(DBUserRepository dbUserRepository, BCryptPasswordEncoder bCryptPasswordEncoder, JwtService jwtService, AuthenticationManager authenticationManager) {
+    public AuthenticationServiceImpl(DBUserRepository dbUserRepository, BCryptPasswordEncoder bCryptPasswordEncoder, JwtService jwtService, AuthenticationManager authenticationManager, CacheChangeFeedService cacheChangeFeedService) {
         this.dbUserRepository = dbUserRepository;
         this.bCryptPasswordEncoder = bCryptPasswordEncoder;
         this.jwtService = jwtService;
         this.authenticationManager = authenticationManager;
+        this.cacheChangeFeedService = cacheChangeFeedService;
     }
 
     @Override
+    @Transactional
     public Map<String, String> registerUserAndGenerateToken(RegistrationRequest registrationRequest) {
         if (dbUserRepository.existsByEmail(registrationRequest.getEmail())) {
             throw new CustomAlreadyExistsException("Email already in use.");
@@ -48,6 +53,8 @@ public class AuthenticationServiceImpl implements AuthenticationService {
         newUser.setEmail(registrationRequest.getEmail());
         newUser.setPassword(bCryptPasswordEncoder.encode(registrationRequest.getPassword()));
         dbUserRepository.save(newUser);
+        // the other nodes may have cached that this email is not in use
+        cacheChangeFeedService.recordUserChange(newUser.getId());
 
         // Generate token for the new user
         String token = jwtService.generateTokenForUser(newUser);
@@ -0,0 +1,267 @@
+package com.openclassrooms.projet3.service.impl;
+
+import com.openclassrooms.projet3.model.CacheChange;
+import com.openclassrooms.projet3.model.CacheChangeCursor;
+import com.openclassrooms.projet3.model.DBUser;
+import com.openclassrooms.projet3.model.Rental;
+import com.openclassrooms.projet3.repository.CacheChangeCursorRepository;
+import com.openclassrooms.projet3.repository.CacheChangeRepository;
+import com.openclassrooms.projet3.service.CacheChangeFeedService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Change feed keeping the second-level caches of several nodes sharing a database consistent, without a broker.
+ * <p>
+ * Writes to rentals and users append a {@link CacheChange} row in their transaction, so a change is published if and
+ * only if the write commits. Each node polls the rows written by the other nodes every
+ * {@code app.cache-changes.poll-interval} and evicts the entities they name, and the users by email query results
+ * after a write to a user. The position of the node, the id of the last change applied, is saved under
+ * {@code app.cache-changes.node-id}: a restarted node resumes from it, or evicts its whole cache if the changes it
+ * missed may have been pruned since.
+ */
+@Service
+public class CacheChangeFeedServiceImpl implements CacheChangeFeedService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheChangeFeedServiceImpl.class);
+
+    private static final String USERS_BY_EMAIL_REGION = "users-by-email";
+
+    private final CacheChangeRepository cacheChangeRepository;
+    private final CacheChangeCursorRepository cacheChangeCursorRepository;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final String nodeId;
+    private final int batchSize;
+    private final Duration gapTimeout;
+    private final Duration retention;
+
+    // identifies the writes of this process, whose cache Hibernate already updated
+    private final String origin = UUID.randomUUID().toString();
+
+    // every change up to the cursor has been applied, -1 until the saved position is loaded
+    private long cursor = -1;
+    // changes after the cursor already applied
+    private final NavigableSet<Long> applied = new TreeSet<>();
+    // ids after the cursor missing from the feed -> System.nanoTime() they were first found missing
+    private final Map<Long, Long> gaps = new HashMap<>();
+    private long savedCursor = -1;
+    private LocalDateTime savedAt;
+
+    public CacheChangeFeedServiceImpl(CacheChangeRepository cacheChangeRepository,
+                                      CacheChangeCursorRepository cacheChangeCursorRepository,
+                                      EntityManagerFactory entityManagerFactory,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${app.cache-changes.enabled:true}") boolean enabled,
+                                      @Value("${app.cache-changes.node-id:}") String nodeId,
+                                      @Value("${app.cache-changes.batch-size:500}") int batchSize,
+                                      @Value("${app.cache-changes.gap-timeout:1m}") Duration gapTimeout,
+                                      @Value("${app.cache-changes.retention:24h}") Duration retention) {
+        this.cacheChangeRepository = cacheChangeRepository;
+        this.cacheChangeCursorRepository = cacheChangeCursorRepository;
+        this.entityManagerFactory = entityManagerFactory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.nodeId = nodeId.isBlank() ? hostName() : nodeId;
+        this.batchSize = batchSize;
+        this.gapTimeout = gapTimeout;
+        this.retention = retention;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordRentalChange(Long rentalId) {
+        record(CacheChange.Type.RENTAL, rentalId);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordUserChange(Long userId) {
+        record(CacheChange.Type.USER, userId);
+    }
+
+    /**
+     * Periodic entry point for the feed, driven by {@code app.cache-changes.poll-interval}.
+     */
+    @Scheduled(fixedDelayString = "${app.cache-changes.poll-interval:PT1S}", initialDelayString = "${app.cache-changes.poll-interval:PT1S}")
+    public void scheduledApply() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            applyChanges();
+        } catch (RuntimeException e) {
+            logger.warn("Could not apply the cache change feed", e);
+        }
+    }
+
+    /**
+     * Periodic pruning of the feed, driven by {@code app.cache-changes.prune-interval}.
+     */
+    @Scheduled(fixedDelayString = "${app.cache-changes.prune-interval:PT1H}", initialDelayString = "${app.cache-changes.prune-interval:PT1H}")
+    public void scheduledPrune() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int deleted = pruneChanges();
+            if (deleted > 0) {
+                logger.info("Pruned {} cache changes", deleted);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not prune the cache change feed", e);
+        }
+    }
+
+    // reads and writes go to the primary: a read-only transaction could read a replica behind it
+    @Override
+    public synchronized int applyChanges() {
+        if (!enabled) {
+            return 0;
+        }
+        return transactionTemplate.execute(status -> {
+            Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+            if (cursor < 0) {
+                loadCursor(cache);
+            }
+            int count = 0;
+            boolean usersChanged = false;
+            long from = cursor;
+            List<CacheChange> changes;
+            do {
+                changes = cacheChangeRepository.findByIdGreaterThanOrderByIdAsc(from, PageRequest.of(0, batchSize));
+                for (CacheChange change : changes) {
+                    from = change.getId();
+                    if (!applied.add(change.getId())) {
+                        continue;
+                    }
+                    gaps.remove(change.getId());
+                    if (origin.equals(change.getOrigin())) {
+                        continue;
+                    }
+                    switch (change.getEntity()) {
+                        case RENTAL -> cache.evictEntityData(Rental.class, change.getEntityId());
+                        case USER -> {
+                            cache.evictEntityData(DBUser.class, change.getEntityId());
+                            usersChanged = true;
+                        }
+                    }
+                    count++;
+                }
+            } while (changes.size() == batchSize);
+            if (usersChanged) {
+                cache.evictQueryRegion(USERS_BY_EMAIL_REGION);
+            }
+            advanceCursor();
+            saveCursor();
+            return count;
+        });
+    }
+
+    @Override
+    public int pruneChanges() {
+        if (!enabled) {
+            return 0;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        return transactionTemplate.execute(status -> cacheChangeRepository.deleteCreatedBefore(cutoff));
+    }
+
+    private void record(CacheChange.Type entity, Long id) {
+        if (enabled) {
+            cacheChangeRepository.save(new CacheChange(entity, id, origin));
+        }
+    }
+
+    /**
+     * Resumes from the saved position of the node, unless the changes after it may have been pruned, in which case
+     * the whole cache is evicted; a new node starts at the end of the feed.
+     */
+    private void loadCursor(Cache cache) {
+        long last = cacheChangeRepository.findMaxId();
+        Optional<CacheChangeCursor> saved = cacheChangeCursorRepository.findById(nodeId);
+        if (saved.isEmpty()) {
+            cursor = last;
+        } else if (saved.get().getUpdatedAt().isBefore(LocalDateTime.now().minus(retention))) {
+            logger.info("Cache change feed position of {} is older than the retention, evicting the whole cache", nodeId);
+            cache.evictAllRegions();
+            cursor = last;
+        } else {
+            cursor = Math.min(saved.get().getLastId(), last);
+            logger.info("Resuming the cache change feed of {} at {}, {} changes behind", nodeId, cursor, last - cursor);
+        }
+    }
+
+    /**
+     * Moves the cursor past the changes applied and the ids missing for longer than the gap timeout.
+     */
+    private void advanceCursor() {
+        if (applied.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (long id = cursor + 1; id < applied.last(); id++) {
+            if (!applied.contains(id)) {
+                gaps.putIfAbsent(id, now);
+            }
+        }
+        while (true) {
+            long next = cursor + 1;
+            if (applied.remove(next)) {
+                cursor = next;
+                continue;
+            }
+            Long missingSince = gaps.get(next);
+            if (missingSince == null || now - missingSince < gapTimeout.toNanos()) {
+                return;
+            }
+            gaps.remove(next);
+            cursor = next;
+        }
+    }
+
+    /**
+     * Saves the position when it moved, and at least every half retention period, so that a recent position tells
+     * that the changes after it are still in the feed.
+     */
+    private void saveCursor() {
+        LocalDateTime now = LocalDateTime.now();
+        if (cursor != savedCursor || savedAt.isBefore(now.minus(retention.dividedBy(2)))) {
+            cacheChangeCursorRepository.save(new CacheChangeCursor(nodeId, cursor, now));
+            savedCursor = cursor;
+            savedAt = now;
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+}
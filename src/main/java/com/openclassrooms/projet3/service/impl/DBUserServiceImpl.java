@@ -3,9 +3,13 @@ package com.openclassrooms.projet3.service.impl;
 import com.openclassrooms.projet3.dtos.UserDTO;
 import com.openclassrooms.projet3.excepton.CustomNotFoundException;
 import com.openclassrooms.projet3.model.DBUser;
+import com.openclassrooms.projet3.model.Rental;
 import com.openclassrooms.projet3.repository.DBUserRepository;
+import com.openclassrooms.projet3.service.CacheChangeFeedService;
 import com.openclassrooms.projet3.service.DBUserService;
+import com.openclassrooms.projet3.service.PictureService;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -13,9 +17,14 @@ import java.util.Optional;
 public class DBUserServiceImpl implements DBUserService {
 
     private final DBUserRepository dbUserRepository;
+    private final PictureService pictureService;
+    private final CacheChangeFeedService cacheChangeFeedService;
 
-    public DBUserServiceImpl(DBUserRepository dbUserRepository) {
+    public DBUserServiceImpl(DBUserRepository dbUserRepository, PictureService pictureService,
+                             CacheChangeFeedService cacheChangeFeedService) {
         this.dbUserRepository = dbUserRepository;
+        this.pictureService = pictureService;
+        this.cacheChangeFeedService = cacheChangeFeedService;
     }
 
     @Override
@@ -29,6 +38,7 @@ public class DBUserServiceImpl implements DBUserService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public UserDTO findUserDTOById(Long id) {
         return dbUserRepository.findById(id)
                 .map(user -> new UserDTO(
@@ -39,4 +49,20 @@ public class DBUserServiceImpl implements DBUserService {
                         user.getUpdatedAt()))
                 .orElseThrow(() -> new CustomNotFoundException("User not found"));
     }
+
+    @Override
+    @Transactional
+    public void deleteUser(Long id) {
+        Optional<DBUser> user = dbUserRepository.findById(id);
+        if (user.isEmpty()) {
+            return;
+        }
+        // the rentals are deleted by cascade, their picture references have to go with them
+        for (Rental rental : user.get().getHouses()) {
+            pictureService.release(rental.getPicture());
+            cacheChangeFeedService.recordRentalChange(rental.getId());
+        }
+        dbUserRepository.delete(user.get());
+        cacheChangeFeedService.recordUserChange(id);
+    }
 }
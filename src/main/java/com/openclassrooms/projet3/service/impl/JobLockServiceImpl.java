@@ -0,0 +1,53 @@
+package com.openclassrooms.projet3.service.impl;
+
+import com.openclassrooms.projet3.repository.JobLockRepository;
+import com.openclassrooms.projet3.service.JobLockService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Leases on jobs stored in the {@code job_locks} table, so that a job scheduled on every node runs on one at a time.
+ * Each call commits on its own, the lease is visible to the other nodes as soon as it is taken.
+ */
+@Service
+public class JobLockServiceImpl implements JobLockService {
+
+    private final JobLockRepository jobLockRepository;
+
+    // host name for the operators, and a random part telling apart the processes of one host
+    private final String owner = hostName() + "/" + UUID.randomUUID();
+
+    public JobLockServiceImpl(JobLockRepository jobLockRepository) {
+        this.jobLockRepository = jobLockRepository;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean tryLock(String name, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        // a new lease is created expired, then taken like any other
+        jobLockRepository.insertIfAbsent(name, now);
+        return jobLockRepository.acquire(name, owner, now, now.plus(lease)) == 1;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void unlock(String name) {
+        jobLockRepository.release(name, owner, LocalDateTime.now());
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.openclassrooms.projet3.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.projet3.model.MessageArchiveEntry;
+import com.openclassrooms.projet3.repository.MessageRepository;
+import com.openclassrooms.projet3.service.JobLockService;
+import com.openclassrooms.projet3.service.MessageArchiveService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archives old messages into monthly directories of gzip-compressed JSON-lines segments.
+ * <p>
+ * Layout: {@code <location>/<yyyy-MM>/<firstId>-<lastId>.jsonl.gz}. The ID range in the file name is what the
+ * lazy lookup uses to find candidate segments, so no separate index has to be kept in sync with the files.
+ * <p>
+ * With several nodes, the location must be storage shared by all of them, such as a network mount: the archival is
+ * scheduled on every node but runs on one at a time, the one holding the {@code messages-archive} job lock, and the
+ * segments it writes are read by all. A node lists the segments again when asked for an id above the ones it knows,
+ * at most every {@code app.messages.archive.reload-interval}, since the other nodes only ever add segments of higher ids.
+ * <p>
+ * The archival only runs with {@code app.messages.archive.enabled=true}: it moves messages out of the database.
+ */
+@Service
+public class MessageArchiveServiceImpl implements MessageArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageArchiveServiceImpl.class);
+
+    private static final String SEGMENT_SUFFIX = ".jsonl.gz";
+
+    private static final String LOCK_NAME = "messages-archive";
+
+    private final MessageRepository messageRepository;
+    private final ObjectMapper objectMapper;
+    private final JobLockService jobLockService;
+    private final boolean enabled;
+    private final int retentionDays;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Path archiveDir;
+    private final Duration lockLease;
+    private final Duration reloadInterval;
+
+    // not a monitor: the segments are listed from disk while it is held, which would pin a virtual thread
+    private final ReentrantLock segmentsLock = new ReentrantLock();
+    private volatile List<ArchiveSegment> segments;
+    // System.nanoTime() the segments were last listed from disk
+    private volatile long segmentsLoadedAt;
+
+    public MessageArchiveServiceImpl(MessageRepository messageRepository,
+                                     ObjectMapper objectMapper,
+                                     JobLockService jobLockService,
+                                     @Value("${app.messages.archive.enabled:false}") boolean enabled,
+                                     @Value("${app.messages.archive.retention-days:365}") int retentionDays,
+                                     @Value("${app.messages.archive.batch-size:500}") int batchSize,
+                                     @Value("${app.messages.archive.max-batches-per-run:20}") int maxBatchesPerRun,
+                                     @Value("${app.messages.archive.location:archive/messages}") String location,
+                                     @Value("${app.messages.archive.lock-lease:1h}") Duration lockLease,
+                                     @Value("${app.messages.archive.reload-interval:5s}") Duration reloadInterval) {
+        this.messageRepository = messageRepository;
+        this.objectMapper = objectMapper;
+        this.jobLockService = jobLockService;
+        this.enabled = enabled;
+        this.retentionDays = retentionDays;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.archiveDir = Paths.get(location);
+        this.lockLease = lockLease;
+        this.reloadInterval = reloadInterval;
+    }
+
+    /**
+     * Periodic entry point for the archival, driven by {@code app.messages.archive.cron}.
+     */
+    @Scheduled(cron = "${app.messages.archive.cron:0 30 3 * * *}")
+    public void scheduledArchive() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int archived = archiveExpiredMessages();
+            if (archived > 0) {
+                logger.info("Archived {} messages older than {} days", archived, retentionDays);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Message archival failed", e);
+        }
+    }
+
+    @Override
+    public int archiveExpiredMessages() throws IOException {
+        // also keeps a run from overlapping the previous one on this node
+        if (!jobLockService.tryLock(LOCK_NAME, lockLease)) {
+            return 0;
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+            int archived = 0;
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                List<MessageArchiveEntry> entries = messageRepository.findArchivableMessages(cutoff, PageRequest.of(0, batchSize));
+                if (entries.isEmpty()) {
+                    break;
+                }
+                writeSegments(entries);
+                messageRepository.deleteByIdIn(entries.stream().map(MessageArchiveEntry::getId).toList());
+                archived += entries.size();
+                if (entries.size() < batchSize) {
+                    break;
+                }
+            }
+            return archived;
+        } finally {
+            jobLockService.unlock(LOCK_NAME);
+        }
+    }
+
+    @Override
+    public Optional<MessageArchiveEntry> findArchivedMessage(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        try {
+            List<ArchiveSegment> known = segments();
+            Optional<MessageArchiveEntry> entry = findInSegments(known, id);
+            if (entry.isEmpty() && isAbove(known, id) && reloadDue()) {
+                entry = findInSegments(reloadSegments(), id);
+            }
+            return entry;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the message archive", e);
+        }
+    }
+
+    private Optional<MessageArchiveEntry> findInSegments(List<ArchiveSegment> known, long id) throws IOException {
+        for (ArchiveSegment segment : known) {
+            if (segment.contains(id)) {
+                Optional<MessageArchiveEntry> entry = readFromSegment(segment.path(), id);
+                if (entry.isPresent()) {
+                    return entry;
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static boolean isAbove(List<ArchiveSegment> known, long id) {
+        return known.stream().allMatch(segment -> segment.lastId() < id);
+    }
+
+    private boolean reloadDue() {
+        return System.nanoTime() - segmentsLoadedAt >= reloadInterval.toNanos();
+    }
+
+    /**
+     * Writes one segment per creation month found in the batch. Each segment is first written to a temporary
+     * file and then atomically renamed, so a crash never leaves a truncated segment behind.
+     */
+    private void writeSegments(List<MessageArchiveEntry> entries) throws IOException {
+        Map<YearMonth, List<MessageArchiveEntry>> byMonth = new TreeMap<>();
+        for (MessageArchiveEntry entry : entries) {
+            byMonth.computeIfAbsent(YearMonth.from(entry.getCreatedAt()), month -> new ArrayList<>()).add(entry);
+        }
+
+        List<ArchiveSegment> written = new ArrayList<>(byMonth.size());
+        for (Map.Entry<YearMonth, List<MessageArchiveEntry>> month : byMonth.entrySet()) {
+            List<MessageArchiveEntry> monthEntries = month.getValue();
+            long firstId = monthEntries.get(0).getId();
+            long lastId = monthEntries.get(monthEntries.size() - 1).getId();
+
+            Path monthDir = Files.createDirectories(archiveDir.resolve(month.getKey().toString()));
+            Path target = monthDir.resolve(firstId + "-" + lastId + SEGMENT_SUFFIX);
+            Path tmp = Files.createTempFile(monthDir, "segment", ".tmp");
+            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8))) {
+                for (MessageArchiveEntry entry : monthEntries) {
+                    writer.write(objectMapper.writeValueAsString(entry));
+                    writer.newLine();
+                }
+            } catch (IOException e) {
+                Files.deleteIfExists(tmp);
+                throw e;
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            written.add(new ArchiveSegment(firstId, lastId, target));
+        }
+
+        segmentsLock.lock();
+        try {
+            if (segments != null) {
+                List<ArchiveSegment> updated = new ArrayList<>(segments);
+                updated.addAll(written);
+                updated.sort(Comparator.comparingLong(ArchiveSegment::firstId));
+                segments = List.copyOf(updated);
+            }
+        } finally {
+            segmentsLock.unlock();
+        }
+    }
+
+    private List<ArchiveSegment> segments() throws IOException {
+        List<ArchiveSegment> loaded = segments;
+        if (loaded == null) {
+            segmentsLock.lock();
+            try {
+                loaded = segments;
+                if (loaded == null) {
+                    loaded = loadSegments();
+                    segments = loaded;
+                    segmentsLoadedAt = System.nanoTime();
+                }
+            } finally {
+                segmentsLock.unlock();
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Lists the segments from disk again, to find the ones written by the other nodes.
+     */
+    private List<ArchiveSegment> reloadSegments() throws IOException {
+        segmentsLock.lock();
+        try {
+            // another thread may have reloaded them while this one waited
+            if (reloadDue()) {
+                segments = loadSegments();
+                segmentsLoadedAt = System.nanoTime();
+            }
+            return segments;
+        } finally {
+            segmentsLock.unlock();
+        }
+    }
+
+    private List<ArchiveSegment> loadSegments() throws IOException {
+        if (!Files.isDirectory(archiveDir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.walk(archiveDir, 2)) {
+            return files.map(ArchiveSegment::parse)
+                    .flatMap(Optional::stream)
+                    .sorted(Comparator.comparingLong(ArchiveSegment::firstId))
+                    .toList();
+        }
+    }
+
+    private Optional<MessageArchiveEntry> readFromSegment(Path segment, long id) throws IOException {
+        // Lines start with the id because of @JsonPropertyOrder, so only the matching line gets parsed.
+        String prefix = "{\"id\":" + id + ",";
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(segment)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(prefix)) {
+                    return Optional.of(objectMapper.readValue(line, MessageArchiveEntry.class));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private record ArchiveSegment(long firstId, long lastId, Path path) {
+
+        boolean contains(long id) {
+            return firstId <= id && id <= lastId;
+        }
+
+        static Optional<ArchiveSegment> parse(Path path) {
+            String name = path.getFileName().toString();
+            if (!name.endsWith(SEGMENT_SUFFIX)) {
+                return Optional.empty();
+            }
+            String[] range = name.substring(0, name.length() - SEGMENT_SUFFIX.length()).split("-");
+            if (range.length != 2) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(new ArchiveSegment(Long.parseLong(range[0]), Long.parseLong(range[1]), path));
+            } catch (NumberFormatException e) {
+                return Optional.empty();
+            }
+        }
+    }
+}
@@ -4,27 +4,35 @@ import com.openclassrooms.projet3.dtos.MessageDTO;
 import com.openclassrooms.projet3.excepton.CustomNotFoundException;
 import com.openclassrooms.projet3.model.DBUser;
 import com.openclassrooms.projet3.model.Message;
+import com.openclassrooms.projet3.model.MessageArchiveEntry;
 import com.openclassrooms.projet3.model.Rental;
 import com.openclassrooms.projet3.repository.MessageRepository;
 import com.openclassrooms.projet3.service.DBUserService;
+import com.openclassrooms.projet3.service.MessageArchiveService;
 import com.openclassrooms.projet3.service.MessageService;
 import com.openclassrooms.projet3.service.RentalService;
+import com.openclassrooms.projet3.utils.ServerTiming;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service
+@Timed(value = "messages.service", description = "Message service operations")
 public class MessageServiceImpl implements MessageService {
     private final MessageRepository messageRepository;
     private final RentalService rentalService;
     private final DBUserService dbUserService;
+    private final MessageArchiveService messageArchiveService;
 
     @Autowired
     public MessageServiceImpl(MessageRepository messageRepository,
                               RentalService rentalService,
-                              DBUserService dbUserService) {
+                              DBUserService dbUserService,
+                              MessageArchiveService messageArchiveService) {
         this.messageRepository = messageRepository;
         this.rentalService = rentalService;
         this.dbUserService = dbUserService;
+        this.messageArchiveService = messageArchiveService;
     }
 
     @Override
@@ -49,5 +57,50 @@ public class MessageServiceImpl implements MessageService {
         saveMessage(message);
     }
 
+    @Override
+    public MessageDTO findMessageDTOById(Long id, String requesterEmail) throws CustomNotFoundException {
+        return messageRepository.findById(id)
+                .map(this::convertToDTO)
+                .or(() -> messageArchiveService.findArchivedMessage(id).map(this::convertToDTO))
+                .filter(message -> canRead(message, requesterEmail))
+                .orElseThrow(() -> new CustomNotFoundException("Message not found"));
+    }
+
+    /**
+     * A message is readable by its author and by the owner of its rental.
+     */
+    private boolean canRead(MessageDTO message, String requesterEmail) {
+        Long requesterId = dbUserService.find(requesterEmail).map(DBUser::getId).orElse(null);
+        if (requesterId == null) {
+            return false;
+        }
+        if (requesterId.equals(message.getUser_id())) {
+            return true;
+        }
+        // the id of the owner comes with the rental, the owner itself is not loaded
+        return rentalService.findRentalById(message.getRental_id())
+                .map(rental -> requesterId.equals(rental.getOwner().getId()))
+                .orElse(false);
+    }
+
+    private MessageDTO convertToDTO(Message message) {
+        long mapping = ServerTiming.begin(ServerTiming.Metric.MAPPING);
+        MessageDTO dto = new MessageDTO();
+        dto.setRental_id(message.getRental().getId());
+        dto.setUser_id(message.getUser().getId());
+        dto.setMessage(message.getMessage());
+        ServerTiming.end(ServerTiming.Metric.MAPPING, mapping);
+        return dto;
+    }
+
+    private MessageDTO convertToDTO(MessageArchiveEntry entry) {
+        long mapping = ServerTiming.begin(ServerTiming.Metric.MAPPING);
+        MessageDTO dto = new MessageDTO();
+        dto.setRental_id(entry.getRentalId());
+        dto.setUser_id(entry.getUserId());
+        dto.setMessage(entry.getMessage());
+        ServerTiming.end(ServerTiming.Metric.MAPPING, mapping);
+        return dto;
+    }
 
 }
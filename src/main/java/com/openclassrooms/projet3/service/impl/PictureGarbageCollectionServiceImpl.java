@@ -0,0 +1,279 @@
+package com.openclassrooms.projet3.service.impl;
+
+import com.openclassrooms.projet3.model.PictureBlob;
+import com.openclassrooms.projet3.repository.PictureBlobRepository;
+import com.openclassrooms.projet3.repository.RentalRepository;
+import com.openclassrooms.projet3.service.PictureGarbageCollectionService;
+import com.openclassrooms.projet3.service.PictureVariantService;
+import com.openclassrooms.projet3.utils.ImageUtils;
+import com.openclassrooms.projet3.utils.PictureShards;
+import com.openclassrooms.projet3.utils.PictureStore;
+import com.openclassrooms.projet3.utils.StoredObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Incremental, throttled collection of the picture files no rental references anymore.
+ * <p>
+ * Unreferenced pictures are found through their row. Orphan files, which have no row, are found by listing the
+ * top-level shards of the picture store in turn, {@code app.uploads.gc.shards-per-run} of them per run; the root
+ * of the store and the local temporary files are scanned once per full sweep.
+ * <p>
+ * Disabled unless {@code app.uploads.gc.enabled=true}: the files of an older flat uploads directory have no row
+ * either, so they have to be moved by the uploads migration ({@code app.uploads.migration.enabled}) before the
+ * collection is enabled, or they are deleted as orphans.
+ */
+@Service
+public class PictureGarbageCollectionServiceImpl implements PictureGarbageCollectionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PictureGarbageCollectionServiceImpl.class);
+
+    private static final int TOP_LEVEL_SHARDS = 256;
+
+    private final PictureBlobRepository pictureBlobRepository;
+    private final RentalRepository rentalRepository;
+    private final ImageUtils imageUtils;
+    private final PictureStore pictureStore;
+    private final PictureVariantService pictureVariantService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration gracePeriod;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration batchPause;
+    private final int shardsPerRun;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    public PictureGarbageCollectionServiceImpl(PictureBlobRepository pictureBlobRepository,
+                                               RentalRepository rentalRepository,
+                                               ImageUtils imageUtils,
+                                               PictureStore pictureStore,
+                                               PictureVariantService pictureVariantService,
+                                               PlatformTransactionManager transactionManager,
+                                               @Value("${app.uploads.gc.enabled:false}") boolean enabled,
+                                               @Value("${app.uploads.gc.grace-period:24h}") Duration gracePeriod,
+                                               @Value("${app.uploads.gc.batch-size:100}") int batchSize,
+                                               @Value("${app.uploads.gc.max-batches-per-run:10}") int maxBatchesPerRun,
+                                               @Value("${app.uploads.gc.batch-pause:500ms}") Duration batchPause,
+                                               @Value("${app.uploads.gc.shards-per-run:16}") int shardsPerRun) {
+        this.pictureBlobRepository = pictureBlobRepository;
+        this.rentalRepository = rentalRepository;
+        this.imageUtils = imageUtils;
+        this.pictureStore = pictureStore;
+        this.pictureVariantService = pictureVariantService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.gracePeriod = gracePeriod;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.batchPause = batchPause;
+        this.shardsPerRun = shardsPerRun;
+    }
+
+    /**
+     * Periodic entry point for the collection, driven by {@code app.uploads.gc.interval}.
+     */
+    @Scheduled(fixedDelayString = "${app.uploads.gc.interval:PT10M}", initialDelayString = "${app.uploads.gc.interval:PT10M}")
+    public void scheduledCollect() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int deleted = collectGarbage();
+            if (deleted > 0) {
+                logger.info("Deleted {} unreferenced pictures", deleted);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Picture garbage collection failed", e);
+        }
+    }
+
+    @Override
+    public int collectGarbage() throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            Instant cutoff = Instant.now().minus(gracePeriod);
+            Deletions deletions = new Deletions();
+            collectUnreferenced(LocalDateTime.now().minus(gracePeriod), deletions);
+            collectOrphans(cutoff, deletions);
+            return deletions.count;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void collectUnreferenced(LocalDateTime cutoff, Deletions deletions) throws IOException {
+        for (int batch = 0; batch < maxBatchesPerRun && !deletions.exhausted(); batch++) {
+            List<PictureBlob> blobs = pictureBlobRepository.findUnreferencedSince(cutoff, PageRequest.of(0, batchSize));
+            for (PictureBlob blob : blobs) {
+                if (deletions.exhausted()) {
+                    return;
+                }
+                if (deleteUnreferenced(blob, cutoff)) {
+                    deletions.add();
+                }
+            }
+            if (blobs.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Deletes the row and then the files in the same transaction: the row lock makes a concurrent upload of the
+     * same picture wait for the commit, after which it finds the file gone and fails instead of referencing it.
+     */
+    private boolean deleteUnreferenced(PictureBlob blob, LocalDateTime cutoff) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (pictureBlobRepository.deleteIfUnreferenced(blob.getDigest(), cutoff) == 0) {
+                // referenced again since it was selected
+                return false;
+            }
+            try {
+                deleteFiles(blob.getDigest(), blob.getFilename());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }));
+    }
+
+    private void collectOrphans(Instant cutoff, Deletions deletions) throws IOException {
+        for (int i = 0; i < shardsPerRun && !deletions.exhausted(); i++) {
+            int shard = nextShard.getAndUpdate(current -> (current + 1) % TOP_LEVEL_SHARDS);
+            if (shard == 0) {
+                collectTemporaryFiles(cutoff, deletions);
+                collectLegacyFiles(cutoff, deletions);
+            }
+            try (Stream<StoredObject> objects = pictureStore.list(String.format("%02x/", shard), true)) {
+                for (StoredObject object : (Iterable<StoredObject>) objects::iterator) {
+                    if (deletions.exhausted()) {
+                        // resume this shard on the next run
+                        nextShard.set(shard);
+                        return;
+                    }
+                    String filename = object.key().substring(object.key().lastIndexOf('/') + 1);
+                    String digest = imageUtils.digestOf(filename);
+                    if (digest != null && object.lastModified().isBefore(cutoff) && !pictureBlobRepository.existsById(digest)) {
+                        deleteFiles(digest, filename);
+                        deletions.add();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the temporary files left on the local disk by interrupted uploads.
+     */
+    private void collectTemporaryFiles(Instant cutoff, Deletions deletions) throws IOException {
+        Path uploadsDir = imageUtils.getUploadsDirectory();
+        if (!Files.isDirectory(uploadsDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(uploadsDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (deletions.exhausted()) {
+                    return;
+                }
+                if (imageUtils.isTemporaryFile(file.getFileName().toString())
+                        && Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(file);
+                    deletions.add();
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the pictures uploaded before content addressing, at the root of the store, that no rental uses.
+     */
+    private void collectLegacyFiles(Instant cutoff, Deletions deletions) throws IOException {
+        Set<String> referenced = null;
+        try (Stream<StoredObject> objects = pictureStore.list("", false)) {
+            for (StoredObject object : (Iterable<StoredObject>) objects::iterator) {
+                if (deletions.exhausted()) {
+                    return;
+                }
+                String name = object.key();
+                // content-addressed files not migrated to their shard yet are left to the migration
+                if (object.lastModified().isBefore(cutoff) && !imageUtils.isTemporaryFile(name)
+                        && imageUtils.digestOf(name) == null) {
+                    if (referenced == null) {
+                        referenced = referencedFilenames();
+                    }
+                    if (!referenced.contains(name)) {
+                        pictureStore.delete(name);
+                        deletions.add();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * File names of the pictures of all the rentals, read once per run and only if legacy files are left.
+     */
+    private Set<String> referencedFilenames() {
+        Set<String> filenames = new HashSet<>();
+        for (RentalRepository.PictureReference reference : rentalRepository.findAllPictures()) {
+            String url = reference.getPicture();
+            filenames.add(url.substring(url.lastIndexOf('/') + 1));
+        }
+        return filenames;
+    }
+
+    private void deleteFiles(String digest, String filename) throws IOException {
+        pictureStore.delete(PictureShards.key(digest, filename));
+        pictureVariantService.deleteVariants(digest);
+    }
+
+    /**
+     * Counts the deletions of a run, pausing after each batch and stopping once the run's budget is spent.
+     */
+    private final class Deletions {
+
+        private int count;
+
+        boolean exhausted() {
+            return count >= batchSize * maxBatchesPerRun;
+        }
+
+        void add() throws InterruptedIOException {
+            count++;
+            if (count % batchSize == 0 && !batchPause.isZero()) {
+                try {
+                    Thread.sleep(batchPause.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while collecting pictures");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.openclassrooms.projet3.service.impl;
+
+import com.openclassrooms.projet3.excepton.CustomPayloadTooLargeException;
+import com.openclassrooms.projet3.excepton.CustomUnsupportedMediaTypeException;
+import com.openclassrooms.projet3.model.Rental;
+import com.openclassrooms.projet3.repository.RentalRepository;
+import com.openclassrooms.projet3.service.CacheChangeFeedService;
+import com.openclassrooms.projet3.service.PictureMigrationService;
+import com.openclassrooms.projet3.service.PictureService;
+import com.openclassrooms.projet3.service.PictureVariantService;
+import com.openclassrooms.projet3.utils.ImageUtils;
+import com.openclassrooms.projet3.utils.StoredPicture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+@Service
+public class PictureMigrationServiceImpl implements PictureMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PictureMigrationServiceImpl.class);
+
+    private final ImageUtils imageUtils;
+    private final RentalRepository rentalRepository;
+    private final PictureService pictureService;
+    private final PictureVariantService pictureVariantService;
+    private final CacheChangeFeedService cacheChangeFeedService;
+    private final TransactionTemplate transactionTemplate;
+
+    public PictureMigrationServiceImpl(ImageUtils imageUtils,
+                                       RentalRepository rentalRepository,
+                                       PictureService pictureService,
+                                       PictureVariantService pictureVariantService,
+                                       CacheChangeFeedService cacheChangeFeedService,
+                                       PlatformTransactionManager transactionManager) {
+        this.imageUtils = imageUtils;
+        this.rentalRepository = rentalRepository;
+        this.pictureService = pictureService;
+        this.pictureVariantService = pictureVariantService;
+        this.cacheChangeFeedService = cacheChangeFeedService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public int migrateUploads() throws IOException {
+        Path root = imageUtils.getUploadsDirectory();
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+        Map<String, List<Long>> rentalsByFilename = rentalsByFilename();
+        int migrated = 0;
+        try (Stream<Path> files = Files.list(root)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                if (imageUtils.isTemporaryFile(file.getFileName().toString())) {
+                    continue;
+                }
+                try {
+                    migrate(file, rentalsByFilename);
+                    migrated++;
+                } catch (CustomUnsupportedMediaTypeException | CustomPayloadTooLargeException e) {
+                    logger.warn("Leaving {} in the uploads root: {}", file.getFileName(), e.getMessage());
+                }
+            }
+        }
+        int variants = pictureVariantService.shardFlatVariants();
+        logger.info("Migrated {} pictures and {} variants to the sharded uploads layout", migrated, variants);
+        return migrated;
+    }
+
+    /**
+     * Ids of the rentals by the file name of their picture, read once for the whole migration.
+     */
+    private Map<String, List<Long>> rentalsByFilename() {
+        Map<String, List<Long>> rentals = new HashMap<>();
+        for (RentalRepository.PictureReference reference : rentalRepository.findAllPictures()) {
+            String url = reference.getPicture();
+            int uploads = url.lastIndexOf("/uploads/");
+            if (uploads >= 0) {
+                String filename = url.substring(uploads + "/uploads/".length());
+                rentals.computeIfAbsent(filename, name -> new ArrayList<>()).add(reference.getId());
+            }
+        }
+        return rentals;
+    }
+
+    private void migrate(Path file, Map<String, List<Long>> rentalsByFilename) throws IOException {
+        String name = file.getFileName().toString();
+        StoredPicture stored = imageUtils.importPicture(file);
+        List<Long> rentalIds = rentalsByFilename.getOrDefault(name, List.of());
+        if (!name.equals(stored.filename()) && !rentalIds.isEmpty()) {
+            // the old file is only deleted once no rental points to it anymore
+            transactionTemplate.executeWithoutResult(status -> repointRentals(name, stored, rentalIds));
+        }
+        Files.delete(file);
+    }
+
+    private void repointRentals(String legacyName, StoredPicture stored, List<Long> rentalIds) {
+        List<Rental> rentals = new ArrayList<>();
+        rentalRepository.findAllById(rentalIds).forEach(rentals::add);
+        for (Rental rental : rentals) {
+            String url = rental.getPicture();
+            pictureService.acquire(stored);
+            rental.setPicture(url.substring(0, url.length() - legacyName.length()) + stored.filename());
+            cacheChangeFeedService.recordRentalChange(rental.getId());
+        }
+        rentalRepository.saveAll(rentals);
+    }
+}
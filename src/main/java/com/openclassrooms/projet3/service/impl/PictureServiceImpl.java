@@ -0,0 +1,72 @@
+package com.openclassrooms.projet3.service.impl;
+
+import com.openclassrooms.projet3.repository.PictureBlobRepository;
+import com.openclassrooms.projet3.service.PictureService;
+import com.openclassrooms.projet3.service.PictureVariantService;
+import com.openclassrooms.projet3.utils.ImageUtils;
+import com.openclassrooms.projet3.utils.PictureStore;
+import com.openclassrooms.projet3.utils.StoredPicture;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+
+@Service
+public class PictureServiceImpl implements PictureService {
+
+    private final PictureBlobRepository pictureBlobRepository;
+    private final ImageUtils imageUtils;
+    private final PictureVariantService pictureVariantService;
+    private final PictureStore pictureStore;
+
+    public PictureServiceImpl(PictureBlobRepository pictureBlobRepository, ImageUtils imageUtils,
+                              PictureVariantService pictureVariantService, PictureStore pictureStore) {
+        this.pictureBlobRepository = pictureBlobRepository;
+        this.imageUtils = imageUtils;
+        this.pictureVariantService = pictureVariantService;
+        this.pictureStore = pictureStore;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void acquire(StoredPicture picture) {
+        LocalDateTime now = LocalDateTime.now();
+        pictureBlobRepository.insertIfAbsent(picture.sha256(), picture.filename(), picture.contentType(), picture.size(), now);
+        pictureBlobRepository.incrementRefCount(picture.sha256(), now);
+        // The row is now locked by this transaction: the collector can no longer delete the file, but it may have
+        // done so between the upload and this point if the picture had been unreferenced for the whole grace period.
+        if (!isStored(picture)) {
+            throw new IllegalStateException("Picture " + picture.filename() + " was collected during the upload, please upload it again");
+        }
+
+        // variants are only worth generating once the rental pointing to the picture is committed
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pictureVariantService.generateVariantsAsync(picture.filename());
+            }
+        });
+    }
+
+    private boolean isStored(StoredPicture picture) {
+        try {
+            return pictureStore.stat(imageUtils.pictureKey(picture.filename())).isPresent();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(String pictureUrl) {
+        String digest = imageUtils.digestOf(pictureUrl);
+        if (digest != null) {
+            pictureBlobRepository.decrementRefCount(digest, LocalDateTime.now());
+        }
+    }
+}
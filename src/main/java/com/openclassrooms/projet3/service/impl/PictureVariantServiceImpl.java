@@ -0,0 +1,313 @@
+package com.openclassrooms.projet3.service.impl;
+
+import com.openclassrooms.projet3.service.PictureVariantService;
+import com.openclassrooms.projet3.utils.ImageUtils;
+import com.openclassrooms.projet3.utils.PictureFormat;
+import com.openclassrooms.projet3.utils.PictureShards;
+import com.openclassrooms.projet3.utils.PictureStore;
+import com.openclassrooms.projet3.utils.PictureVariant;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Generates and selects resized variants of content-addressed pictures.
+ * <p>
+ * Variants are stored as {@code <location>/ab/cd/<sha256>_<width>.jpg}, in the same hash-prefix shards as
+ * the originals. They are JPEG only: the JDK has no WebP encoder. A {@code <sha256>.done} marker is written
+ * once all variants of a picture exist, which tells lazy backfill apart from pictures too small to need
+ * variants.
+ * <p>
+ * Variants always live on the local disk of each node, whatever the picture store: they are derived data,
+ * regenerated on demand from the original.
+ */
+@Service
+public class PictureVariantServiceImpl implements PictureVariantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PictureVariantServiceImpl.class);
+
+    private static final String JPEG_EXTENSION = "jpg";
+    private static final String DONE_SUFFIX = ".done";
+
+    private final ImageUtils imageUtils;
+    private final PictureStore pictureStore;
+    private final int[] widths;
+    private final float quality;
+    private final Path variantsDir;
+    private final ThreadPoolTaskExecutor executor;
+
+    /**
+     * Digests of the pictures whose variants are being generated, so the same work is never queued twice.
+     */
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    public PictureVariantServiceImpl(ImageUtils imageUtils,
+                                     PictureStore pictureStore,
+                                     @Value("${app.pictures.variants.widths:320,640,1280}") int[] widths,
+                                     @Value("${app.pictures.variants.quality:0.8}") float quality,
+                                     @Value("${app.pictures.variants.location:uploads/variants}") String location,
+                                     @Value("${app.pictures.variants.threads:2}") int threads,
+                                     @Value("${app.pictures.variants.queue-capacity:100}") int queueCapacity,
+                                     @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.imageUtils = imageUtils;
+        this.pictureStore = pictureStore;
+        this.widths = Arrays.stream(widths).sorted().distinct().toArray();
+        this.quality = quality;
+        this.variantsDir = Paths.get(location);
+
+        // Resizing is CPU and memory heavy: it runs on a small pool with a bounded queue, away from the request
+        // threads. Tasks submitted while the queue is full are rejected instead of piling up. In virtual threads
+        // mode the workers are virtual threads too, still bounded by the pool size: resizing is CPU bound, so more
+        // of them would only compete with request handling for the carrier threads.
+        this.executor = new ThreadPoolTaskExecutor();
+        if (virtualThreads) {
+            this.executor.setThreadFactory(Thread.ofVirtual().name("picture-variant-", 1).factory());
+        }
+        this.executor.setCorePoolSize(threads);
+        this.executor.setMaxPoolSize(threads);
+        this.executor.setQueueCapacity(queueCapacity);
+        this.executor.setThreadNamePrefix("picture-variant-");
+        this.executor.initialize();
+
+        // decoded images are kept in memory, the ImageIO disk cache only adds temporary files
+        ImageIO.setUseCache(false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public void generateVariantsAsync(String filename) {
+        String digest = imageUtils.digestOf(filename);
+        if (digest == null || !supportsVariants(filename) || Files.exists(doneMarker(digest))) {
+            return;
+        }
+        if (!inFlight.add(digest)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generateVariants(filename, digest);
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Could not generate the variants of picture {}", filename, e);
+                } finally {
+                    inFlight.remove(digest);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            // queue full: the variants will be requested again on the next read of the picture
+            inFlight.remove(digest);
+        }
+    }
+
+    @Override
+    public Optional<PictureVariant> findBestVariant(String filename, int width, List<MediaType> acceptedTypes) {
+        String digest = imageUtils.digestOf(filename);
+        if (digest == null || !supportsVariants(filename)) {
+            return Optional.empty();
+        }
+        if (!Files.exists(doneMarker(digest))) {
+            generateVariantsAsync(filename);
+            return Optional.empty();
+        }
+        if (!acceptsJpeg(acceptedTypes)) {
+            return Optional.empty();
+        }
+
+        for (int candidate : widths) {
+            if (candidate < width) {
+                continue;
+            }
+            Path variant = variantPath(digest, candidate, JPEG_EXTENSION);
+            if (Files.exists(variant)) {
+                return Optional.of(new PictureVariant(variant, candidate, PictureFormat.JPEG.getContentType()));
+            }
+        }
+        // the requested width is larger than every variant, or the original is already small enough
+        return Optional.empty();
+    }
+
+    @Override
+    public void deleteVariants(String digest) throws IOException {
+        Path directory = PictureShards.directory(variantsDir, digest);
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        // the marker goes first, so a concurrent read never trusts a half-deleted set of variants
+        Files.deleteIfExists(doneMarker(digest));
+        try (DirectoryStream<Path> variants = Files.newDirectoryStream(directory, digest + "_*")) {
+            for (Path variant : variants) {
+                Files.deleteIfExists(variant);
+            }
+        }
+    }
+
+    @Override
+    public int shardFlatVariants() throws IOException {
+        if (!Files.isDirectory(variantsDir)) {
+            return 0;
+        }
+        int moved = 0;
+        try (Stream<Path> files = Files.list(variantsDir)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                String name = file.getFileName().toString();
+                String digest = imageUtils.digestOf(name.contains("_") ? name.substring(0, name.indexOf('_')) : name);
+                if (digest == null) {
+                    continue;
+                }
+                Path directory = Files.createDirectories(PictureShards.directory(variantsDir, digest));
+                Files.move(file, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    private void generateVariants(String filename, String digest) throws IOException {
+        Files.createDirectories(PictureShards.directory(variantsDir, digest));
+
+        // variants are a local cache of each node, the original may come from a remote store
+        try (InputStream source = pictureStore.open(imageUtils.pictureKey(filename));
+             ImageInputStream in = ImageIO.createImageInputStream(source)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("No image reader for " + filename);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int[] targets = Arrays.stream(widths).filter(candidate -> candidate < sourceWidth).toArray();
+                if (targets.length > 0) {
+                    // Decode large originals subsampled: twice the largest target keeps enough detail for downscaling
+                    // while dividing the decoded size, and therefore the memory used, by the square of the factor.
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    int subsampling = Math.max(1, sourceWidth / (targets[targets.length - 1] * 2));
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                    BufferedImage image = reader.read(0, param);
+
+                    for (int width : targets) {
+                        write(scale(image, width), "jpeg", variantPath(digest, width, JPEG_EXTENSION));
+                    }
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+        Files.write(doneMarker(digest), new byte[0]);
+    }
+
+    /**
+     * Scales an image down to the given width, halving the size at each step so that bilinear interpolation
+     * still averages all source pixels, and flattens any transparency on a white background.
+     */
+    private static BufferedImage scale(BufferedImage source, int width) {
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            currentWidth = Math.max(width, currentWidth / 2);
+            currentHeight = Math.max(height, currentHeight / 2);
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, currentWidth, currentHeight, Color.WHITE, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (currentWidth != width || currentHeight != height);
+        return current;
+    }
+
+    private void write(BufferedImage image, String formatName, Path target) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(formatName);
+        if (!writers.hasNext()) {
+            throw new IOException("No image writer for " + formatName);
+        }
+        ImageWriter writer = writers.next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (param.canWriteCompressed()) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+        }
+        if (param.canWriteProgressive()) {
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        }
+
+        Path tmp = Files.createTempFile(target.getParent(), "variant-", ".part");
+        try {
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(tmp.toFile())) {
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Animated GIFs would lose their animation, they are always served as uploaded.
+     */
+    private static boolean supportsVariants(String filename) {
+        return PictureFormat.fromFilename(filename).filter(format -> format != PictureFormat.GIF).isPresent();
+    }
+
+    /**
+     * A client without {@code Accept} header takes anything; one that lists only other types, such as
+     * {@code image/png}, gets the original instead of a JPEG it did not ask for.
+     */
+    private static boolean acceptsJpeg(List<MediaType> acceptedTypes) {
+        return acceptedTypes.isEmpty() || acceptedTypes.stream()
+                .anyMatch(type -> type.getQualityValue() > 0 && type.includes(MediaType.IMAGE_JPEG));
+    }
+
+    private Path variantPath(String digest, int width, String extension) {
+        return PictureShards.directory(variantsDir, digest).resolve(digest + "_" + width + "." + extension);
+    }
+
+    private Path doneMarker(String digest) {
+        return PictureShards.directory(variantsDir, digest).resolve(digest + DONE_SUFFIX);
+    }
+}
@@ -6,33 +6,50 @@ import com.openclassrooms.projet3.model.DBUser;
 import com.openclassrooms.projet3.model.Rental;
 import com.openclassrooms.projet3.repository.RentalRepository;
 import com.openclassrooms.projet3.service.AuthenticationService;
+import com.openclassrooms.projet3.service.CacheChangeFeedService;
 import com.openclassrooms.projet3.service.DBUserService;
+import com.openclassrooms.projet3.service.PictureService;
 import com.openclassrooms.projet3.service.RentalService;
 import com.openclassrooms.projet3.utils.ImageUtils;
+import com.openclassrooms.projet3.utils.PresignedUpload;
+import com.openclassrooms.projet3.utils.ServerTiming;
+import com.openclassrooms.projet3.utils.StoredPicture;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 @Service
+@Timed(value = "rentals.service", description = "Rental service operations")
 public class RentalServiceImpl implements RentalService {
 
     private final RentalRepository rentalRepository;
     private final ImageUtils imageUtils;
     private final DBUserService dbUserService;
     private final AuthenticationService authenticationService;
+    private final PictureService pictureService;
+    private final CacheChangeFeedService cacheChangeFeedService;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
-    public RentalServiceImpl(RentalRepository rentalRepository, ImageUtils imageUtils, DBUserService dbUserService, AuthenticationService authenticationService) {
+    public RentalServiceImpl(RentalRepository rentalRepository, ImageUtils imageUtils, DBUserService dbUserService, AuthenticationService authenticationService, PictureService pictureService, CacheChangeFeedService cacheChangeFeedService, PlatformTransactionManager transactionManager) {
         this.rentalRepository = rentalRepository;
         this.imageUtils = imageUtils;
         this.dbUserService = dbUserService;
         this.authenticationService = authenticationService;
+        this.pictureService = pictureService;
+        this.cacheChangeFeedService = cacheChangeFeedService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Override
@@ -41,6 +58,7 @@ public class RentalServiceImpl implements RentalService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<RentalDTO> getRentalsWithDTOs() {
         Iterable<Rental> rentalsIterable = findAllRentals();
         return StreamSupport.stream(rentalsIterable.spliterator(), false)
@@ -55,71 +73,133 @@ public class RentalServiceImpl implements RentalService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public RentalDTO findRentalDTOById(Long id) {
         Rental rental = rentalRepository.findById(id)
-                .orElseThrow(() -> new CustomNotFoundException("Rental not found with id: " + id));
+                .orElseThrow(() -> new CustomNotFoundException("Rental not found"));
         return convertToDTO(rental);
     }
 
+    /**
+     * Pictures are stored before the transaction is opened, so a slow upload never holds a database connection; a
+     * picture stored for a write that fails afterwards is left unreferenced and deleted by the garbage collection.
+     * The same goes for the updates below.
+     */
     @Override
-    public Rental createRental(String name, int surface, double price, String description, MultipartFile picture, String ownerEmail) throws Exception {
+    public Rental createRental(String name, int surface, double price, String description, MultipartFile picture, String pictureKey, String ownerEmail) throws Exception {
         Optional<DBUser> ownerOptional = dbUserService.find(ownerEmail);
         if (ownerOptional.isEmpty()) {
             throw new CustomNotFoundException("Owner not found");
         }
         DBUser owner = ownerOptional.get();
 
-        String pictureUrl = imageUtils.storePicture(picture);
+        StoredPicture storedPicture = picture != null
+                ? imageUtils.storePicture(picture)
+                : imageUtils.registerUploadedPicture(pictureKey);
 
         Rental rental = new Rental();
         rental.setName(name);
         rental.setSurface(surface);
         rental.setPrice(price);
         rental.setDescription(description);
-        rental.setPicture(pictureUrl);
+        rental.setPicture(storedPicture.url());
         rental.setOwner(owner);
 
-        return rentalRepository.save(rental);
+        return transactionTemplate.execute(status -> {
+            pictureService.acquire(storedPicture);
+            return saveAndPublish(rental);
+        });
     }
 
     @Override
-    public Rental updateRental(Long id, String name, int surface, double price, String description, MultipartFile picture, String ownerEmail) throws CustomNotFoundException, IOException {
-        Rental rental = rentalRepository.findById(id)
-                .orElseThrow(() -> new CustomNotFoundException("Rental not found for this id: " + id));
-
-        // check if the user is the owner of the rental
-        DBUser owner = dbUserService.find(ownerEmail)
-                .orElseThrow(() -> new CustomNotFoundException("Owner not found"));
-        if (!rental.getOwner().equals(owner)) {
-            throw new CustomNotFoundException("User is not the owner of the rental");
-        }
-
-        if (picture != null && !picture.isEmpty()) {
-            String pictureUrl = imageUtils.storePicture(picture);
-            rental.setPicture(pictureUrl);
-        }
+    public PresignedUpload presignPictureUpload(String sha256, String contentType, long contentLength) {
+        return imageUtils.presignPictureUpload(sha256, contentType, contentLength);
+    }
 
-        rental.setName(name);
-        rental.setSurface(surface);
-        rental.setPrice(price);
-        rental.setDescription(description);
+    @Override
+    public Rental updateRental(Long id, String name, int surface, double price, String description, MultipartFile picture, String ownerEmail) throws CustomNotFoundException, IOException {
+        StoredPicture storedPicture = picture != null && !picture.isEmpty() ? imageUtils.storePicture(picture) : null;
+
+        return transactionTemplate.execute(status -> {
+            Rental rental = findOwnedRental(id, ownerEmail);
+            if (storedPicture != null) {
+                replacePicture(rental, storedPicture);
+            }
+            rental.setName(name);
+            rental.setSurface(surface);
+            rental.setPrice(price);
+            rental.setDescription(description);
+            return saveAndPublish(rental);
+        });
+    }
 
-        return rentalRepository.save(rental);
+    @Override
+    public Rental updateRentalPicture(Long id, ReadableByteChannel picture, String contentType, long contentLength, String ownerEmail) throws CustomNotFoundException, IOException {
+        StoredPicture storedPicture = imageUtils.storePicture(picture, contentType, contentLength);
+
+        return transactionTemplate.execute(status -> {
+            Rental rental = findOwnedRental(id, ownerEmail);
+            replacePicture(rental, storedPicture);
+            return saveAndPublish(rental);
+        });
     }
 
     @Override
+    @Transactional
     public void deleteRental(Long id) {
-        rentalRepository.deleteById(id);
+        Optional<Rental> rental = rentalRepository.findById(id);
+        if (rental.isEmpty()) {
+            return;
+        }
+        // the picture reference goes with the rental, in the same transaction
+        pictureService.release(rental.get().getPicture());
+        rentalRepository.delete(rental.get());
+        cacheChangeFeedService.recordRentalChange(id);
     }
 
     @Override
     public boolean isUserOwnerOfRental(Long rentalId) {
-        Rental rental = findRentalById(rentalId).orElseThrow(() -> new RuntimeException("Rental not found"));
+        Rental rental = findRentalById(rentalId).orElseThrow(() -> new CustomNotFoundException("Rental not found"));
         String authenticatedUsername = authenticationService.getAuthenticatedUsername();
         return rental.getOwner().getName().equals(authenticatedUsername);
     }
 
+    /**
+     * Loads a rental and checks that the user identified by the given email is its owner.
+     */
+    private Rental findOwnedRental(Long id, String ownerEmail) {
+        Rental rental = rentalRepository.findById(id)
+                .orElseThrow(() -> new CustomNotFoundException("Rental not found"));
+
+        // check if the user is the owner of the rental
+        DBUser owner = dbUserService.find(ownerEmail)
+                .orElseThrow(() -> new CustomNotFoundException("Owner not found"));
+        if (!rental.getOwner().getId().equals(owner.getId())) {
+            throw new CustomNotFoundException("User is not the owner of the rental");
+        }
+        return rental;
+    }
+
+    /**
+     * Saves the rental and publishes the change to the other nodes, which evict it from their cache.
+     */
+    private Rental saveAndPublish(Rental rental) {
+        Rental saved = rentalRepository.save(rental);
+        cacheChangeFeedService.recordRentalChange(saved.getId());
+        return saved;
+    }
+
+    /**
+     * Points the rental to a newly stored picture, moving the picture reference from the old file to the new one.
+     */
+    private void replacePicture(Rental rental, StoredPicture storedPicture) {
+        pictureService.acquire(storedPicture);
+        pictureService.release(rental.getPicture());
+        rental.setPicture(storedPicture.url());
+    }
+
     private RentalDTO convertToDTO(Rental rental) {
+        long mapping = ServerTiming.begin(ServerTiming.Metric.MAPPING);
         RentalDTO dto = new RentalDTO();
         dto.setId(rental.getId());
         dto.setName(rental.getName());
@@ -127,9 +207,10 @@ public class RentalServiceImpl implements RentalService {
         dto.setPrice(rental.getPrice());
         dto.setPicture(rental.getPicture());
         dto.setDescription(rental.getDescription());
-        dto.setCreated_at(rental.getCreatedAt().toString());
-        dto.setUpdated_at(rental.getUpdatedAt().toString());
+        dto.setCreated_at(rental.getCreatedAt());
+        dto.setUpdated_at(rental.getUpdatedAt());
         dto.setOwner_id(rental.getOwner().getId());
+        ServerTiming.end(ServerTiming.Metric.MAPPING, mapping);
         return dto;
     }
 
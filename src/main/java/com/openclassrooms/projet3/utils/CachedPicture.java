@@ -0,0 +1,28 @@
+package com.openclassrooms.projet3.utils;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * The content of a picture file held by a {@link PictureCache}.
+ * <p>
+ * The memory of the entry stays reserved for the holder until {@link #close()}, even if the cache evicts it in
+ * the meantime.
+ */
+public interface CachedPicture extends AutoCloseable {
+
+    long size();
+
+    /**
+     * Writes a range of the content to a channel, like {@link java.nio.channels.FileChannel#transferTo}.
+     *
+     * @param position the offset of the first byte to write.
+     * @param count    the number of bytes to write.
+     * @param target   the channel to write to.
+     * @throws IOException if the channel cannot be written.
+     */
+    void transferTo(long position, long count, WritableByteChannel target) throws IOException;
+
+    @Override
+    void close();
+}
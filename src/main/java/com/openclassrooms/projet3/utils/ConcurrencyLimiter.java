@@ -0,0 +1,119 @@
+package com.openclassrooms.projet3.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptive limit of the requests of an endpoint group handled at the same time, gradient style: the limit grows
+ * while the latency of the requests stays close to its long-term average, and shrinks in proportion when the latency
+ * rises, which is when requests start queueing for threads, connections or CPU instead of being served.
+ * <p>
+ * Each sample compares a short-term average of the latency with a long-term one; their ratio (the gradient, at most
+ * 1) scales the limit down, and a queue allowance of the square root of the limit lets it grow again while the
+ * latency is stable. The limit only grows when at least half of it is in use, so that an idle period does not raise
+ * it. A request that failed on an overload (a 503 or 504 response) multiplies the limit by 0.9, AIMD style.
+ * <p>
+ * The gradient only applies once {@value #WARMUP_SAMPLES} latencies are averaged: the first requests of a node, slower
+ * while its classes, caches and connections warm up, would otherwise shrink the limit of a burst they are part of.
+ * A limiter whose min and max limits are equal keeps its limit and does not sample the latency.
+ */
+public final class ConcurrencyLimiter {
+
+    private static final double SHORT_WINDOW = 10;
+    private static final double LONG_WINDOW = 500;
+    private static final double SMOOTHING = 0.2;
+    private static final double TOLERANCE = 1.5;
+    private static final double BACKOFF = 0.9;
+    private static final int WARMUP_SAMPLES = 100;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+    private double estimatedLimit;
+    private double shortRtt;
+    private double longRtt;
+    private long samples;
+
+    public ConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Invalid concurrency limits of " + name + ": initial " + initialLimit
+                    + ", min " + minLimit + ", max " + maxLimit);
+        }
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return whether the request can be handled now, in which case {@link #release(long, boolean)} must be called
+     * once it is.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a request acquired with {@link #tryAcquire()} and adapts the limit.
+     *
+     * @param rttNanos   time the request took, in nanoseconds.
+     * @param overloaded whether the request failed because the application is overloaded.
+     */
+    public void release(long rttNanos, boolean overloaded) {
+        int requests = inFlight.getAndDecrement();
+        update(Math.max(rttNanos, 1), requests, overloaded);
+    }
+
+    private synchronized void update(double rtt, int requests, boolean overloaded) {
+        if (minLimit == maxLimit) {
+            return;
+        }
+        if (overloaded) {
+            estimatedLimit = Math.max(minLimit, estimatedLimit * BACKOFF);
+            limit = (int) estimatedLimit;
+            return;
+        }
+        if (longRtt == 0) {
+            shortRtt = rtt;
+            longRtt = rtt;
+        } else {
+            shortRtt += (rtt - shortRtt) / SHORT_WINDOW;
+            longRtt += (rtt - longRtt) / LONG_WINDOW;
+        }
+        // the load went down for good: follow it faster than the long window would
+        if (longRtt > 2 * shortRtt) {
+            longRtt *= 0.95;
+        }
+        if (++samples < WARMUP_SAMPLES || requests < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit,
+                estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+        limit = (int) estimatedLimit;
+    }
+}
@@ -1,33 +1,145 @@
 package com.openclassrooms.projet3.utils;
 
+import com.openclassrooms.projet3.excepton.CustomBadRequestException;
+import com.openclassrooms.projet3.excepton.CustomNotFoundException;
+import com.openclassrooms.projet3.excepton.CustomNotImplementedException;
+import com.openclassrooms.projet3.excepton.CustomPayloadTooLargeException;
+import com.openclassrooms.projet3.excepton.CustomUnsupportedMediaTypeException;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
 
 public interface ImageUtils {
 
     /**
-     * Stores the uploaded file in the server's filesystem and returns the URL to access the file.
-     * This method performs several checks and operations to securely store an uploaded file:
+     * Stores the uploaded file in the server's filesystem and returns the stored picture.
+     * This method performs several checks and operations to store an uploaded file:
      * - Validates that the file is not empty to prevent storing unnecessary data.
-     * - Determines the 'uploads' directory path where the file will be stored. If the directory
-     * doesn't exist, it creates it.
-     * - Generates a unique filename for the uploaded file to avoid name collisions and maintain
-     * the original file extension. This is achieved by prefixing the original filename with
-     * the current timestamp.
-     * - Validates that the file will be stored within the predefined 'uploads' directory to
-     * prevent directory traversal attacks.
-     * - Transfers the file to its final destination in the filesystem.
-     * - Constructs a URL that can be used to access the uploaded file. The URL is based on
-     * the current context path of the application, ensuring compatibility across different
-     * deployment environments.
+     * - Reads the content once to compute its SHA-256 digest, checking on the first bytes that it is a supported
+     * picture type. If the part declares a supported content type, the content must match it.
+     * - Names the file after its digest ({@code <sha256><extension>}) and stores it in the {@link PictureStore}
+     * under the shard of the digest ({@code ab/cd/<sha256><extension>} for a digest starting with {@code abcd}).
+     * Identical uploads therefore share a single file, and names cannot collide.
+     * - Transfers the file to the store only if no file with the same digest is stored yet; otherwise the existing
+     * file is reused and nothing is written.
+     * - Constructs a URL that can be used to access the stored file. The URL is based on the current context
+     * path of the application and, since the name depends only on the content, is immutable.
      *
      * @param file the multipart file uploaded by the user.
-     * @return A String representing the URL to access the uploaded file.
-     * @throws IOException if the file is empty, if there's an error creating the 'uploads'
-     *                     directory, if the file cannot be stored securely, or if there's an error during
-     *                     the file transfer.
+     * @return A {@link StoredPicture} describing the stored file, including its URL.
+     * @throws CustomUnsupportedMediaTypeException if the content is not a supported picture type.
+     * @throws IOException                         if the file is empty, if there's an error creating the local
+     *                                             uploads directory, or if there's an error during the file transfer.
      */
+    StoredPicture storePicture(MultipartFile file) throws IOException;
 
-    String storePicture(MultipartFile file) throws IOException;
+    /**
+     * Streams a picture from a channel straight to the picture store.
+     * <p>
+     * Unlike {@link #storePicture(MultipartFile)}, nothing is spooled to a multipart temporary location first:
+     * the content is read through a fixed-size, pooled direct buffer and written to a temporary file of the local
+     * uploads directory. The SHA-256 digest and the size are computed while the bytes flow through the buffer. The
+     * temporary file is then handed to the store under its content-addressed key (an atomic rename for the local
+     * store), or simply dropped if an identical picture is already stored.
+     * <p>
+     * The upload is aborted, and the partial file removed, as soon as one of these conditions is detected:
+     * - the declared content type is not an accepted picture type;
+     * - the declared content length, or the number of bytes actually read, exceeds the configured upload limit;
+     * - the first bytes of the content do not match the declared picture type.
+     *
+     * @param source        the channel to read the picture content from, typically the request body.
+     * @param contentType   the declared content type of the picture.
+     * @param contentLength the declared content length, or {@code -1} if unknown.
+     * @return a {@link StoredPicture} describing the stored file.
+     * @throws CustomUnsupportedMediaTypeException if the content type is not accepted or does not match the content.
+     * @throws CustomPayloadTooLargeException      if the content exceeds the upload limit.
+     * @throws IOException                         if the content is empty or an I/O error occurs while storing it.
+     */
+    StoredPicture storePicture(ReadableByteChannel source, String contentType, long contentLength) throws IOException;
+
+    /**
+     * Stores a copy of a file already on the server's filesystem, under its content-addressed name.
+     * <p>
+     * The format is detected from the content and the upload size limit applies, as for uploads. The source file
+     * is left untouched, so the caller can remove it once the new location is referenced.
+     * Outside of a request, the URL of the returned picture is relative to the server root.
+     *
+     * @param file the file to store.
+     * @return a {@link StoredPicture} describing the stored copy.
+     * @throws CustomUnsupportedMediaTypeException if the content is not a supported picture type.
+     * @throws CustomPayloadTooLargeException      if the content exceeds the upload limit.
+     * @throws IOException                         if the file is empty or an I/O error occurs while copying it.
+     */
+    StoredPicture importPicture(Path file) throws IOException;
+
+    /**
+     * Authorizes a client to upload a picture straight to the picture store, without going through this API.
+     * <p>
+     * The client computes the SHA-256 digest of the picture beforehand; the upload is bound to the resulting
+     * content-addressed key, to the content type and to the length, and the store rejects any other content.
+     * Once uploaded, the picture is attached to a rental with {@link #registerUploadedPicture(String)}.
+     *
+     * @param sha256        the hex-encoded SHA-256 digest of the picture.
+     * @param contentType   the content type of the picture.
+     * @param contentLength the exact length of the picture.
+     * @return the upload URL and the headers to send with it.
+     * @throws CustomUnsupportedMediaTypeException if the content type is not an accepted picture type.
+     * @throws CustomPayloadTooLargeException      if the length exceeds the upload limit.
+     * @throws CustomBadRequestException           if the digest or the length is missing or malformed.
+     * @throws CustomNotImplementedException       if the configured store does not support direct uploads.
+     */
+    PresignedUpload presignPictureUpload(String sha256, String contentType, long contentLength);
+
+    /**
+     * Checks a picture uploaded directly to the store and describes it, so a rental can reference it.
+     * <p>
+     * Only the first bytes are read back from the store, to check the picture type; the content itself was
+     * verified against its digest by the store during the upload.
+     *
+     * @param key the key returned by {@link #presignPictureUpload(String, String, long)}.
+     * @return a {@link StoredPicture} describing the uploaded picture.
+     * @throws CustomNotFoundException             if the key is not a picture key or nothing was uploaded to it.
+     * @throws CustomPayloadTooLargeException      if the uploaded picture exceeds the upload limit.
+     * @throws CustomUnsupportedMediaTypeException if the content does not match the picture type of the key.
+     * @throws IOException                         if the store cannot be reached.
+     */
+    StoredPicture registerUploadedPicture(String key) throws IOException;
+
+    /**
+     * Extracts the content digest from the URL of a stored picture.
+     *
+     * @param pictureUrl the URL of a picture, as stored in {@code Rental.picture}.
+     * @return the hex-encoded SHA-256 digest, or {@code null} if the URL does not point to a content-addressed
+     * file (e.g. files uploaded before content addressing was introduced).
+     */
+    String digestOf(String pictureUrl);
+
+    /**
+     * Maps the name of a stored picture to its key in the {@link PictureStore}.
+     * <p>
+     * Content-addressed names map to the shard of their digest, other names, from uploads made before content
+     * addressing, to the root of the store. Only plain file names are mapped, so a name coming from a request
+     * path cannot be used to reach objects outside of these locations.
+     *
+     * @param filename the name of the stored file, as found at the end of its URL.
+     * @return the key of the picture, or {@code null} if the name is not a plain file name.
+     */
+    String pictureKey(String filename);
+
+    /**
+     * @return the absolute path of the local uploads directory, configured with {@code app.uploads.location}. It
+     * holds the temporary files of uploads in progress, and the pictures themselves with the local store.
+     */
+    Path getUploadsDirectory();
+
+    /**
+     * Tells whether a file of the uploads root is the temporary file of an upload in progress or of an
+     * interrupted one, as opposed to a stored picture.
+     *
+     * @param filename the name of a file of the uploads root.
+     * @return {@code true} for temporary upload files.
+     */
+    boolean isTemporaryFile(String filename);
 }
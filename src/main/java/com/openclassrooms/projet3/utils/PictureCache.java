@@ -0,0 +1,26 @@
+package com.openclassrooms.projet3.utils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Memory cache of the content of the most requested picture files.
+ */
+public interface PictureCache {
+
+    /**
+     * Returns the cached content of a file, loading it if the cache admits it.
+     * <p>
+     * Every call counts as an access to the file, whether it is cached or not, so files that are requested often
+     * enough end up cached. Only files that never change, i.e. content-addressed pictures and their variants,
+     * may be looked up.
+     *
+     * @param file the file to read.
+     * @param size the current size of the file, entries of another size are considered stale.
+     * @return the cached content, to be closed once written, or empty if the file is not cached and was not
+     * admitted, in which case the caller reads the file itself.
+     * @throws IOException if the file could not be read while loading it.
+     */
+    Optional<CachedPicture> acquire(Path file, long size) throws IOException;
+}
@@ -0,0 +1,94 @@
+package com.openclassrooms.projet3.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Picture formats accepted by the upload endpoints, with the leading bytes ("magic number") each format must start with.
+ */
+public enum PictureFormat {
+
+    JPEG("image/jpeg", ".jpg", new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF}),
+    PNG("image/png", ".png", new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}),
+    GIF("image/gif", ".gif", new byte[]{'G', 'I', 'F', '8'}),
+    WEBP("image/webp", ".webp", new byte[]{'R', 'I', 'F', 'F'});
+
+    /**
+     * Number of leading bytes needed to recognise any of the supported formats.
+     */
+    public static final int MAGIC_LENGTH = 12;
+
+    private final String contentType;
+    private final String extension;
+    private final byte[] magic;
+
+    PictureFormat(String contentType, String extension, byte[] magic) {
+        this.contentType = contentType;
+        this.extension = extension;
+        this.magic = magic;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Resolves a format from a {@code Content-Type} header value, ignoring parameters such as {@code charset}.
+     *
+     * @param contentType the raw header value, may be {@code null}.
+     * @return the matching format, or empty if the type is not an accepted picture type.
+     */
+    public static Optional<PictureFormat> fromContentType(String contentType) {
+        if (contentType == null) {
+            return Optional.empty();
+        }
+        int separator = contentType.indexOf(';');
+        String mediaType = (separator >= 0 ? contentType.substring(0, separator) : contentType).trim();
+        return Arrays.stream(values()).filter(format -> format.contentType.equalsIgnoreCase(mediaType)).findFirst();
+    }
+
+    /**
+     * Detects the format of a content from its first bytes.
+     *
+     * @param head the first bytes of the content, read from index 0 up to {@code head.position()}.
+     * @return the detected format, or empty if the content is not an accepted picture type.
+     */
+    public static Optional<PictureFormat> detect(ByteBuffer head) {
+        return Arrays.stream(values()).filter(format -> format.matches(head)).findFirst();
+    }
+
+    /**
+     * Resolves a format from the extension of a stored file name.
+     *
+     * @param filename the stored file name.
+     * @return the matching format, or empty if the extension is not one of the accepted picture types.
+     */
+    public static Optional<PictureFormat> fromFilename(String filename) {
+        return Arrays.stream(values()).filter(format -> filename.endsWith(format.extension)).findFirst();
+    }
+
+    /**
+     * Checks that the content starts with the magic number of this format.
+     *
+     * @param head the first bytes of the content, read from index 0 up to {@code head.position()}.
+     * @return {@code true} if the content matches this format.
+     */
+    public boolean matches(ByteBuffer head) {
+        if (head.position() < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (head.get(i) != magic[i]) {
+                return false;
+            }
+        }
+        // RIFF is a generic container, WebP is identified by the fourcc at offset 8
+        return this != WEBP || (head.position() >= MAGIC_LENGTH
+                && head.get(8) == 'W' && head.get(9) == 'E' && head.get(10) == 'B' && head.get(11) == 'P');
+    }
+}
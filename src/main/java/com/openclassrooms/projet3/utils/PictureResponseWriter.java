@@ -0,0 +1,34 @@
+package com.openclassrooms.projet3.utils;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public interface PictureResponseWriter {
+
+    /**
+     * Writes a picture file to the response, honouring the conditional and range headers of the request.
+     * <p>
+     * The response carries an {@code ETag}; content-addressed files get a strong ETag derived from their name and
+     * {@code Cache-Control: immutable}, other files a weak ETag derived from their size and modification time
+     * together with {@code Last-Modified}. The following request headers are supported:
+     * - {@code If-None-Match} and {@code If-Modified-Since}, answered with 304 Not Modified and no body;
+     * - {@code Range} with a single byte range, answered with 206 Partial Content or 416 Range Not Satisfiable;
+     * - {@code If-Range}, which makes the range apply only while the validator still matches.
+     * <p>
+     * Large bodies are handed to the container's sendfile support when available, so the file is copied to the
+     * socket by the kernel without passing through the JVM heap. Other immutable files admitted by the
+     * {@link PictureCache} are written from its off-heap memory; otherwise {@code FileChannel.transferTo} is used.
+     *
+     * @param request     the current request.
+     * @param response    the current response, not committed yet.
+     * @param file        the file to serve.
+     * @param contentType the content type of the file.
+     * @param immutable   whether the file is content-addressed and therefore never changes.
+     * @throws IOException if the file cannot be read or the response cannot be written.
+     */
+    void write(HttpServletRequest request, HttpServletResponse response, Path file, MediaType contentType, boolean immutable) throws IOException;
+}
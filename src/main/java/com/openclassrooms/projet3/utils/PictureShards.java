@@ -0,0 +1,51 @@
+package com.openclassrooms.projet3.utils;
+
+import java.nio.file.Path;
+
+/**
+ * Hash-prefix sharded layout of content-addressed files.
+ * <p>
+ * A file whose digest starts with {@code abcd} lives in {@code <root>/ab/cd/}. The first two levels spread the
+ * files over 65,536 directories, which keeps every directory small enough for fast lookups and incremental
+ * scans, whatever the total number of files.
+ */
+public final class PictureShards {
+
+    private PictureShards() {
+    }
+
+    /**
+     * @param root   the root of the sharded layout.
+     * @param digest the hex-encoded digest of a file.
+     * @return the directory holding the files of the digest.
+     */
+    public static Path directory(Path root, String digest) {
+        return root.resolve(digest.substring(0, 2)).resolve(digest.substring(2, 4));
+    }
+
+    /**
+     * @param digest   the hex-encoded digest of a file.
+     * @param filename the name of the file.
+     * @return the key of the file in a {@code PictureStore}, {@code ab/cd/<filename>}.
+     */
+    public static String key(String digest, String filename) {
+        return digest.substring(0, 2) + "/" + digest.substring(2, 4) + "/" + filename;
+    }
+
+    /**
+     * Tells whether a directory name is one level of the sharded layout, as opposed to other directories that
+     * may share the same root.
+     */
+    public static boolean isShardName(String name) {
+        if (name.length() != 2) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
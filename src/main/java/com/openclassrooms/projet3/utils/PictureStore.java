@@ -0,0 +1,119 @@
+package com.openclassrooms.projet3.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Storage backend of the picture files.
+ * <p>
+ * Objects are addressed by keys, {@code /}-separated paths relative to the root of the store such as
+ * {@code ab/cd/<sha256>.jpg}. The store only moves bytes: naming, validation and reference counting are done by
+ * {@link ImageUtils} and the picture services. The backend is selected with {@code app.pictures.store}.
+ */
+public interface PictureStore {
+
+    /**
+     * Stores a fully written local file under a key. Since keys are content-addressed, an object already stored
+     * under the key is kept as is.
+     *
+     * @param key         the key to store the file under.
+     * @param file        the local file to store. It may be moved by the store; if it still exists afterwards,
+     *                    deleting it is up to the caller.
+     * @param contentType the content type of the file.
+     * @throws IOException if the file cannot be stored.
+     */
+    void put(String key, Path file, String contentType) throws IOException;
+
+    /**
+     * Marks an existing object as just stored, which restarts the grace period of the garbage collector.
+     *
+     * @param key the key of the object.
+     * @return {@code false} if there is no object under the key.
+     * @throws IOException if the store cannot be reached.
+     */
+    boolean refresh(String key) throws IOException;
+
+    /**
+     * @param key the key of the object.
+     * @return the object stored under the key, or empty if there is none.
+     * @throws IOException if the store cannot be reached.
+     */
+    Optional<StoredObject> stat(String key) throws IOException;
+
+    /**
+     * Opens the content of an object for reading. The caller closes the stream.
+     *
+     * @param key the key of the object.
+     * @return the content of the object.
+     * @throws NoSuchFileException if there is no object under the key.
+     * @throws IOException         if the object cannot be read.
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Reads the first bytes of an object, e.g. to check its format, without transferring the whole content.
+     *
+     * @param key    the key of the object.
+     * @param length the maximum number of bytes to read.
+     * @return the first bytes of the object, fewer than {@code length} if the object is shorter.
+     * @throws NoSuchFileException if there is no object under the key.
+     * @throws IOException         if the object cannot be read.
+     */
+    default byte[] readHead(String key, int length) throws IOException {
+        try (InputStream in = open(key)) {
+            return in.readNBytes(length);
+        }
+    }
+
+    /**
+     * Deletes an object, if it exists.
+     *
+     * @param key the key of the object.
+     * @throws IOException if the object cannot be deleted.
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * Lists the objects whose key starts with a prefix. The caller closes the stream.
+     *
+     * @param prefix    a key prefix ending with {@code /}, or the empty string for the root of the store.
+     * @param recursive {@code false} to list only the objects directly under the prefix, not those of
+     *                  deeper levels.
+     * @return the objects found, in no particular order.
+     * @throws IOException if the store cannot be listed.
+     */
+    Stream<StoredObject> list(String prefix, boolean recursive) throws IOException;
+
+    /**
+     * @param key the key of an object.
+     * @return the local file holding the object when the store is on the local filesystem, so it can be served
+     * with zero-copy transfer; empty for remote stores or if the key is not a valid path in the store.
+     */
+    Optional<Path> localFile(String key);
+
+    /**
+     * @param key the key of an object.
+     * @return a time-limited URL clients can download the object from directly, or empty if the store is only
+     * reachable through this API.
+     */
+    Optional<URI> downloadUrl(String key);
+
+    /**
+     * Authorizes a client to upload an object straight to the store.
+     * <p>
+     * The upload is bound to the key, the content type, the exact length and the SHA-256 checksum of the content,
+     * so the store itself rejects a body that does not match the content-addressed key.
+     *
+     * @param key           the key to upload to.
+     * @param contentType   the content type of the upload.
+     * @param contentLength the exact length of the upload.
+     * @param sha256        the hex-encoded SHA-256 digest of the content.
+     * @return the upload authorization, or empty if the store does not support direct uploads.
+     */
+    Optional<PresignedUpload> presignUpload(String key, String contentType, long contentLength, String sha256);
+}
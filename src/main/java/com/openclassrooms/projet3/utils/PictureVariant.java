@@ -0,0 +1,13 @@
+package com.openclassrooms.projet3.utils;
+
+import java.nio.file.Path;
+
+/**
+ * A resized, re-encoded copy of a stored picture.
+ *
+ * @param path        the file holding the variant.
+ * @param width       the width of the variant in pixels.
+ * @param contentType the content type the variant is encoded in.
+ */
+public record PictureVariant(Path path, int width, String contentType) {
+}
@@ -0,0 +1,17 @@
+package com.openclassrooms.projet3.utils;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * A time-limited authorization for a client to upload a picture straight to the picture store.
+ *
+ * @param key       the key the picture will be stored under, to be sent back when creating the rental.
+ * @param url       the URL to send the picture to.
+ * @param method    the HTTP method to use.
+ * @param headers   the headers the upload request must carry, exactly as given, since they are signed.
+ * @param expiresAt the instant after which the URL is no longer accepted.
+ */
+public record PresignedUpload(String key, URI url, String method, Map<String, String> headers, Instant expiresAt) {
+}
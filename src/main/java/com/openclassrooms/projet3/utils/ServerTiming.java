@@ -0,0 +1,139 @@
+package com.openclassrooms.projet3.utils;
+
+/**
+ * Latency breakdown of the request handled by the current thread, sent back in the {@code Server-Timing} header
+ * when {@code app.server-timing.enabled=true} (see {@code ServerTimingConfig}).
+ * <p>
+ * Code measures a part of a request with {@link #begin(Metric)} and {@link #end(Metric, long)}. When timings are
+ * not collected for the current thread, {@code begin} only reads a thread local and returns 0, and {@code end} does
+ * nothing. Measures of a metric nested in another measure of the same metric, such as a picture store call made by
+ * {@link ImageUtils}, are not counted twice.
+ */
+public final class ServerTiming {
+
+    /**
+     * Measured parts of a request, with their name in the header.
+     */
+    public enum Metric {
+        AUTH("auth"),
+        DB("db"),
+        MAPPING("dto"),
+        IMAGE("img"),
+        JSON("json");
+
+        private final String header;
+
+        Metric(String header) {
+            this.header = header;
+        }
+
+        public String header() {
+            return header;
+        }
+    }
+
+    private static final ThreadLocal<ServerTiming> CURRENT = new ThreadLocal<>();
+    private static final Metric[] METRICS = Metric.values();
+
+    private final long start = System.nanoTime();
+    private final long[] durations = new long[METRICS.length];
+    private final int[] counts = new int[METRICS.length];
+    private final int[] depths = new int[METRICS.length];
+
+    private ServerTiming() {
+    }
+
+    /**
+     * Starts collecting timings for the request handled by the current thread.
+     */
+    public static ServerTiming start() {
+        ServerTiming timing = new ServerTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    /**
+     * Stops collecting timings on the current thread.
+     */
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return the timings collected on the current thread, {@code null} when they are not collected.
+     */
+    public static ServerTiming current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return the start of a measure of the metric, to give to {@link #end(Metric, long)}.
+     */
+    public static long begin(Metric metric) {
+        ServerTiming timing = CURRENT.get();
+        if (timing == null) {
+            return 0;
+        }
+        timing.depths[metric.ordinal()]++;
+        return System.nanoTime();
+    }
+
+    public static void end(Metric metric, long begin) {
+        ServerTiming timing = CURRENT.get();
+        if (timing != null && --timing.depths[metric.ordinal()] == 0) {
+            timing.record(metric, System.nanoTime() - begin);
+        }
+    }
+
+    /**
+     * @return the time elapsed since the start of the collection, in nanoseconds.
+     */
+    public long elapsed() {
+        return System.nanoTime() - start;
+    }
+
+    public void record(Metric metric, long nanos) {
+        durations[metric.ordinal()] += nanos;
+        counts[metric.ordinal()]++;
+    }
+
+    /**
+     * @return the value of the {@code Server-Timing} header: the duration in milliseconds of each measured metric,
+     * with the number of measures in its description, and the total time since the start of the collection, for
+     * instance {@code auth;dur=0.412, db;dur=2.1;desc="3", total;dur=5.034}.
+     */
+    public String header() {
+        StringBuilder header = new StringBuilder(128);
+        for (Metric metric : METRICS) {
+            int count = counts[metric.ordinal()];
+            if (count > 0) {
+                header.append(metric.header()).append(";dur=").append(millis(durations[metric.ordinal()]));
+                if (count > 1) {
+                    header.append(";desc=\"").append(count).append('"');
+                }
+                header.append(", ");
+            }
+        }
+        return header.append("total;dur=").append(millis(elapsed())).toString();
+    }
+
+    /**
+     * @return the timings as {@code key=value} pairs for a log line, for instance
+     * {@code auth=0.412 auth_count=1 db=2.1 db_count=3 total=5.034}, durations in milliseconds.
+     */
+    public String logFields() {
+        StringBuilder fields = new StringBuilder(128);
+        for (Metric metric : METRICS) {
+            int count = counts[metric.ordinal()];
+            if (count > 0) {
+                fields.append(metric.header()).append('=').append(millis(durations[metric.ordinal()]));
+                fields.append(' ').append(metric.header()).append("_count=").append(count).append(' ');
+            }
+        }
+        return fields.append("total=").append(millis(elapsed())).toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000 / 1_000.0;
+    }
+}
@@ -0,0 +1,15 @@
+package com.openclassrooms.projet3.utils;
+
+import java.time.Instant;
+
+/**
+ * An object of a {@link PictureStore}.
+ *
+ * @param key          the key of the object, a {@code /}-separated path relative to the root of the store.
+ * @param size         the size of the object in bytes.
+ * @param contentType  the content type of the object, or {@code null} when the store does not keep it or the
+ *                     object was obtained from a listing.
+ * @param lastModified the last time the object was stored or refreshed.
+ */
+public record StoredObject(String key, long size, String contentType, Instant lastModified) {
+}
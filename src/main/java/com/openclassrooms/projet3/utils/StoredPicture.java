@@ -0,0 +1,13 @@
+package com.openclassrooms.projet3.utils;
+
+/**
+ * Result of storing a picture in the content-addressed uploads directory.
+ *
+ * @param filename    the name of the stored file, {@code <sha256><extension>}.
+ * @param url         the public URL of the stored file. It never changes content and can be cached forever.
+ * @param size        the size of the content in bytes.
+ * @param sha256      the hex-encoded SHA-256 digest of the content, computed while the content was read.
+ * @param contentType the content type of the picture.
+ */
+public record StoredPicture(String filename, String url, long size, String sha256, String contentType) {
+}
@@ -1,38 +1,393 @@
 package com.openclassrooms.projet3.utils.impl;
 
+import com.openclassrooms.projet3.excepton.CustomBadRequestException;
+import com.openclassrooms.projet3.excepton.CustomNotFoundException;
+import com.openclassrooms.projet3.excepton.CustomNotImplementedException;
+import com.openclassrooms.projet3.excepton.CustomPayloadTooLargeException;
+import com.openclassrooms.projet3.excepton.CustomServiceUnavailableException;
+import com.openclassrooms.projet3.excepton.CustomUnsupportedMediaTypeException;
 import com.openclassrooms.projet3.utils.ImageUtils;
+import com.openclassrooms.projet3.utils.PictureFormat;
+import com.openclassrooms.projet3.utils.PictureShards;
+import com.openclassrooms.projet3.utils.PictureStore;
+import com.openclassrooms.projet3.utils.PresignedUpload;
+import com.openclassrooms.projet3.utils.StoredObject;
+import com.openclassrooms.projet3.utils.StoredPicture;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 public class ImageUtilsImpl implements ImageUtils {
 
+    private static final String TMP_PREFIX = "upload-";
+    private static final String TMP_SUFFIX = ".part";
+
+    private final PictureStore pictureStore;
+    private final Path uploadsDir;
+    private final long maxUploadSize;
+    private final int streamBufferSize;
+    private final int maxStreamBuffers;
+
+    /**
+     * Direct buffers used to read uploads. They are allocated lazily up to {@code maxStreamBuffers}
+     * and then recycled, so the off-heap footprint of uploads is bounded whatever the number of clients.
+     * Uploads beyond that are refused with a 503 rather than left waiting on a request thread.
+     */
+    private final BlockingQueue<ByteBuffer> streamBuffers;
+    private final AtomicInteger allocatedStreamBuffers = new AtomicInteger();
+
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary storedSizes;
+
+    public ImageUtilsImpl(PictureStore pictureStore,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.uploads.location:uploads}") String uploadsLocation,
+                          @Value("${spring.servlet.multipart.max-file-size:100MB}") DataSize maxUploadSize,
+                          @Value("${app.uploads.stream-buffer-size:64KB}") DataSize streamBufferSize,
+                          @Value("${app.uploads.stream-buffers:16}") int maxStreamBuffers) {
+        this.pictureStore = pictureStore;
+        this.meterRegistry = meterRegistry;
+        this.storedSizes = DistributionSummary.builder("pictures.store.size")
+                .description("Size of the uploaded pictures")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.uploadsDir = Paths.get(uploadsLocation).toAbsolutePath().normalize();
+        this.maxUploadSize = maxUploadSize.toBytes();
+        this.streamBufferSize = (int) streamBufferSize.toBytes();
+        this.maxStreamBuffers = maxStreamBuffers;
+        this.streamBuffers = new ArrayBlockingQueue<>(maxStreamBuffers);
+    }
+
     @Override
-    public String storePicture(MultipartFile file) throws IOException {
+    public StoredPicture storePicture(MultipartFile file) throws IOException {
+        return timed("multipart", () -> storeMultipart(file));
+    }
+
+    private StoredPicture storeMultipart(MultipartFile file) throws IOException {
         if (file.isEmpty()) {
-            throw new IOException("Failed to store empty file.");
+            throw new CustomBadRequestException("Failed to store empty file.");
         }
-        String uploadsDirPath = "uploads";
-        Path uploadsDir = Paths.get(uploadsDirPath);
-        if (!Files.exists(uploadsDir)) {
-            Files.createDirectories(uploadsDir);
+        // Multipart clients do not always send a precise part type, in that case the format is sniffed
+        PictureFormat declared = PictureFormat.fromContentType(file.getContentType()).orElse(null);
+
+        // First pass only hashes: the part is already spooled by the container, so it is written
+        // to the picture store only if no identical picture is stored yet.
+        Digested digested;
+        try (ReadableByteChannel source = Channels.newChannel(file.getInputStream())) {
+            digested = digest(source, declared, null);
+        }
+
+        String key = digested.key();
+        if (!pictureStore.refresh(key)) {
+            Path tmp = uploadsDirectory().resolve(TMP_PREFIX + UUID.randomUUID() + TMP_SUFFIX).toAbsolutePath();
+            try {
+                file.transferTo(tmp.toFile());
+                pictureStore.put(key, tmp, digested.format().getContentType());
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        return digested.toStoredPicture(pictureUrl(digested.filename()));
+    }
+
+    @Override
+    public StoredPicture storePicture(ReadableByteChannel source, String contentType, long contentLength) throws IOException {
+        return timed("stream", () -> storeStream(source, contentType, contentLength));
+    }
+
+    private StoredPicture storeStream(ReadableByteChannel source, String contentType, long contentLength) throws IOException {
+        PictureFormat format = PictureFormat.fromContentType(contentType)
+                .orElseThrow(() -> new CustomUnsupportedMediaTypeException("Unsupported picture type: " + contentType, false));
+        if (contentLength > maxUploadSize) {
+            throw new CustomPayloadTooLargeException("Picture exceeds the maximum upload size of " + maxUploadSize + " bytes");
+        }
+
+        Path tmp = Files.createTempFile(uploadsDirectory(), TMP_PREFIX, TMP_SUFFIX);
+        try {
+            Digested digested;
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                digested = digest(source, format, out);
+            }
+            String key = digested.key();
+            if (!pictureStore.refresh(key)) {
+                pictureStore.put(key, tmp, digested.format().getContentType());
+            }
+            return digested.toStoredPicture(pictureUrl(digested.filename()));
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Records the duration of an upload in {@code pictures.store}, tagged with the upload kind and its outcome, and
+     * the size of the stored picture in {@code pictures.store.size}.
+     */
+    private StoredPicture timed(String upload, PictureUpload store) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            StoredPicture stored = store.run();
+            storedSizes.record(stored.size());
+            outcome = "success";
+            return stored;
+        } finally {
+            sample.stop(Timer.builder("pictures.store")
+                    .description("Time to hash and store an uploaded picture")
+                    .tags("upload", upload, "outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    @FunctionalInterface
+    private interface PictureUpload {
+        StoredPicture run() throws IOException;
+    }
+
+    @Override
+    public StoredPicture importPicture(Path file) throws IOException {
+        Digested digested;
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            digested = digest(source, null, null);
+        }
+        String key = digested.key();
+        if (!pictureStore.refresh(key)) {
+            // copied to a temporary file first, which the store may move in place of the original
+            Path tmp = Files.createTempFile(uploadsDirectory(), TMP_PREFIX, TMP_SUFFIX);
+            try {
+                Files.copy(file, tmp, StandardCopyOption.REPLACE_EXISTING);
+                pictureStore.put(key, tmp, digested.format().getContentType());
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        return digested.toStoredPicture(pictureUrl(digested.filename()));
+    }
+
+    @Override
+    public PresignedUpload presignPictureUpload(String sha256, String contentType, long contentLength) {
+        PictureFormat format = PictureFormat.fromContentType(contentType)
+                .orElseThrow(() -> new CustomUnsupportedMediaTypeException("Unsupported picture type: " + contentType, false));
+        if (contentLength > maxUploadSize) {
+            throw new CustomPayloadTooLargeException("Picture exceeds the maximum upload size of " + maxUploadSize + " bytes");
+        }
+        String digest = sha256 == null ? "" : sha256.toLowerCase(Locale.ROOT);
+        if (contentLength <= 0 || !isSha256(digest)) {
+            throw new CustomBadRequestException("A picture upload needs the SHA-256 digest and the length of its content");
+        }
+        Digested digested = new Digested(digest, format, contentLength);
+        return pictureStore.presignUpload(digested.key(), format.getContentType(), contentLength, digest)
+                .orElseThrow(() -> new CustomNotImplementedException("The picture store does not support direct uploads"));
+    }
+
+    @Override
+    public StoredPicture registerUploadedPicture(String key) throws IOException {
+        String filename = key == null ? "" : key.substring(key.lastIndexOf('/') + 1);
+        String digest = digestOf(filename);
+        Optional<PictureFormat> format = PictureFormat.fromFilename(filename);
+        // only keys handed out by presignPictureUpload are accepted, so a client cannot claim any object of the store
+        if (digest == null || format.isEmpty() || !key.equals(pictureKey(filename))) {
+            throw new CustomNotFoundException("Uploaded picture not found");
+        }
+        StoredObject object = pictureStore.stat(key)
+                .orElseThrow(() -> new CustomNotFoundException("Uploaded picture not found"));
+        if (object.size() > maxUploadSize) {
+            throw new CustomPayloadTooLargeException("Picture exceeds the maximum upload size of " + maxUploadSize + " bytes");
+        }
+        // the store checked the content against the digest, only the format remains to be checked
+        byte[] head = pictureStore.readHead(key, PictureFormat.MAGIC_LENGTH);
+        checkFormat(ByteBuffer.wrap(head).position(head.length), format.get());
+        return new Digested(digest, format.get(), object.size()).toStoredPicture(pictureUrl(filename));
+    }
+
+    @Override
+    public String digestOf(String pictureUrl) {
+        if (pictureUrl == null) {
+            return null;
         }
-        String filename = System.currentTimeMillis() + "_" + file.getOriginalFilename();
-        Path destinationFile = uploadsDir.resolve(Paths.get(filename)).normalize().toAbsolutePath();
+        String filename = pictureUrl.substring(pictureUrl.lastIndexOf('/') + 1);
+        int extension = filename.lastIndexOf('.');
+        String name = extension >= 0 ? filename.substring(0, extension) : filename;
+        return isSha256(name) ? name : null;
+    }
 
-        if (!destinationFile.getParent().equals(uploadsDir.toAbsolutePath())) {
-            throw new IOException("Cannot store file outside of the predefined directory.");
+    @Override
+    public String pictureKey(String filename) {
+        if (filename == null || filename.isEmpty() || filename.startsWith(".")
+                || filename.indexOf('/') >= 0 || filename.indexOf('\\') >= 0) {
+            return null;
         }
+        String digest = digestOf(filename);
+        // pictures uploaded before content addressing keep their original place at the root
+        return digest != null ? PictureShards.key(digest, filename) : filename;
+    }
 
-        file.transferTo(destinationFile);
+    @Override
+    public Path getUploadsDirectory() {
+        return uploadsDir;
+    }
+
+    @Override
+    public boolean isTemporaryFile(String filename) {
+        return filename.startsWith(TMP_PREFIX) && filename.endsWith(TMP_SUFFIX);
+    }
+
+    private Path uploadsDirectory() throws IOException {
+        if (!Files.exists(uploadsDir)) {
+            Files.createDirectories(uploadsDir);
+        }
+        return uploadsDir;
+    }
 
+    private String pictureUrl(String filename) {
+        if (RequestContextHolder.getRequestAttributes() == null) {
+            // background jobs have no request to take the host from
+            return "/uploads/" + filename;
+        }
         String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
         return baseUrl + "/uploads/" + filename;
     }
+
+    /**
+     * Reads the whole content through a pooled direct buffer, checking the format on the first bytes, enforcing
+     * the upload limit and feeding every chunk to a SHA-256 digest.
+     *
+     * @param source   the content to read.
+     * @param declared the declared format the content must match, or {@code null} to detect it from the content.
+     * @param out      the file the content is copied to, or {@code null} to only hash it.
+     */
+    private Digested digest(ReadableByteChannel source, PictureFormat declared, FileChannel out) throws IOException {
+        ByteBuffer buffer = acquireStreamBuffer();
+        try {
+            MessageDigest digest = sha256();
+            PictureFormat format = null;
+            long size = 0;
+            buffer.clear();
+            int read;
+            while ((read = source.read(buffer)) != -1) {
+                size += read;
+                if (size > maxUploadSize) {
+                    throw new CustomPayloadTooLargeException("Picture exceeds the maximum upload size of " + maxUploadSize + " bytes");
+                }
+                if (format == null) {
+                    if (buffer.position() < PictureFormat.MAGIC_LENGTH) {
+                        continue;
+                    }
+                    format = checkFormat(buffer, declared);
+                }
+                drain(buffer, digest, out);
+            }
+            if (size == 0) {
+                throw new CustomBadRequestException("Failed to store empty file.");
+            }
+            if (format == null) {
+                format = checkFormat(buffer, declared);
+            }
+            drain(buffer, digest, out);
+            return new Digested(HexFormat.of().formatHex(digest.digest()), format, size);
+        } finally {
+            streamBuffers.offer(buffer);
+        }
+    }
+
+    /**
+     * Feeds the filled part of the buffer to the digest, writes it to the file if any and clears the buffer for the next read.
+     */
+    private static void drain(ByteBuffer buffer, MessageDigest digest, FileChannel out) throws IOException {
+        buffer.flip();
+        buffer.mark();
+        digest.update(buffer);
+        if (out != null) {
+            buffer.reset();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+        buffer.clear();
+    }
+
+    private static PictureFormat checkFormat(ByteBuffer head, PictureFormat declared) {
+        if (declared == null) {
+            return PictureFormat.detect(head)
+                    .orElseThrow(() -> new CustomUnsupportedMediaTypeException("Picture content is not a supported image type"));
+        }
+        if (!declared.matches(head)) {
+            throw new CustomUnsupportedMediaTypeException("Picture content does not match its declared type " + declared.getContentType());
+        }
+        return declared;
+    }
+
+    private ByteBuffer acquireStreamBuffer() {
+        ByteBuffer buffer = streamBuffers.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        if (allocatedStreamBuffers.incrementAndGet() <= maxStreamBuffers) {
+            return ByteBuffer.allocateDirect(streamBufferSize);
+        }
+        allocatedStreamBuffers.decrementAndGet();
+        throw new CustomServiceUnavailableException("Too many concurrent uploads, please try again later.");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static boolean isSha256(String name) {
+        if (name.length() != 64) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private record Digested(String sha256, PictureFormat format, long size) {
+
+        String filename() {
+            return sha256 + format.getExtension();
+        }
+
+        String key() {
+            return PictureShards.key(sha256, filename());
+        }
+
+        StoredPicture toStoredPicture(String url) {
+            return new StoredPicture(filename(), url, size, sha256, format.getContentType());
+        }
+    }
 }
@@ -0,0 +1,153 @@
+package com.openclassrooms.projet3.utils.impl;
+
+import com.openclassrooms.projet3.utils.PictureStore;
+import com.openclassrooms.projet3.utils.PresignedUpload;
+import com.openclassrooms.projet3.utils.StoredObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Picture store on the local filesystem, rooted at {@code app.uploads.location}. Keys map to relative paths.
+ * <p>
+ * Files are served by this node, so a single instance can run with this store. Direct uploads are not supported.
+ */
+@Component
+@ConditionalOnProperty(name = "app.pictures.store", havingValue = "local", matchIfMissing = true)
+public class LocalPictureStore implements PictureStore {
+
+    private final Path root;
+
+    public LocalPictureStore(@Value("${app.uploads.location:uploads}") String location) {
+        this.root = Paths.get(location).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void put(String key, Path file, String contentType) throws IOException {
+        Path target = resolve(key).orElseThrow(() -> new IOException("Invalid picture key: " + key));
+        if (Files.exists(target)) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // an identical picture was stored in the meantime
+        }
+    }
+
+    @Override
+    public boolean refresh(String key) throws IOException {
+        Optional<Path> file = resolve(key);
+        if (file.isEmpty()) {
+            return false;
+        }
+        try {
+            Files.setLastModifiedTime(file.get(), FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        Optional<Path> file = resolve(key);
+        if (file.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file.get(), BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return Optional.empty();
+            }
+            return Optional.of(new StoredObject(key, attributes.size(), null, attributes.lastModifiedTime().toInstant()));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        Path file = resolve(key).orElseThrow(() -> new NoSuchFileException(key));
+        return Files.newInputStream(file);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Optional<Path> file = resolve(key);
+        if (file.isPresent()) {
+            Files.deleteIfExists(file.get());
+        }
+    }
+
+    @Override
+    public Stream<StoredObject> list(String prefix, boolean recursive) throws IOException {
+        Path directory = prefix.isEmpty() ? root : resolve(prefix).orElse(null);
+        if (directory == null || !Files.isDirectory(directory)) {
+            return Stream.empty();
+        }
+        Stream<Path> files = recursive ? Files.walk(directory) : Files.list(directory);
+        return files.map(this::toStoredObject).flatMap(Optional::stream);
+    }
+
+    @Override
+    public Optional<Path> localFile(String key) {
+        return resolve(key).filter(Files::isRegularFile);
+    }
+
+    @Override
+    public Optional<URI> downloadUrl(String key) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<PresignedUpload> presignUpload(String key, String contentType, long contentLength, String sha256) {
+        return Optional.empty();
+    }
+
+    /**
+     * Maps a key to its path, rejecting keys that would escape the root of the store.
+     */
+    private Optional<Path> resolve(String key) {
+        if (key == null || key.isEmpty()) {
+            return Optional.empty();
+        }
+        Path file = root.resolve(key).normalize();
+        if (!file.startsWith(root) || file.equals(root)) {
+            return Optional.empty();
+        }
+        return Optional.of(file);
+    }
+
+    /**
+     * @return the object for a regular file, or empty for directories and files deleted while being listed.
+     */
+    private Optional<StoredObject> toStoredObject(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return Optional.empty();
+            }
+            String key = root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+            return Optional.of(new StoredObject(key, attributes.size(), null, attributes.lastModifiedTime().toInstant()));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package com.openclassrooms.projet3.utils.impl;
+
+import com.openclassrooms.projet3.utils.CachedPicture;
+import com.openclassrooms.projet3.utils.PictureCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Picture cache kept outside of the Java heap, in direct {@link ByteBuffer} slabs.
+ * <p>
+ * Slabs are allocated on demand up to {@code app.uploads.cache.capacity} and split into fixed-size blocks; an entry
+ * holds as many blocks as its size needs, so memory is reused without fragmentation and the garbage collector
+ * never sees the cached bytes. Entries are written to the response straight from the slabs.
+ * <p>
+ * Eviction is LRU with a TinyLFU admission filter: when the cache is full, a new file only replaces the least
+ * recently used entries if it has been requested more often than them, according to a small count-min sketch of
+ * recent accesses. A burst of one-off requests therefore cannot flush the homepage pictures out of the cache.
+ * <p>
+ * Each entry carries the CRC32C of its content, checked on every hit: a mismatch evicts the entry and the file is
+ * served from disk instead.
+ */
+@Component
+public class OffHeapPictureCache implements PictureCache, MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapPictureCache.class);
+
+    private final boolean enabled;
+    private final boolean verifyChecksums;
+    private final int blockSize;
+    private final int blocksPerSlab;
+    private final long maxEntrySize;
+
+    // taken on every picture request: a virtual thread waiting for a monitor would block its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ByteBuffer[] slabs;
+    private int allocatedSlabs;
+    private final int[] freeBlocks;
+    private int freeCount;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private volatile long residentBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder checksumFailures = new LongAdder();
+
+    public OffHeapPictureCache(@Value("${app.uploads.cache.enabled:true}") boolean enabled,
+                               @Value("${app.uploads.cache.capacity:64MB}") DataSize capacity,
+                               @Value("${app.uploads.cache.slab-size:4MB}") DataSize slabSize,
+                               @Value("${app.uploads.cache.block-size:16KB}") DataSize blockSize,
+                               @Value("${app.uploads.cache.max-entry-size:2MB}") DataSize maxEntrySize,
+                               @Value("${app.uploads.cache.verify-checksums:true}") boolean verifyChecksums) {
+        this.enabled = enabled;
+        this.verifyChecksums = verifyChecksums;
+        this.blockSize = (int) blockSize.toBytes();
+        this.blocksPerSlab = (int) (slabSize.toBytes() / this.blockSize);
+        if (blocksPerSlab <= 0) {
+            throw new IllegalArgumentException("The cache slab size must be at least one block");
+        }
+        int maxSlabs = enabled ? (int) (capacity.toBytes() / ((long) blocksPerSlab * this.blockSize)) : 0;
+        this.maxEntrySize = Math.min(maxEntrySize.toBytes(), (long) maxSlabs * blocksPerSlab * this.blockSize);
+        this.slabs = new ByteBuffer[maxSlabs];
+        this.freeBlocks = new int[maxSlabs * blocksPerSlab];
+        this.sketch = new FrequencySketch(Math.max(freeBlocks.length, 64));
+    }
+
+    @Override
+    public Optional<CachedPicture> acquire(Path file, long size) throws IOException {
+        if (!enabled || size <= 0 || size > maxEntrySize) {
+            return Optional.empty();
+        }
+        String key = file.toAbsolutePath().toString();
+        Entry hit = null;
+        lock.lock();
+        try {
+            sketch.increment(key);
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.size == size && entry.retain()) {
+                    hit = entry;
+                } else {
+                    evict(entry);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (hit != null) {
+            if (!verifyChecksums || hit.computeChecksum() == hit.checksum) {
+                hits.increment();
+                return Optional.of(hit);
+            }
+            logger.warn("Checksum mismatch for cached picture {}, evicting it", key);
+            checksumFailures.increment();
+            hit.close();
+            lock.lock();
+            try {
+                if (entries.get(key) == hit) {
+                    evict(hit);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        misses.increment();
+        return load(key, file, size);
+    }
+
+    private Optional<CachedPicture> load(String key, Path file, long size) throws IOException {
+        int needed = (int) ((size + blockSize - 1) / blockSize);
+        int[] blocks;
+        lock.lock();
+        try {
+            blocks = allocate(needed);
+            if (blocks == null && makeRoom(key, needed)) {
+                blocks = allocate(needed);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (blocks == null) {
+            rejections.increment();
+            return Optional.empty();
+        }
+
+        Entry entry = new Entry(key, blocks, size);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = 0;
+            for (int block : blocks) {
+                ByteBuffer slice = slice(block, 0, (int) Math.min(blockSize, size - position));
+                while (slice.hasRemaining()) {
+                    if (channel.read(slice, position + slice.position()) < 0) {
+                        // the file shrank since its size was read: leave it to the uncached path
+                        free(blocks);
+                        return Optional.empty();
+                    }
+                }
+                position += blockSize;
+            }
+        } catch (IOException | RuntimeException e) {
+            free(blocks);
+            throw e;
+        }
+        entry.checksum = entry.computeChecksum();
+
+        lock.lock();
+        try {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                // loaded concurrently by another request
+                residentBytes -= previous.size;
+                previous.close();
+            }
+            residentBytes += size;
+            entry.retain();
+        } finally {
+            lock.unlock();
+        }
+        return Optional.of(entry);
+    }
+
+    /**
+     * Evicts least recently used entries until enough blocks are free, provided the candidate is requested more
+     * often than every one of them. Must be called with the lock held.
+     *
+     * @return whether entries were evicted.
+     */
+    private boolean makeRoom(String candidate, int needed) {
+        int candidateFrequency = sketch.frequency(candidate);
+        int available = freeCount + (slabs.length - allocatedSlabs) * blocksPerSlab;
+        List<Entry> victims = new ArrayList<>();
+        Iterator<Entry> lru = entries.values().iterator();
+        while (available < needed && lru.hasNext()) {
+            Entry victim = lru.next();
+            if (sketch.frequency(victim.key) >= candidateFrequency) {
+                return false;
+            }
+            victims.add(victim);
+            available += victim.blocks.length;
+        }
+        if (available < needed) {
+            return false;
+        }
+        victims.forEach(this::evict);
+        return true;
+    }
+
+    private void evict(Entry entry) {
+        entries.remove(entry.key);
+        residentBytes -= entry.size;
+        evictions.increment();
+        // the blocks are only reused once the responses still writing the entry are done with it
+        entry.close();
+    }
+
+    /**
+     * Takes free blocks, allocating a new slab if needed. Must be called with the lock held.
+     *
+     * @return the blocks, or {@code null} if not enough of them are free.
+     */
+    private int[] allocate(int count) {
+        while (freeCount < count && allocatedSlabs < slabs.length) {
+            slabs[allocatedSlabs] = ByteBuffer.allocateDirect(blocksPerSlab * blockSize);
+            for (int i = blocksPerSlab - 1; i >= 0; i--) {
+                freeBlocks[freeCount++] = allocatedSlabs * blocksPerSlab + i;
+            }
+            allocatedSlabs++;
+        }
+        if (freeCount < count) {
+            return null;
+        }
+        int[] blocks = new int[count];
+        freeCount -= count;
+        System.arraycopy(freeBlocks, freeCount, blocks, 0, count);
+        return blocks;
+    }
+
+    private void free(int[] blocks) {
+        lock.lock();
+        try {
+            System.arraycopy(blocks, 0, freeBlocks, freeCount, blocks.length);
+            freeCount += blocks.length;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ByteBuffer slice(int block, int offset, int length) {
+        return slabs[block / blocksPerSlab].slice((block % blocksPerSlab) * blockSize + offset, length);
+    }
+
+    double hitRatio() {
+        double requests = hits.sum() + misses.sum();
+        return requests == 0 ? 0 : hits.sum() / requests;
+    }
+
+    long residentBytes() {
+        return residentBytes;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("pictures.cache.hit.ratio", this, OffHeapPictureCache::hitRatio)
+                .description("Share of picture cache lookups served from memory")
+                .register(registry);
+        Gauge.builder("pictures.cache.resident", this, OffHeapPictureCache::residentBytes)
+                .description("Size of the pictures held by the picture cache")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("pictures.cache.reserved", this, cache -> (double) cache.allocatedSlabs * cache.blocksPerSlab * cache.blockSize)
+                .description("Off-heap memory allocated by the picture cache")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("pictures.cache.requests", hits, LongAdder::sum).tag("result", "hit").register(registry);
+        FunctionCounter.builder("pictures.cache.requests", misses, LongAdder::sum).tag("result", "miss").register(registry);
+        FunctionCounter.builder("pictures.cache.evictions", evictions, LongAdder::sum).register(registry);
+        FunctionCounter.builder("pictures.cache.rejections", rejections, LongAdder::sum)
+                .description("Pictures not cached because the entries they would replace are requested more often")
+                .register(registry);
+        FunctionCounter.builder("pictures.cache.checksum.failures", checksumFailures, LongAdder::sum).register(registry);
+    }
+
+    private final class Entry implements CachedPicture {
+
+        private final String key;
+        private final int[] blocks;
+        private final long size;
+        private int checksum;
+        // one reference for the cache itself, one per response being written from the entry
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private Entry(String key, int[] blocks, long size) {
+            this.key = key;
+            this.blocks = blocks;
+            this.size = size;
+        }
+
+        private boolean retain() {
+            int current;
+            do {
+                current = references.get();
+                if (current == 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        private int computeChecksum() {
+            CRC32C crc = new CRC32C();
+            long remaining = size;
+            for (int block : blocks) {
+                int length = (int) Math.min(blockSize, remaining);
+                crc.update(slice(block, 0, length));
+                remaining -= length;
+            }
+            return (int) crc.getValue();
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            long offset = position;
+            long remaining = Math.min(count, size - position);
+            while (remaining > 0) {
+                int inBlock = (int) (offset % blockSize);
+                int length = (int) Math.min(blockSize - inBlock, remaining);
+                ByteBuffer slice = slice(blocks[(int) (offset / blockSize)], inBlock, length);
+                while (slice.hasRemaining()) {
+                    target.write(slice);
+                }
+                offset += length;
+                remaining -= length;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (references.decrementAndGet() == 0) {
+                free(blocks);
+            }
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters estimating how often keys were requested recently. Counters are halved
+     * periodically so that the popularity of past requests fades away. Must be used with the lock held.
+     */
+    private static final class FrequencySketch {
+
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+        private static final int MAX_COUNT = 15;
+
+        private final byte[][] rows = new byte[SEEDS.length][];
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(int expectedEntries) {
+            int width = Integer.highestOneBit(expectedEntries - 1) << 1;
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = new byte[width];
+            }
+            this.mask = width - 1;
+            this.sampleSize = 10 * width;
+        }
+
+        private void increment(String key) {
+            int hash = key.hashCode();
+            for (int i = 0; i < rows.length; i++) {
+                int index = index(hash, i);
+                if (rows[i][index] < MAX_COUNT) {
+                    rows[i][index]++;
+                }
+            }
+            if (++additions >= sampleSize) {
+                for (byte[] row : rows) {
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] >>= 1;
+                    }
+                }
+                additions /= 2;
+            }
+        }
+
+        private int frequency(String key) {
+            int hash = key.hashCode();
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < rows.length; i++) {
+                frequency = Math.min(frequency, rows[i][index(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            h ^= h >>> 16;
+            return h & mask;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.openclassrooms.projet3.utils.impl;
+
+import com.openclassrooms.projet3.utils.CachedPicture;
+import com.openclassrooms.projet3.utils.PictureCache;
+import com.openclassrooms.projet3.utils.PictureResponseWriter;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.ServletResponseWrapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.connector.CoyoteOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Optional;
+
+@Component
+public class PictureResponseWriterImpl implements PictureResponseWriter {
+
+    // Tomcat sendfile contract: when supported, the connector streams the file itself once the request completes
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=" + Duration.ofDays(365).toSeconds() + ", immutable";
+
+    /**
+     * Marker returned by {@link #parseRange(String, long)} for ranges that lie entirely beyond the end of the file.
+     */
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    private final PictureCache pictureCache;
+    private final long sendfileThreshold;
+    private final String mutableCacheControl;
+
+    public PictureResponseWriterImpl(PictureCache pictureCache,
+                                     @Value("${app.uploads.sendfile-threshold:48KB}") DataSize sendfileThreshold,
+                                     @Value("${app.uploads.cache-max-age:1h}") Duration mutableMaxAge) {
+        this.pictureCache = pictureCache;
+        this.sendfileThreshold = sendfileThreshold.toBytes();
+        this.mutableCacheControl = "public, max-age=" + mutableMaxAge.toSeconds();
+    }
+
+    @Override
+    public void write(HttpServletRequest request, HttpServletResponse response, Path file, MediaType contentType, boolean immutable) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attributes.size();
+        // HTTP dates have a one second resolution
+        long lastModified = attributes.lastModifiedTime().toMillis() / 1000 * 1000;
+        String etag = immutable
+                ? "\"" + file.getFileName() + "\""
+                : "W/\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (immutable) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE_CACHE_CONTROL);
+        } else {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, mutableCacheControl);
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        }
+
+        if (isNotModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && ifRangeMatches(request, etag, lastModified)) {
+            long[] parsed = parseRange(range, length);
+            if (parsed == UNSATISFIABLE) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+            if (parsed != null) {
+                start = parsed[0];
+                end = parsed[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentType(contentType.toString());
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        if (count >= sendfileThreshold && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        // sendfile is cheaper still, the cache serves the bodies it does not take: small ones, or all of them on
+        // connectors without sendfile support such as TLS ones
+        Optional<CachedPicture> cached = immutable ? pictureCache.acquire(file, length) : Optional.empty();
+        if (cached.isPresent()) {
+            try (CachedPicture picture = cached.get()) {
+                picture.transferTo(start, count, responseChannel(response));
+            }
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = responseChannel(response);
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, out);
+                if (transferred <= 0) {
+                    throw new EOFException("File shrank while being served: " + file);
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    /**
+     * Opens a channel on the response body. On Tomcat, buffers are handed to the connector as they are, so direct
+     * buffers reach the socket without being copied to the heap; the generic stream adapter copies them to a heap
+     * array first.
+     */
+    private static WritableByteChannel responseChannel(HttpServletResponse response) throws IOException {
+        ServletResponse unwrapped = response;
+        while (unwrapped instanceof ServletResponseWrapper wrapper) {
+            unwrapped = wrapper.getResponse();
+        }
+        if (!(unwrapped.getOutputStream() instanceof CoyoteOutputStream out)) {
+            return Channels.newChannel(response.getOutputStream());
+        }
+        // the wrappers, e.g. the security headers one, may still add headers when the response gets committed
+        response.flushBuffer();
+        return new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer source) throws IOException {
+                int remaining = source.remaining();
+                out.write(source);
+                return remaining - source.remaining();
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            // If-None-Match takes precedence over If-Modified-Since and uses the weak comparison
+            return matchesAny(ifNoneMatch, etag, false);
+        }
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+    }
+
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        String value = ifRange.trim();
+        if (value.startsWith("\"") || value.startsWith("W/")) {
+            return matchesAny(value, etag, true);
+        }
+        return dateHeader(request, HttpHeaders.IF_RANGE) == lastModified;
+    }
+
+    private static boolean matchesAny(String header, String etag, boolean strong) {
+        if (strong && etag.startsWith("W/")) {
+            return false;
+        }
+        String opaqueTag = opaqueTag(etag);
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (strong && tag.startsWith("W/")) {
+                continue;
+            }
+            if (opaqueTag(tag).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parses a single byte range.
+     *
+     * @return the inclusive {@code [start, end]} bounds, {@link #UNSATISFIABLE}, or {@code null} when the header is
+     * malformed or asks for several ranges, in which case the whole file is served as allowed by RFC 9110.
+     */
+    private static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        if (dash == 0) {
+            long suffixLength = position(spec.substring(1));
+            if (suffixLength < 0) {
+                return null;
+            }
+            if (suffixLength == 0) {
+                return UNSATISFIABLE;
+            }
+            return new long[]{Math.max(0, length - suffixLength), length - 1};
+        }
+        long start = position(spec.substring(0, dash));
+        String last = spec.substring(dash + 1);
+        long end = last.isEmpty() ? length - 1 : position(last);
+        if (start < 0 || end < 0) {
+            return null;
+        }
+        if (start >= length) {
+            return UNSATISFIABLE;
+        }
+        end = Math.min(end, length - 1);
+        return end < start ? null : new long[]{start, end};
+    }
+
+    /**
+     * @return the value of a byte position, made of digits only, or -1 if it is not one: {@code Long.parseLong}
+     * alone would accept signs, and {@code bytes=--5} would become a suffix of -5 bytes.
+     */
+    private static long position(String value) {
+        if (value.isEmpty() || value.length() > 18) {
+            return -1;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                return -1;
+            }
+        }
+        return Long.parseLong(value);
+    }
+}
@@ -0,0 +1,244 @@
+package com.openclassrooms.projet3.utils.impl;
+
+import com.openclassrooms.projet3.utils.PictureStore;
+import com.openclassrooms.projet3.utils.PresignedUpload;
+import com.openclassrooms.projet3.utils.StoredObject;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Picture store on an S3-compatible object storage (AWS S3, MinIO, Ceph, ...), selected with
+ * {@code app.pictures.store=s3}.
+ * <p>
+ * Every API node shares the same bucket, so the application can run on several instances. Pictures are downloaded
+ * and uploaded by clients straight from and to the bucket with presigned URLs, valid for
+ * {@code app.pictures.s3.presign-ttl}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.pictures.store", havingValue = "s3")
+public class S3PictureStore implements PictureStore {
+
+    private static final int NOT_FOUND = 404;
+
+    private final String bucket;
+    private final Duration presignTtl;
+    private final S3Client client;
+    private final S3Presigner presigner;
+
+    /**
+     * @param endpoint  the endpoint of an S3-compatible storage, or blank for AWS S3 itself.
+     * @param pathStyle {@code true} to address the bucket in the path rather than in the host name, as most
+     *                  S3-compatible storages expect.
+     * @param accessKey the access key, or blank to use the default AWS credentials chain (environment, profile,
+     *                  instance role).
+     */
+    public S3PictureStore(@Value("${app.pictures.s3.endpoint:}") String endpoint,
+                          @Value("${app.pictures.s3.bucket}") String bucket,
+                          @Value("${app.pictures.s3.region:us-east-1}") String region,
+                          @Value("${app.pictures.s3.path-style:true}") boolean pathStyle,
+                          @Value("${app.pictures.s3.access-key:}") String accessKey,
+                          @Value("${app.pictures.s3.secret-key:}") String secretKey,
+                          @Value("${app.pictures.s3.presign-ttl:15m}") Duration presignTtl) {
+        this.bucket = bucket;
+        this.presignTtl = presignTtl;
+
+        AwsCredentialsProvider credentials = accessKey.isBlank()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        S3Configuration configuration = S3Configuration.builder().pathStyleAccessEnabled(pathStyle).build();
+
+        var clientBuilder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(configuration);
+        var presignerBuilder = S3Presigner.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(configuration);
+        if (!endpoint.isBlank()) {
+            clientBuilder.endpointOverride(URI.create(endpoint));
+            presignerBuilder.endpointOverride(URI.create(endpoint));
+        }
+        this.client = clientBuilder.build();
+        this.presigner = presignerBuilder.build();
+    }
+
+    @PreDestroy
+    public void close() {
+        presigner.close();
+        client.close();
+    }
+
+    @Override
+    public void put(String key, Path file, String contentType) throws IOException {
+        try {
+            client.putObject(PutObjectRequest.builder().bucket(bucket).key(key).contentType(contentType).build(),
+                    RequestBody.fromFile(file));
+        } catch (SdkException e) {
+            throw new IOException("Could not store picture " + key, e);
+        }
+    }
+
+    @Override
+    public boolean refresh(String key) throws IOException {
+        Optional<StoredObject> object = stat(key);
+        if (object.isEmpty()) {
+            return false;
+        }
+        try {
+            // S3 has no "touch": copying the object onto itself with replaced metadata updates its modification time
+            client.copyObject(builder -> builder
+                    .sourceBucket(bucket).sourceKey(key)
+                    .destinationBucket(bucket).destinationKey(key)
+                    .metadataDirective(MetadataDirective.REPLACE)
+                    .contentType(object.get().contentType()));
+            return true;
+        } catch (S3Exception e) {
+            if (e.statusCode() == NOT_FOUND) {
+                return false;
+            }
+            throw new IOException("Could not refresh picture " + key, e);
+        } catch (SdkException e) {
+            throw new IOException("Could not refresh picture " + key, e);
+        }
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        try {
+            HeadObjectResponse head = client.headObject(builder -> builder.bucket(bucket).key(key));
+            return Optional.of(new StoredObject(key, head.contentLength(), head.contentType(), head.lastModified()));
+        } catch (S3Exception e) {
+            if (e.statusCode() == NOT_FOUND) {
+                return Optional.empty();
+            }
+            throw new IOException("Could not read picture " + key, e);
+        } catch (SdkException e) {
+            throw new IOException("Could not read picture " + key, e);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return get(GetObjectRequest.builder().bucket(bucket).key(key).build());
+    }
+
+    @Override
+    public byte[] readHead(String key, int length) throws IOException {
+        // a ranged GET, so checking the format of a large picture does not download all of it
+        try (InputStream in = get(GetObjectRequest.builder().bucket(bucket).key(key).range("bytes=0-" + (length - 1)).build())) {
+            return in.readNBytes(length);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            client.deleteObject(builder -> builder.bucket(bucket).key(key));
+        } catch (SdkException e) {
+            throw new IOException("Could not delete picture " + key, e);
+        }
+    }
+
+    @Override
+    public Stream<StoredObject> list(String prefix, boolean recursive) throws IOException {
+        ListObjectsV2Request.Builder request = ListObjectsV2Request.builder().bucket(bucket).prefix(prefix);
+        if (!recursive) {
+            request.delimiter("/");
+        }
+        try {
+            // pages are fetched lazily while the stream is consumed
+            return client.listObjectsV2Paginator(request.build()).contents().stream()
+                    .map(object -> new StoredObject(object.key(), object.size(), null, object.lastModified()));
+        } catch (SdkException e) {
+            throw new IOException("Could not list pictures under " + prefix, e);
+        }
+    }
+
+    @Override
+    public Optional<Path> localFile(String key) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<URI> downloadUrl(String key) {
+        try {
+            return Optional.of(presigner.presignGetObject(builder -> builder
+                    .signatureDuration(presignTtl)
+                    .getObjectRequest(request -> request.bucket(bucket).key(key))).url().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Invalid presigned URL for " + key, e);
+        }
+    }
+
+    @Override
+    public Optional<PresignedUpload> presignUpload(String key, String contentType, long contentLength, String sha256) {
+        String checksum = Base64.getEncoder().encodeToString(HexFormat.of().parseHex(sha256));
+        PresignedPutObjectRequest presigned = presigner.presignPutObject(builder -> builder
+                .signatureDuration(presignTtl)
+                .putObjectRequest(request -> request.bucket(bucket).key(key)
+                        .contentType(contentType)
+                        .contentLength(contentLength)
+                        .checksumSHA256(checksum)));
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        presigned.signedHeaders().forEach((name, values) -> {
+            // the host is set by the HTTP client from the URL
+            if (!"host".equalsIgnoreCase(name)) {
+                headers.put(name, String.join(",", values));
+            }
+        });
+        try {
+            return Optional.of(new PresignedUpload(key, presigned.url().toURI(), presigned.httpRequest().method().name(),
+                    headers, presigned.expiration()));
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Invalid presigned URL for " + key, e);
+        }
+    }
+
+    private InputStream get(GetObjectRequest request) throws IOException {
+        try {
+            return client.getObject(request);
+        } catch (S3Exception e) {
+            if (e.statusCode() == NOT_FOUND) {
+                throw new NoSuchFileException(request.key());
+            }
+            throw new IOException("Could not read picture " + request.key(), e);
+        } catch (SdkException e) {
+            throw new IOException("Could not read picture " + request.key(), e);
+        }
+    }
+}
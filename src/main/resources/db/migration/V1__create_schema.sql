@@ -0,0 +1,40 @@
+-- Initial schema, as mapped by the JPA entities. Databases created with the script of the README
+-- before migrations were introduced are baselined at this version (spring.flyway.baseline-version).
+
+CREATE TABLE users (
+    id         BIGINT       NOT NULL AUTO_INCREMENT,
+    name       VARCHAR(255) NOT NULL,
+    email      VARCHAR(255) NOT NULL,
+    password   VARCHAR(60)  NOT NULL,
+    created_at DATE,
+    updated_at DATE,
+    PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX users_email_idx ON users (email);
+
+CREATE TABLE rentals (
+    id          BIGINT        NOT NULL AUTO_INCREMENT,
+    name        VARCHAR(255)  NOT NULL,
+    surface     INTEGER       NOT NULL,
+    price       DOUBLE        NOT NULL,
+    picture     VARCHAR(255),
+    description VARCHAR(2000),
+    owner_id    BIGINT        NOT NULL,
+    created_at  DATE,
+    updated_at  DATE,
+    PRIMARY KEY (id),
+    CONSTRAINT rentals_owner_fk FOREIGN KEY (owner_id) REFERENCES users (id)
+);
+
+CREATE TABLE messages (
+    id         BIGINT        NOT NULL AUTO_INCREMENT,
+    rental_id  BIGINT        NOT NULL,
+    user_id    BIGINT        NOT NULL,
+    message    VARCHAR(2000),
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT messages_rental_fk FOREIGN KEY (rental_id) REFERENCES rentals (id),
+    CONSTRAINT messages_user_fk FOREIGN KEY (user_id) REFERENCES users (id)
+);
@@ -0,0 +1,13 @@
+-- Content-addressed picture files and the number of rentals referencing each of them. Baselined
+-- databases may already have the table, created by Hibernate.
+
+CREATE TABLE IF NOT EXISTS pictures (
+    digest       VARCHAR(64)  NOT NULL,
+    filename     VARCHAR(255) NOT NULL,
+    content_type VARCHAR(255) NOT NULL,
+    size         BIGINT       NOT NULL,
+    ref_count    INTEGER      NOT NULL,
+    created_at   DATETIME(6),
+    updated_at   DATETIME(6),
+    PRIMARY KEY (digest)
+);
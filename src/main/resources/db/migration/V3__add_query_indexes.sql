@@ -0,0 +1,13 @@
+-- Indexes for the query patterns of the repositories, checked by RepositoryQueryPlanTest.
+
+-- rentals of an owner, rentals by age (newest first, paged on the id)
+CREATE INDEX rentals_owner_idx ON rentals (owner_id);
+CREATE INDEX rentals_created_idx ON rentals (created_at, id);
+
+-- messages of a rental in order, messages of a user, messages old enough to be archived
+CREATE INDEX messages_rental_created_idx ON messages (rental_id, created_at);
+CREATE INDEX messages_user_idx ON messages (user_id);
+CREATE INDEX messages_created_idx ON messages (created_at);
+
+-- unreferenced pictures, oldest first, for the garbage collection
+CREATE INDEX pictures_unreferenced_idx ON pictures (ref_count, updated_at);
@@ -0,0 +1,22 @@
+-- Change feed of the entities kept in the second-level cache: a row is appended in the transaction of each write
+-- to a rental or a user, and every node evicts the entries named by the rows written by the other nodes.
+
+CREATE TABLE cache_changes (
+    id         BIGINT      NOT NULL AUTO_INCREMENT,
+    entity     VARCHAR(16) NOT NULL,
+    entity_id  BIGINT      NOT NULL,
+    origin     VARCHAR(36) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- changes older than the retention period, pruned
+CREATE INDEX cache_changes_created_idx ON cache_changes (created_at);
+
+-- last change applied by each node, where it resumes after a restart
+CREATE TABLE cache_change_cursors (
+    node_id    VARCHAR(64) NOT NULL,
+    last_id    BIGINT      NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (node_id)
+);
@@ -0,0 +1,9 @@
+-- Leases on the scheduled jobs that must run on a single node at a time, such as the message archival: a node runs
+-- the job only after moving locked_until past the current time, which only succeeds while the lease has expired.
+
+CREATE TABLE job_locks (
+    name         VARCHAR(64)  NOT NULL,
+    locked_until DATETIME(6)  NOT NULL,
+    locked_by    VARCHAR(255) NOT NULL,
+    PRIMARY KEY (name)
+);
@@ -0,0 +1,201 @@
+package com.openclassrooms.projet3.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.projet3.Projet3Application;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * End-to-end load test of the API, started with the {@code perf} profile: in-memory database seeded with a synthetic
+ * dataset of 100 users, 1000 rentals and their messages (see {@link DatasetGenerator}), no external service. Each scenario is run by {@code load.users} virtual users for
+ * {@code load.duration} after a {@code load.warmup}, and reported with its throughput and latency percentiles:
+ * <ul>
+ *     <li>{@code register-login}: registration of a new user then login, both hashing a password;</li>
+ *     <li>{@code browse}: list of the rentals then one rental at random;</li>
+ *     <li>{@code create-rental}: multipart rental creation with a new picture;</li>
+ *     <li>{@code messages}: messages sent to random rentals.</li>
+ * </ul>
+ * The report is printed and written to {@value #REPORT}. Skipped by the default build, run with
+ * {@code mvn test -Pload-test}, adding for instance {@code -Dload.scenarios=browse,messages -Dload.users=100
+ * -Dload.duration=PT60S}.
+ */
+@Tag("benchmark")
+class ApiLoadBenchmarkTest {
+
+    private static final String REPORT = "target/load-test-report.csv";
+    private static final int SEEDED_USERS = 100;
+
+    private final int users = Integer.getInteger("load.users", 50);
+    private final Duration warmup = Duration.parse(System.getProperty("load.warmup", "PT5S"));
+    private final Duration duration = Duration.parse(System.getProperty("load.duration", "PT15S"));
+    private final List<String> selected = Arrays.asList(
+            System.getProperty("load.scenarios", "register-login,browse,create-rental,messages").split(","));
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private String baseUrl;
+    private String[] tokens;
+    private long[] userIds;
+    private List<Long> rentalIds;
+    private byte[] picture;
+
+    @Test
+    void runScenarios() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Projet3Application.class)
+                .profiles("perf")
+                .properties("server.port=0")
+                .run()) {
+            baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            rentalIds = jdbcTemplate.queryForList("select id from rentals order by id", Long.class);
+            tokens = new String[SEEDED_USERS];
+            userIds = new long[SEEDED_USERS];
+            List<Map<String, Object>> seeded = jdbcTemplate.queryForList(
+                    "select id, email from users order by id limit " + SEEDED_USERS);
+            for (int i = 0; i < SEEDED_USERS; i++) {
+                tokens[i] = token(client.send(json("/api/auth/login", null, "{\"email\":\"" + seeded.get(i).get("email")
+                        + "\",\"password\":\"" + DatasetGenerator.PASSWORD + "\"}"), HttpResponse.BodyHandlers.ofString()));
+                userIds[i] = ((Number) seeded.get(i).get("id")).longValue();
+            }
+            picture = png();
+
+            Map<String, LoadGenerator.Scenario> scenarios = new LinkedHashMap<>();
+            scenarios.put("register-login", this::registerAndLogin);
+            scenarios.put("browse", this::browse);
+            scenarios.put("create-rental", this::createRental);
+            scenarios.put("messages", this::sendMessage);
+
+            LoadGenerator generator = new LoadGenerator();
+            List<LoadGenerator.Report> reports = new ArrayList<>();
+            for (Map.Entry<String, LoadGenerator.Scenario> scenario : scenarios.entrySet()) {
+                if (selected.contains(scenario.getKey())) {
+                    reports.add(generator.run(scenario.getKey(), scenario.getValue(), users, warmup, duration));
+                }
+            }
+
+            System.out.println(LoadGenerator.Report.HEADER);
+            reports.forEach(System.out::println);
+            writeReport(reports);
+            assertThat(reports).isNotEmpty().allSatisfy(report -> {
+                assertThat(report.requests()).as(report.scenario()).isPositive();
+                assertThat(report.errors()).as(report.scenario()).isZero();
+            });
+        }
+    }
+
+    private void registerAndLogin(int user, LoadGenerator.Session session) throws Exception {
+        String email = "load-" + sequence.incrementAndGet() + "@perf.test";
+        session.send(json("/api/auth/register", null,
+                "{\"name\":\"Load\",\"email\":\"" + email + "\",\"password\":\"password\"}"), 201);
+        session.send(json("/api/auth/login", null, "{\"email\":\"" + email + "\",\"password\":\"password\"}"), 200);
+    }
+
+    private void browse(int user, LoadGenerator.Session session) throws Exception {
+        session.send(get("/api/rentals", tokens[user % SEEDED_USERS]), 200);
+        session.send(get("/api/rentals/" + randomRental(), tokens[user % SEEDED_USERS]), 200);
+    }
+
+    private void createRental(int user, LoadGenerator.Session session) throws Exception {
+        // the same image with a distinct trailer: every picture is new to the content-addressed store
+        byte[] content = Arrays.copyOf(picture, picture.length + Long.BYTES);
+        ByteBuffer.wrap(content, picture.length, Long.BYTES).putLong(sequence.incrementAndGet());
+        String boundary = "load-test-boundary";
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (String[] field : new String[][]{{"name", "Maison"}, {"surface", "80"}, {"price", "1200"},
+                {"description", "Proche de la mer"}}) {
+            body.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + field[0] + "\"\r\n\r\n"
+                    + field[1] + "\r\n").getBytes(StandardCharsets.UTF_8));
+        }
+        body.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"picture\"; filename=\"maison.png\"\r\n"
+                + "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(content);
+        body.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        session.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/rentals"))
+                .header("Authorization", "Bearer " + tokens[user % SEEDED_USERS])
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build(), 201);
+    }
+
+    private void sendMessage(int user, LoadGenerator.Session session) throws Exception {
+        session.send(json("/api/messages", tokens[user % SEEDED_USERS],
+                "{\"rental_id\":" + randomRental() + ",\"user_id\":" + userIds[user % SEEDED_USERS]
+                        + ",\"message\":\"Bonjour, la maison est-elle disponible en juillet ?\"}"), 201);
+    }
+
+    private long randomRental() {
+        return rentalIds.get(ThreadLocalRandom.current().nextInt(rentalIds.size()));
+    }
+
+    private HttpRequest get(String path, String token) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).header("Authorization", "Bearer " + token).GET().build();
+    }
+
+    private HttpRequest json(String path, String token, String body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        return (token == null ? request : request.header("Authorization", "Bearer " + token)).build();
+    }
+
+    private String token(HttpResponse<String> response) throws IOException {
+        assertThat(response.statusCode()).as(response.body()).isEqualTo(200);
+        return objectMapper.readTree(response.body()).get("token").asText();
+    }
+
+    /**
+     * A 640x480 photo-like PNG (a gradient), so that picture variants can be generated from it.
+     */
+    private static byte[] png() throws IOException {
+        BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, (x * 255 / image.getWidth()) << 16 | (y * 255 / image.getHeight()) << 8 | 128);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private void writeReport(List<LoadGenerator.Report> reports) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("scenario,users,requests,errors,requests_per_second,p50_ms,p99_ms,p999_ms");
+        for (LoadGenerator.Report report : reports) {
+            lines.add(String.format(Locale.ROOT, "%s,%d,%d,%d,%.1f,%.2f,%.2f,%.2f", report.scenario(),
+                    report.users(), report.requests(), report.errors(), report.throughput(),
+                    report.p50(), report.p99(), report.p999()));
+        }
+        Files.write(Path.of(REPORT), lines);
+    }
+}
@@ -0,0 +1,400 @@
+package com.openclassrooms.projet3.benchmark;
+
+import com.openclassrooms.projet3.utils.PictureShards;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.imageio.ImageIO;
+import javax.sql.DataSource;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Fills the {@code users}, {@code rentals}, {@code messages} and {@code pictures} tables, and the uploads directory,
+ * with a synthetic dataset shaped like production data:
+ * <ul>
+ *     <li>rental owners and message targets follow Zipf distributions: a few users own many rentals, a few rentals
+ *     get most messages (the lowest ids are the most popular);</li>
+ *     <li>descriptions and messages have varied lengths, descriptions up to 2000 characters;</li>
+ *     <li>rentals share a set of JPEG pictures stored in the sharded, content-addressed layout of the uploads
+ *     directory, with their reference counts.</li>
+ * </ul>
+ * Rows are inserted with explicit ids, by batches, from parallel workers. Every row is derived from the seed and its
+ * index only, so a seed always gives the same dataset on an empty database, whatever the number of workers. Every
+ * user has the password {@value #PASSWORD}.
+ * <p>
+ * Used by the {@code perf} profile and the tests, and from the command line against any database, for instance:
+ * <pre>
+ * mvn -Pdataset test-compile exec:java -Dexec.args="--url=jdbc:mysql://localhost:3306/chatop?rewriteBatchedStatements=true
+ *     --username=root --password=secret --uploads=uploads --users=100000 --rentals=2000000 --messages=5000000"
+ * </pre>
+ * The schema migrations are applied first, as the application would.
+ */
+public class DatasetGenerator {
+
+    public static final String PASSWORD = "password";
+    private static final String PASSWORD_HASH = "$2a$10$puFBU2E4TY6cvU0ti6WCQebOddLJDfV24h8UUjjk75FJmnT0EsY.a";
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2022, 1, 1);
+    private static final int DAYS = 3 * 365;
+    private static final int DESCRIPTION_MAX_LENGTH = 2000;
+    private static final int MESSAGE_MAX_LENGTH = 2000;
+
+    private static final int USERS = 1;
+    private static final int RENTALS = 2;
+    private static final int MESSAGES = 3;
+    private static final int PICTURES = 4;
+
+    private static final String[] FIRST_NAMES = {"Camille", "Louis", "Léa", "Hugo", "Manon", "Jules", "Chloé", "Lucas",
+            "Inès", "Gabriel", "Jade", "Arthur", "Louise", "Raphaël", "Emma", "Paul", "Alice", "Nathan", "Lina", "Tom"};
+    private static final String[] LAST_NAMES = {"Martin", "Bernard", "Dubois", "Thomas", "Robert", "Richard", "Petit",
+            "Durand", "Leroy", "Moreau", "Simon", "Laurent", "Lefebvre", "Michel", "Garcia", "David", "Bertrand", "Roux"};
+    private static final String[] KINDS = {"Maison", "Appartement", "Studio", "Loft", "Villa", "Chalet", "Duplex",
+            "Gîte", "Cabane", "Péniche"};
+    private static final String[] CITIES = {"Paris", "Lyon", "Marseille", "Bordeaux", "Nantes", "Lille", "Toulouse",
+            "Nice", "Rennes", "Annecy", "Biarritz", "Strasbourg", "Montpellier", "La Rochelle", "Chamonix"};
+    private static final String[] WORDS = ("lumineux calme spacieux proche de la mer centre ville jardin terrasse vue "
+            + "dégagée cuisine équipée salon chambre parking gare commerces plage montagne balcon cheminée piscine "
+            + "rénové charme parquet ancien moderne quartier animé idéal pour famille couple week-end télétravail "
+            + "fibre lave-linge draps fournis animaux acceptés non fumeur arrivée autonome").split(" ");
+
+    /**
+     * Size and shape of a dataset. The skews are the exponents of the Zipf distributions, 0 for uniform.
+     */
+    public record Settings(long seed, int users, int rentals, int messages, int pictures,
+                           double ownerSkew, double messageSkew, int batchSize, int threads) {
+    }
+
+    public record Summary(int users, int rentals, int messages, int pictures, Duration elapsed) {
+
+        @Override
+        public String toString() {
+            return String.format("%d users, %d rentals, %d messages and %d pictures generated in %.1f s",
+                    users, rentals, messages, pictures, elapsed.toMillis() / 1000.0);
+        }
+    }
+
+    private final DataSource dataSource;
+    private final Path uploads;
+    private final Settings settings;
+
+    public DatasetGenerator(DataSource dataSource, Path uploads, Settings settings) {
+        this.dataSource = dataSource;
+        this.uploads = uploads;
+        this.settings = settings;
+    }
+
+    public Summary generate() throws Exception {
+        long start = System.nanoTime();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        long firstUser = nextId(jdbcTemplate, "users");
+        long firstRental = nextId(jdbcTemplate, "rentals");
+        long firstMessage = nextId(jdbcTemplate, "messages");
+
+        ExecutorService workers = Executors.newFixedThreadPool(settings.threads());
+        try {
+            List<Picture> pictures = generatePictures(workers);
+            AtomicIntegerArray references = new AtomicIntegerArray(pictures.size());
+            Zipf owners = new Zipf(settings.users(), settings.ownerSkew());
+            Zipf targets = new Zipf(settings.rentals(), settings.messageSkew());
+
+            insert(workers, settings.users(), "insert into users (id, name, email, password, created_at, updated_at) "
+                    + "values (?, ?, ?, ?, ?, ?)", (statement, index) -> {
+                SplittableRandom random = random(USERS, index);
+                long id = firstUser + index;
+                LocalDate created = day(random);
+                statement.setLong(1, id);
+                statement.setString(2, pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES));
+                statement.setString(3, "user-" + id + "@dataset.test");
+                statement.setString(4, PASSWORD_HASH);
+                statement.setObject(5, created);
+                statement.setObject(6, created);
+            });
+
+            insert(workers, settings.rentals(), "insert into rentals (id, name, surface, price, picture, description, "
+                    + "owner_id, created_at, updated_at) values (?, ?, ?, ?, ?, ?, ?, ?, ?)", (statement, index) -> {
+                SplittableRandom random = random(RENTALS, index);
+                String kind = pick(random, KINDS);
+                int surface = "Studio".equals(kind) ? 15 + random.nextInt(25) : 30 + random.nextInt(220);
+                LocalDate created = day(random);
+                statement.setLong(1, firstRental + index);
+                statement.setString(2, kind + " à " + pick(random, CITIES));
+                statement.setInt(3, surface);
+                statement.setDouble(4, Math.round(surface * (8 + random.nextDouble() * 30)));
+                if (pictures.isEmpty()) {
+                    statement.setString(5, null);
+                } else {
+                    int picture = random.nextInt(pictures.size());
+                    references.incrementAndGet(picture);
+                    statement.setString(5, "/uploads/" + pictures.get(picture).filename());
+                }
+                statement.setString(6, text(random, DESCRIPTION_MAX_LENGTH, 350));
+                statement.setLong(7, firstUser + owners.sample(random));
+                statement.setObject(8, created);
+                statement.setObject(9, created.plusDays(random.nextInt(90)));
+            });
+
+            insert(workers, settings.messages(), "insert into messages (id, rental_id, user_id, message, created_at, "
+                    + "updated_at) values (?, ?, ?, ?, ?, ?)", (statement, index) -> {
+                SplittableRandom random = random(MESSAGES, index);
+                LocalDateTime created = day(random).atStartOfDay().plusSeconds(random.nextInt(86_400));
+                statement.setLong(1, firstMessage + index);
+                statement.setLong(2, firstRental + targets.sample(random));
+                statement.setLong(3, firstUser + random.nextInt(settings.users()));
+                statement.setString(4, text(random, MESSAGE_MAX_LENGTH, 120));
+                statement.setObject(5, created);
+                statement.setObject(6, created);
+            });
+
+            registerPictures(jdbcTemplate, pictures, references);
+        } finally {
+            workers.shutdownNow();
+        }
+        restartIdentities(jdbcTemplate);
+        return new Summary(settings.users(), settings.rentals(), settings.messages(), settings.pictures(),
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(PreparedStatement statement, int index) throws SQLException;
+    }
+
+    /**
+     * Inserts rows {@code 0..count-1}, by chunks of one batch, each committed by one of the workers.
+     */
+    private void insert(ExecutorService workers, int count, String sql, RowWriter rows) throws Exception {
+        List<Future<?>> chunks = new ArrayList<>();
+        for (int from = 0; from < count; from += settings.batchSize()) {
+            int first = from;
+            int last = Math.min(count, from + settings.batchSize());
+            chunks.add(workers.submit(() -> {
+                try (Connection connection = dataSource.getConnection();
+                     PreparedStatement statement = connection.prepareStatement(sql)) {
+                    connection.setAutoCommit(false);
+                    for (int index = first; index < last; index++) {
+                        rows.write(statement, index);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    connection.commit();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> chunk : chunks) {
+            chunk.get();
+        }
+    }
+
+    private record Picture(String digest, String filename, long size) {
+    }
+
+    /**
+     * Writes the pictures to the uploads directory, where they are not already.
+     */
+    private List<Picture> generatePictures(ExecutorService workers) throws Exception {
+        List<Future<Picture>> futures = new ArrayList<>();
+        for (int index = 0; index < settings.pictures(); index++) {
+            int picture = index;
+            futures.add(workers.submit(() -> {
+                byte[] content = jpeg(random(PICTURES, picture));
+                String digest = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+                String filename = digest + ".jpg";
+                Path directory = PictureShards.directory(uploads, digest);
+                Path file = directory.resolve(filename);
+                if (!Files.exists(file)) {
+                    Files.createDirectories(directory);
+                    Files.write(file, content);
+                }
+                return new Picture(digest, filename, content.length);
+            }));
+        }
+        List<Picture> pictures = new ArrayList<>();
+        for (Future<Picture> future : futures) {
+            pictures.add(future.get());
+        }
+        return pictures;
+    }
+
+    private static byte[] jpeg(SplittableRandom random) {
+        BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, new Color(random.nextInt(0x1000000)),
+                320, 240, new Color(random.nextInt(0x1000000))));
+        graphics.fillRect(0, 0, 320, 240);
+        for (int i = 0; i < 12; i++) {
+            graphics.setColor(new Color(random.nextInt(0x1000000)));
+            graphics.fillRect(random.nextInt(320), random.nextInt(240), 10 + random.nextInt(80), 10 + random.nextInt(60));
+        }
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "jpg", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Adds the references of the generated rentals to the pictures, which are registered if they are new.
+     */
+    private static void registerPictures(JdbcTemplate jdbcTemplate, List<Picture> pictures, AtomicIntegerArray references) {
+        Map<String, Integer> counts = new HashMap<>();
+        Map<String, Picture> byDigest = new HashMap<>();
+        for (int i = 0; i < pictures.size(); i++) {
+            counts.merge(pictures.get(i).digest(), references.get(i), Integer::sum);
+            byDigest.putIfAbsent(pictures.get(i).digest(), pictures.get(i));
+        }
+        LocalDateTime now = LocalDateTime.now();
+        counts.forEach((digest, count) -> {
+            if (jdbcTemplate.update("update pictures set ref_count = ref_count + ?, updated_at = ? where digest = ?",
+                    count, now, digest) == 0) {
+                Picture picture = byDigest.get(digest);
+                jdbcTemplate.update("insert into pictures (digest, filename, content_type, size, ref_count, created_at, "
+                        + "updated_at) values (?, ?, 'image/jpeg', ?, ?, ?, ?)",
+                        digest, picture.filename(), picture.size(), count, now, now);
+            }
+        });
+    }
+
+    private static long nextId(JdbcTemplate jdbcTemplate, String table) {
+        Long max = jdbcTemplate.queryForObject("select max(id) from " + table, Long.class);
+        return max == null ? 1 : max + 1;
+    }
+
+    /**
+     * H2 does not move its identity counters past explicitly inserted ids, MySQL does.
+     */
+    private static void restartIdentities(JdbcTemplate jdbcTemplate) throws SQLException {
+        String database = jdbcTemplate.execute((Connection connection) -> connection.getMetaData().getDatabaseProductName());
+        if ("H2".equals(database)) {
+            for (String table : new String[]{"users", "rentals", "messages"}) {
+                jdbcTemplate.execute("alter table " + table + " alter column id restart with " + nextId(jdbcTemplate, table));
+            }
+        }
+    }
+
+    private SplittableRandom random(int table, long index) {
+        return new SplittableRandom((settings.seed() * 31 + table) * 0x9E3779B97F4A7C15L + index);
+    }
+
+    private static LocalDate day(SplittableRandom random) {
+        return FIRST_DAY.plusDays(random.nextInt(DAYS));
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * Words up to an exponentially distributed length of the given mean, at most {@code maxLength} characters.
+     */
+    private static String text(SplittableRandom random, int maxLength, int meanLength) {
+        int length = (int) Math.min(maxLength, 20 - meanLength * Math.log(1 - random.nextDouble()));
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            text.append(pick(random, WORDS)).append(' ');
+        }
+        text.setLength(length);
+        text.setCharAt(0, Character.toUpperCase(text.charAt(0)));
+        return text.toString().strip();
+    }
+
+    /**
+     * Zipf distribution over {@code 0..n-1}: rank {@code k} has a probability proportional to {@code 1 / (k+1)^s}.
+     */
+    static final class Zipf {
+
+        private final double[] cumulative;
+
+        Zipf(int n, double exponent) {
+            cumulative = new double[Math.max(n, 1)];
+            double sum = 0;
+            for (int k = 0; k < cumulative.length; k++) {
+                sum += 1 / Math.pow(k + 1, exponent);
+                cumulative[k] = sum;
+            }
+            for (int k = 0; k < cumulative.length; k++) {
+                cumulative[k] /= sum;
+            }
+        }
+
+        int sample(SplittableRandom random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+        }
+    }
+
+    /**
+     * Command line: {@code --url=}, {@code --username=}, {@code --password=}, {@code --uploads=}, and the settings
+     * {@code --seed=42 --users=10000 --rentals=1000000 --messages=2000000 --pictures=1000 --owner-skew=1.1
+     * --message-skew=1.0 --batch-size=1000 --threads=8} (the defaults).
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        Settings settings = new Settings(
+                Long.parseLong(options.getOrDefault("seed", "42")),
+                Integer.parseInt(options.getOrDefault("users", "10000")),
+                Integer.parseInt(options.getOrDefault("rentals", "1000000")),
+                Integer.parseInt(options.getOrDefault("messages", "2000000")),
+                Integer.parseInt(options.getOrDefault("pictures", "1000")),
+                Double.parseDouble(options.getOrDefault("owner-skew", "1.1")),
+                Double.parseDouble(options.getOrDefault("message-skew", "1.0")),
+                Integer.parseInt(options.getOrDefault("batch-size", "1000")),
+                Integer.parseInt(options.getOrDefault("threads", "8")));
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            dataSource.setJdbcUrl(required(options, "url"));
+            dataSource.setUsername(options.getOrDefault("username", ""));
+            dataSource.setPassword(options.getOrDefault("password", ""));
+            dataSource.setMaximumPoolSize(settings.threads());
+            Flyway.configure().dataSource(dataSource).baselineOnMigrate(true).baselineVersion("1").load().migrate();
+            Summary summary = new DatasetGenerator(dataSource, Path.of(options.getOrDefault("uploads", "uploads")), settings)
+                    .generate();
+            System.out.println(summary);
+        }
+    }
+
+    private static String required(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing --" + name + "=");
+        }
+        return value;
+    }
+}
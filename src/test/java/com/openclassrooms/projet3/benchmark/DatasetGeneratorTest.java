@@ -0,0 +1,62 @@
+package com.openclassrooms.projet3.benchmark;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DatasetGeneratorTest {
+
+    @TempDir
+    private Path uploads;
+
+    @Test
+    void sameSeedGivesSameDatasetWhateverTheParallelism() throws Exception {
+        JdbcTemplate sequential = generate(new DatasetGenerator.Settings(7, 50, 500, 2000, 10, 1.1, 1.0, 100, 1));
+        JdbcTemplate parallel = generate(new DatasetGenerator.Settings(7, 50, 500, 2000, 10, 1.1, 1.0, 64, 4));
+
+        for (String query : new String[]{"select * from users order by id", "select * from rentals order by id",
+                "select * from messages order by id", "select digest, filename, size, ref_count from pictures order by digest"}) {
+            assertThat(parallel.queryForList(query)).as(query).isEqualTo(sequential.queryForList(query));
+        }
+        try (Stream<Path> files = Files.walk(uploads)) {
+            assertThat(files.filter(Files::isRegularFile)).hasSize(10);
+        }
+    }
+
+    @Test
+    void ownersAndMessageTargetsAreSkewed() throws Exception {
+        JdbcTemplate jdbcTemplate = generate(new DatasetGenerator.Settings(42, 100, 2000, 10000, 5, 1.1, 1.0, 500, 4));
+
+        Integer topOwner = jdbcTemplate.queryForObject(
+                "select count(*) from rentals group by owner_id order by count(*) desc limit 1", Integer.class);
+        Integer topRental = jdbcTemplate.queryForObject(
+                "select count(*) from messages group by rental_id order by count(*) desc limit 1", Integer.class);
+        assertThat(topOwner).isGreaterThan(10 * 2000 / 100);
+        assertThat(topRental).isGreaterThan(100 * 10000 / 2000);
+        assertThat(jdbcTemplate.queryForObject("select sum(ref_count) from pictures", Integer.class)).isEqualTo(2000);
+        assertThat(jdbcTemplate.queryForObject("select max(length(description)) from rentals", Integer.class))
+                .isLessThanOrEqualTo(2000).isGreaterThan(1000);
+        // the identity counters follow the generated ids
+        jdbcTemplate.update("insert into users (name, email, password) values ('New', 'new@dataset.test', 'x')");
+        assertThat(jdbcTemplate.queryForObject("select id from users where email = 'new@dataset.test'", Long.class))
+                .isEqualTo(101);
+    }
+
+    private JdbcTemplate generate(DatasetGenerator.Settings settings) throws Exception {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        new DatasetGenerator(dataSource, uploads, settings).generate();
+        return new JdbcTemplate(dataSource);
+    }
+}
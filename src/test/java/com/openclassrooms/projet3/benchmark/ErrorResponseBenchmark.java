@@ -0,0 +1,81 @@
+package com.openclassrooms.projet3.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.projet3.excepton.CustomApiException;
+import com.openclassrooms.projet3.excepton.CustomAuthenticationException;
+import com.openclassrooms.projet3.excepton.CustomNotFoundException;
+import com.openclassrooms.projet3.excepton.GlobalExceptionHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Answering a {@code 404} (rental not found) and a {@code 401} (invalid credentials), the exception being thrown
+ * {@code depth} frames below the handler, as it is below the filters and interceptors of a request: the former way,
+ * a {@code RuntimeException} filling its stack trace and a map body serialized by an object mapper for each response,
+ * against the stackless domain exceptions answered with the cached problem details of {@link GlobalExceptionHandler}.
+ */
+@State(Scope.Benchmark)
+public class ErrorResponseBenchmark {
+
+    @Param({"20", "100"})
+    private int depth;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler();
+
+    @Benchmark
+    public byte[] notFoundStackful() throws JsonProcessingException {
+        return legacy(() -> new RuntimeException("Rental not found"), HttpStatus.NOT_FOUND);
+    }
+
+    @Benchmark
+    public byte[] notFoundStackless() {
+        return problem(() -> new CustomNotFoundException("Rental not found"));
+    }
+
+    @Benchmark
+    public byte[] unauthorizedStackful() throws JsonProcessingException {
+        return legacy(() -> new RuntimeException("Invalid username or password"), HttpStatus.UNAUTHORIZED);
+    }
+
+    @Benchmark
+    public byte[] unauthorizedStackless() {
+        return problem(() -> new CustomAuthenticationException("Invalid username or password"));
+    }
+
+    private byte[] legacy(Supplier<RuntimeException> exception, HttpStatus status) throws JsonProcessingException {
+        try {
+            throwAt(depth, exception);
+            throw new IllegalStateException();
+        } catch (RuntimeException ex) {
+            Map<String, String> body = new HashMap<>();
+            body.put("error", ex.getMessage());
+            return ResponseEntity.status(status).body(objectMapper.writeValueAsBytes(body)).getBody();
+        }
+    }
+
+    private byte[] problem(Supplier<CustomApiException> exception) {
+        try {
+            throwAt(depth, exception);
+            throw new IllegalStateException();
+        } catch (CustomApiException ex) {
+            return handler.handleCustomApiException(ex).getBody();
+        }
+    }
+
+    private static void throwAt(int depth, Supplier<? extends RuntimeException> exception) {
+        if (depth == 0) {
+            throw exception.get();
+        }
+        throwAt(depth - 1, exception);
+    }
+}
@@ -0,0 +1,93 @@
+package com.openclassrooms.projet3.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the JMH micro-benchmarks of this package ({@code *Benchmark} classes) with the GC profiler, writes their
+ * results to {@value #RESULTS} and prints them next to the committed baseline ({@value #BASELINE}): average time per
+ * operation and bytes allocated per operation ({@code gc.alloc.rate.norm}).
+ * <p>
+ * Skipped by the default build, run with {@code mvn test -Pbenchmark -Dtest=JmhBenchmarkTest}, adding
+ * {@code -Djmh.include=JwtBenchmark} to run only the benchmarks matching a pattern. Copy the results file over the
+ * baseline to make a new reference, on the same machine as the previous one.
+ */
+@Tag("benchmark")
+class JmhBenchmarkTest {
+
+    private static final String RESULTS = "target/jmh-result.json";
+    private static final String BASELINE = "benchmark/jmh-baseline.json";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void runBenchmarks() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(System.getProperty("jmh.include", JmhBenchmarkTest.class.getPackageName() + "\\.\\w+Benchmark\\."))
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .forks(1)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(RESULTS)
+                .build();
+        assertThat(new Runner(options).run()).isNotEmpty();
+
+        Map<String, double[]> current = scores(objectMapper.readTree(new File(RESULTS)));
+        Map<String, double[]> baseline;
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(BASELINE)) {
+            baseline = in == null ? Map.of() : scores(objectMapper.readTree(in));
+        }
+        StringBuilder report = new StringBuilder(String.format("%n%-60s %14s %14s %8s %14s %14s%n",
+                "Benchmark", "base us/op", "us/op", "ratio", "base B/op", "B/op"));
+        for (String name : new TreeSet<>(current.keySet())) {
+            double[] now = current.get(name);
+            double[] before = baseline.getOrDefault(name, new double[]{Double.NaN, Double.NaN});
+            report.append(String.format("%-60s %14.3f %14.3f %8.2f %14.0f %14.0f%n",
+                    name, before[0], now[0], now[0] / before[0], before[1], now[1]));
+        }
+        System.out.println(report);
+    }
+
+    /**
+     * Average time and allocations per operation of each benchmark of a JMH JSON results file, by benchmark and
+     * parameters.
+     */
+    private static Map<String, double[]> scores(JsonNode results) {
+        Map<String, double[]> scores = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            StringBuilder name = new StringBuilder(result.get("benchmark").asText()
+                    .substring(JmhBenchmarkTest.class.getPackageName().length() + 1));
+            for (Iterator<Map.Entry<String, JsonNode>> params = result.path("params").fields(); params.hasNext(); ) {
+                Map.Entry<String, JsonNode> param = params.next();
+                name.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            double allocated = result.path("secondaryMetrics").path("gc.alloc.rate.norm").path("score").asDouble(Double.NaN);
+            scores.put(name.toString(), new double[]{result.path("primaryMetric").path("score").asDouble(), allocated});
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,48 @@
+package com.openclassrooms.projet3.benchmark;
+
+import com.openclassrooms.projet3.config.SpringSecurityConfig;
+import com.openclassrooms.projet3.service.impl.JwtServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Token issued on login and registration ({@code JwtServiceImpl.generateToken}), and its check on every authenticated
+ * request by the {@code JwtDecoder} of {@link SpringSecurityConfig}, both with their timers.
+ */
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private JwtServiceImpl jwtService;
+    private JwtDecoder jwtDecoder;
+    private Authentication authentication;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        SpringSecurityConfig config = new SpringSecurityConfig();
+        ReflectionTestUtils.setField(config, "jwtKey", "benchmark-secret-benchmark-secret-benchmark-secret-benchmark-secret");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        jwtService = new JwtServiceImpl(config.jwtEncoder(meterRegistry));
+        jwtDecoder = config.jwtDecoder(meterRegistry);
+        authentication = new UsernamePasswordAuthenticationToken("john.doe@example.com", null);
+        token = jwtService.generateToken(authentication);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(authentication);
+    }
+
+    @Benchmark
+    public Jwt decode() {
+        return jwtDecoder.decode(token);
+    }
+}
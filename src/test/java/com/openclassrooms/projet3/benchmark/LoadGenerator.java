@@ -0,0 +1,116 @@
+package com.openclassrooms.projet3.benchmark;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Closed-model load generator: each virtual user runs a scenario in a loop, on its own virtual thread, sending its
+ * next request as soon as the previous one is answered. Requests sent during the warmup are not recorded.
+ */
+final class LoadGenerator {
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    /**
+     * One iteration of a scenario for a virtual user, sending its requests through the given session.
+     */
+    @FunctionalInterface
+    interface Scenario {
+        void run(int user, Session session) throws Exception;
+    }
+
+    /**
+     * Throughput and latencies of the requests of a scenario, latencies in milliseconds.
+     */
+    record Report(String scenario, int users, int requests, int errors, double throughput,
+                  double p50, double p99, double p999) {
+
+        static final String HEADER = String.format("%-16s %6s %9s %7s %10s %10s %10s %10s",
+                "scenario", "users", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms");
+
+        @Override
+        public String toString() {
+            return String.format("%-16s %6d %9d %7d %10.1f %10.2f %10.2f %10.2f",
+                    scenario, users, requests, errors, throughput, p50, p99, p999);
+        }
+    }
+
+    Report run(String name, Scenario scenario, int users, Duration warmup, Duration duration) throws Exception {
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long deadline = measureFrom + duration.toNanos();
+        List<Session> sessions = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int user = 0; user < users; user++) {
+                Session session = new Session(measureFrom);
+                sessions.add(session);
+                int index = user;
+                workers.add(executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        try {
+                            scenario.run(index, session);
+                        } catch (Exception e) {
+                            session.failed();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+
+        long[] latencies = sessions.stream().flatMap(session -> session.latencies.stream()).mapToLong(Long::longValue)
+                .sorted().toArray();
+        int errors = sessions.stream().mapToInt(session -> session.errors).sum();
+        return new Report(name, users, latencies.length, errors, latencies.length / (duration.toNanos() / 1e9),
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999));
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1_000_000.0;
+    }
+
+    /**
+     * Requests of one virtual user. Answers with another status than the expected one are counted as errors.
+     */
+    final class Session {
+
+        private final long measureFrom;
+        private final List<Long> latencies = new ArrayList<>();
+        private int errors;
+
+        private Session(long measureFrom) {
+            this.measureFrom = measureFrom;
+        }
+
+        HttpResponse<String> send(HttpRequest request, int expectedStatus) throws Exception {
+            long start = System.nanoTime();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (start >= measureFrom) {
+                latencies.add(System.nanoTime() - start);
+                if (response.statusCode() != expectedStatus) {
+                    errors++;
+                }
+            }
+            return response;
+        }
+
+        private void failed() {
+            if (System.nanoTime() >= measureFrom) {
+                errors++;
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.openclassrooms.projet3.benchmark;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+
+/**
+ * Seeds the database of the {@code perf} profile with a synthetic dataset ({@code app.dataset.*}), once the
+ * application is started.
+ */
+@Configuration
+@Profile("perf")
+public class PerfDatasetConfig {
+
+    @Bean
+    public ApplicationRunner perfDataset(DataSource dataSource,
+                                         @Value("${app.uploads.location}") String uploads,
+                                         @Value("${app.dataset.seed:42}") long seed,
+                                         @Value("${app.dataset.users:100}") int users,
+                                         @Value("${app.dataset.rentals:1000}") int rentals,
+                                         @Value("${app.dataset.messages:10000}") int messages,
+                                         @Value("${app.dataset.pictures:50}") int pictures,
+                                         @Value("${app.dataset.owner-skew:1.1}") double ownerSkew,
+                                         @Value("${app.dataset.message-skew:1.0}") double messageSkew,
+                                         @Value("${app.dataset.batch-size:1000}") int batchSize,
+                                         @Value("${app.dataset.threads:4}") int threads) {
+        DatasetGenerator.Settings settings = new DatasetGenerator.Settings(seed, users, rentals, messages, pictures,
+                ownerSkew, messageSkew, batchSize, threads);
+        return args -> System.out.println(new DatasetGenerator(dataSource, Path.of(uploads), settings).generate());
+    }
+}
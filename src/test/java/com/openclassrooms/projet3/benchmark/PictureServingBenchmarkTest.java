@@ -0,0 +1,144 @@
+package com.openclassrooms.projet3.benchmark;
+
+import com.openclassrooms.projet3.utils.PictureShards;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.CacheControl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput of {@code /uploads/{file}} served by {@code PictureController} compared to the
+ * {@code ResourceHttpRequestHandler} that {@code WebConfig} used to register on a flat directory, on the same files
+ * and server.
+ * <p>
+ * Skipped by the default build, run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"app.uploads.location=" + PictureServingBenchmarkTest.UPLOADS_DIR,
+                "app.concurrency-limits.enabled=false"})
+class PictureServingBenchmarkTest {
+
+    static final String UPLOADS_DIR = "target/benchmark-uploads";
+    static final String LEGACY_UPLOADS_DIR = "target/benchmark-uploads-legacy";
+
+    private static final int CONCURRENCY = 16;
+    private static final long WARMUP_MILLIS = 3_000;
+    private static final long MEASURE_MILLIS = 10_000;
+    private static final int[] SIZES = {8 * 1024, 256 * 1024, 4 * 1024 * 1024};
+
+    @LocalServerPort
+    int port;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @BeforeAll
+    static void createPictures() throws Exception {
+        Path legacyDir = Files.createDirectories(Paths.get(LEGACY_UPLOADS_DIR));
+        Random random = new Random(42);
+        for (int size : SIZES) {
+            byte[] content = new byte[size];
+            random.nextBytes(content);
+            Path shard = Files.createDirectories(PictureShards.directory(Paths.get(UPLOADS_DIR), digest(size)));
+            Files.write(shard.resolve(filename(size)), content);
+            Files.write(legacyDir.resolve(filename(size)), content);
+        }
+    }
+
+    @Test
+    void compareThroughput() throws Exception {
+        System.out.printf("%-10s %-8s %12s %10s%n", "size", "handler", "req/s", "MB/s");
+        for (int size : SIZES) {
+            for (String prefix : List.of("/uploads/legacy/", "/uploads/")) {
+                URI uri = URI.create("http://localhost:" + port + prefix + filename(size));
+                run(uri, size, WARMUP_MILLIS);
+                long requests = run(uri, size, MEASURE_MILLIS);
+                double perSecond = requests * 1000.0 / MEASURE_MILLIS;
+                System.out.printf("%-10s %-8s %12.0f %10.1f%n", size / 1024 + "KB",
+                        prefix.contains("legacy") ? "legacy" : "new", perSecond, perSecond * size / (1024 * 1024));
+            }
+        }
+    }
+
+    private long run(URI uri, int size, long millis) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        long deadline = System.currentTimeMillis() + millis;
+        ExecutorService pool = Executors.newFixedThreadPool(CONCURRENCY);
+        try {
+            List<Future<Long>> workers = new ArrayList<>();
+            for (int i = 0; i < CONCURRENCY; i++) {
+                workers.add(pool.submit(() -> {
+                    long count = 0;
+                    while (System.currentTimeMillis() < deadline) {
+                        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                        assertThat(response.statusCode()).isEqualTo(200);
+                        assertThat(response.body()).hasSize(size);
+                        count++;
+                    }
+                    return count;
+                }));
+            }
+            long total = 0;
+            for (Future<Long> worker : workers) {
+                total += worker.get();
+            }
+            return total;
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static String digest(int size) {
+        return String.format("%064x", size);
+    }
+
+    private static String filename(int size) {
+        // content-addressed names, so both handlers are compared on immutable files
+        return digest(size) + ".png";
+    }
+
+    @TestConfiguration
+    static class LegacyHandlerConfig {
+
+        /**
+         * Replica of the resource handler previously registered by {@code WebConfig}.
+         */
+        @Bean
+        WebMvcConfigurer legacyUploadsHandler() {
+            return new WebMvcConfigurer() {
+                @Override
+                public void addResourceHandlers(ResourceHandlerRegistry registry) {
+                    registry.addResourceHandler("/uploads/legacy/**")
+                            .addResourceLocations(Paths.get(LEGACY_UPLOADS_DIR).toUri().toString())
+                            .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable());
+                }
+            };
+        }
+    }
+}
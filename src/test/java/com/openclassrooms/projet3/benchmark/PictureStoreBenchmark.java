@@ -0,0 +1,78 @@
+package com.openclassrooms.projet3.benchmark;
+
+import com.openclassrooms.projet3.utils.StoredPicture;
+import com.openclassrooms.projet3.utils.impl.ImageUtilsImpl;
+import com.openclassrooms.projet3.utils.impl.LocalPictureStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Storage of an uploaded picture in the local store ({@code ImageUtilsImpl.storePicture}): digest, temporary file and
+ * move to its shard, from a multipart upload and from a streamed one. The stored file is deleted after each call, so
+ * that every call stores the picture instead of finding it already there.
+ */
+@State(Scope.Benchmark)
+public class PictureStoreBenchmark {
+
+    @Param({"65536", "1048576"})
+    private int size;
+
+    private Path uploads;
+    private LocalPictureStore store;
+    private ImageUtilsImpl imageUtils;
+    private byte[] content;
+    private MockMultipartFile multipart;
+    private StoredPicture stored;
+
+    @Setup
+    public void setUp() throws IOException {
+        uploads = Files.createTempDirectory("picture-store-benchmark");
+        store = new LocalPictureStore(uploads.toString());
+        imageUtils = new ImageUtilsImpl(store, new SimpleMeterRegistry(), uploads.toString(),
+                DataSize.ofMegabytes(100), DataSize.ofKilobytes(64), 16);
+        content = new byte[size];
+        byte[] signature = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+        System.arraycopy(signature, 0, content, 0, signature.length);
+        for (int i = signature.length; i < size; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        multipart = new MockMultipartFile("picture", "maison.png", "image/png", content);
+    }
+
+    @Benchmark
+    public StoredPicture stream() throws IOException {
+        stored = imageUtils.storePicture(Channels.newChannel(new ByteArrayInputStream(content)), "image/png", content.length);
+        return stored;
+    }
+
+    @Benchmark
+    public StoredPicture multipart() throws IOException {
+        stored = imageUtils.storePicture(multipart);
+        return stored;
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteStored() throws IOException {
+        store.delete(imageUtils.pictureKey(stored.filename()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(uploads);
+    }
+}
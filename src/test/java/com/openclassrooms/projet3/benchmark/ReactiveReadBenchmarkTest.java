@@ -0,0 +1,137 @@
+package com.openclassrooms.projet3.benchmark;
+
+import com.openclassrooms.projet3.Projet3Application;
+import com.openclassrooms.projet3.model.DBUser;
+import com.openclassrooms.projet3.model.Rental;
+import com.openclassrooms.projet3.repository.DBUserRepository;
+import com.openclassrooms.projet3.repository.RentalRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput and latency of {@code GET /api/rentals} served by the MVC API (Tomcat, JPA) and by the reactive read
+ * API (Reactor Netty, R2DBC) of the same application, against the same in-memory database, with
+ * {@link #CONCURRENCY} concurrent clients.
+ * <p>
+ * The JDBC latency of {@link RequestThreadsBenchmarkTest} cannot be applied to R2DBC, so both stacks read an
+ * in-memory database answering in microseconds: the comparison is about the cost of each stack under load, not
+ * about threads blocked on a remote database. The H2 R2DBC driver also runs statements on the calling thread, so
+ * one Netty event loop can end up executing queries for the others while its own connections wait: the p99.9 of
+ * the reactive API here is an artifact of the test driver, which the MySQL driver, non-blocking, does not have.
+ * <p>
+ * Skipped by the default build, run with {@code mvn test -Pbenchmark -Dtest=ReactiveReadBenchmarkTest}.
+ */
+@Tag("benchmark")
+class ReactiveReadBenchmarkTest {
+
+    private static final int RENTALS = 20;
+    private static final int CONCURRENCY = 200;
+    private static final long WARMUP_MILLIS = 5_000;
+    private static final long MEASURE_MILLIS = 15_000;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    void compareMvcAndReactiveReads() throws Exception {
+        try (ConfigurableApplicationContext context = start()) {
+            int mvcPort = ((WebServerApplicationContext) context).getWebServer().getPort();
+            int reactivePort = context.getBean("reactiveApiServer", WebServer.class).getPort();
+            String token = register(mvcPort);
+            seed(context);
+            List<String> results = new ArrayList<>();
+            for (int port : new int[]{mvcPort, reactivePort}) {
+                URI uri = URI.create("http://localhost:" + port + "/api/rentals");
+                run(uri, token, WARMUP_MILLIS);
+                long[] latencies = run(uri, token, MEASURE_MILLIS);
+                Arrays.sort(latencies);
+                results.add(String.format("%-9s %10.0f %10.1f %10.1f %10.1f", port == mvcPort ? "mvc" : "reactive",
+                        latencies.length * 1000.0 / MEASURE_MILLIS,
+                        percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999)));
+            }
+            System.out.printf("%-9s %10s %10s %10s %10s%n", "stack", "req/s", "p50 ms", "p99 ms", "p99.9 ms");
+            results.forEach(System.out::println);
+        }
+    }
+
+    private static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(Projet3Application.class)
+                .profiles("reactive", "test")
+                .properties("server.port=0",
+                        "app.reactive.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:bench-reactive;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "app.reactive.r2dbc.url=r2dbc:h2:mem:///bench-reactive?options=MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "app.concurrency-limits.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+    }
+
+    private static void seed(ConfigurableApplicationContext context) {
+        DBUser owner = context.getBean(DBUserRepository.class).findByEmail("load@test.com").orElseThrow();
+        RentalRepository rentals = context.getBean(RentalRepository.class);
+        for (int i = 0; i < RENTALS; i++) {
+            Rental rental = new Rental();
+            rental.setName("Rental " + i);
+            rental.setSurface(50 + i);
+            rental.setPrice(800 + i);
+            rental.setDescription("Description of rental " + i);
+            rental.setOwner(owner);
+            rentals.save(rental);
+        }
+    }
+
+    private String register(int port) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"name\":\"Load\",\"email\":\"load@test.com\",\"password\":\"password\"}"))
+                .build();
+        String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+        return body.replaceAll(".*\"token\"\\s*:\\s*\"([^\"]+)\".*", "$1");
+    }
+
+    private long[] run(URI uri, String token, long millis) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri).header("Authorization", "Bearer " + token).GET().build();
+        long deadline = System.currentTimeMillis() + millis;
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<Long>>> workers = new ArrayList<>();
+            for (int i = 0; i < CONCURRENCY; i++) {
+                workers.add(clients.submit(() -> {
+                    List<Long> latencies = new ArrayList<>();
+                    while (System.currentTimeMillis() < deadline) {
+                        long start = System.nanoTime();
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        latencies.add(System.nanoTime() - start);
+                        assertThat(response.statusCode()).isEqualTo(200);
+                    }
+                    return latencies;
+                }));
+            }
+            List<Long> all = new ArrayList<>();
+            for (Future<List<Long>> worker : workers) {
+                all.addAll(worker.get());
+            }
+            return all.stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,65 @@
+package com.openclassrooms.projet3.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.openclassrooms.projet3.config.DtoJsonModule;
+import com.openclassrooms.projet3.dtos.RentalListResponse;
+import com.openclassrooms.projet3.dtos.UserDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * JSON serialization of the {@code GET /api/rentals} and {@code GET /api/auth/me} responses, with an object mapper
+ * configured as Spring Boot configures the one of the application: with the reflective serializers of Jackson, with
+ * the hand-written ones of {@link DtoJsonModule}, and with the hand-written ones writing compact dates. Responses are
+ * written to a reused stream, as the message converter writes them to the response.
+ */
+@State(Scope.Benchmark)
+public class RentalListSerializationBenchmark {
+
+    @Param({"100", "10000"})
+    private int rentals;
+
+    @Param({"reflective", "hand-written", "compact-dates"})
+    private String serializers;
+
+    private ObjectMapper objectMapper;
+    private RentalListResponse response;
+    private UserDTO user;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 20);
+
+    @Setup
+    public void setUp() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if (!serializers.equals("reflective")) {
+            builder.modulesToInstall(new DtoJsonModule(serializers.equals("compact-dates")));
+        }
+        objectMapper = builder.build();
+        response = new RentalListResponse(
+                RentalServiceBenchmark.listing(RentalServiceBenchmark.sampleRentals(rentals)).getRentalsWithDTOs());
+        user = new UserDTO(1L, "Jean Dupont", "jean.dupont@test.com", LocalDate.of(2024, 1, 15), LocalDate.of(2024, 6, 1));
+    }
+
+    @Benchmark
+    public int serialize() throws IOException {
+        out.reset();
+        objectMapper.writeValue(out, response);
+        return out.size();
+    }
+
+    @Benchmark
+    public int serializeUser() throws IOException {
+        out.reset();
+        objectMapper.writeValue(out, user);
+        return out.size();
+    }
+}
@@ -0,0 +1,70 @@
+package com.openclassrooms.projet3.benchmark;
+
+import com.openclassrooms.projet3.dtos.RentalDTO;
+import com.openclassrooms.projet3.model.DBUser;
+import com.openclassrooms.projet3.model.Rental;
+import com.openclassrooms.projet3.service.impl.RentalServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversion of the rentals loaded by {@code GET /api/rentals} to DTOs ({@code RentalServiceImpl.convertToDTO}), for
+ * lists of increasing size. The rentals are already in memory, the database is left out.
+ */
+@State(Scope.Benchmark)
+public class RentalServiceBenchmark {
+
+    @Param({"100", "10000"})
+    private int rentals;
+
+    private RentalServiceImpl rentalService;
+
+    @Setup
+    public void setUp() {
+        rentalService = listing(sampleRentals(rentals));
+    }
+
+    @Benchmark
+    public List<RentalDTO> getRentalsWithDTOs() {
+        return rentalService.getRentalsWithDTOs();
+    }
+
+    /**
+     * Rental service listing the given rentals.
+     */
+    static RentalServiceImpl listing(List<Rental> rentals) {
+        return new RentalServiceImpl(null, null, null, null, null, null, null) {
+            @Override
+            public Iterable<Rental> findAllRentals() {
+                return rentals;
+            }
+        };
+    }
+
+    static List<Rental> sampleRentals(int count) {
+        List<Rental> rentals = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            DBUser owner = new DBUser();
+            owner.setId((long) (i % 100 + 1));
+            Rental rental = new Rental();
+            rental.setId((long) i);
+            rental.setName("Maison " + i);
+            rental.setSurface(40 + i % 200);
+            rental.setPrice(500 + i % 3000);
+            rental.setPicture("/uploads/ab/cd/" + "%064x".formatted(i) + ".jpg");
+            rental.setDescription("Maison lumineuse proche de la mer, avec jardin et terrasse. Annonce " + i);
+            rental.setOwner(owner);
+            rental.setCreatedAt(LocalDate.of(2024, 1, 1).plusDays(i % 365));
+            rental.setUpdatedAt(LocalDate.of(2024, 6, 1).plusDays(i % 365));
+            rentals.add(rental);
+        }
+        return rentals;
+    }
+}
@@ -0,0 +1,177 @@
+package com.openclassrooms.projet3.benchmark;
+
+import com.openclassrooms.projet3.Projet3Application;
+import com.zaxxer.hikari.HikariDataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput and latency of a blocking JPA endpoint ({@code GET /api/rentals}) with requests handled by the Tomcat
+ * worker pool, then by virtual threads ({@code spring.threads.virtual.enabled}), on the same machine.
+ * <p>
+ * The in-memory test database answers in microseconds, so every JDBC statement is delayed by
+ * {@link #DATABASE_LATENCY_MILLIS} to stand for the round trip to a MySQL server: request threads spend most of
+ * their time blocked, as in production. The worker pool is capped at {@link #WORKER_THREADS} threads, well below
+ * the {@link #CONCURRENCY} concurrent clients, and the connection pool is large enough not to be the limit.
+ * <p>
+ * Skipped by the default build, run with {@code mvn test -Pbenchmark -Dtest=RequestThreadsBenchmarkTest}. Add
+ * {@code -DargLine=-Djdk.tracePinnedThreads=short} to log virtual threads pinned while blocking.
+ */
+@Tag("benchmark")
+class RequestThreadsBenchmarkTest {
+
+    private static final long DATABASE_LATENCY_MILLIS = 10;
+    private static final int WORKER_THREADS = 20;
+    private static final int CONCURRENCY = 200;
+    private static final long WARMUP_MILLIS = 5_000;
+    private static final long MEASURE_MILLIS = 15_000;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    void comparePlatformAndVirtualThreads() throws Exception {
+        List<String> results = new ArrayList<>();
+        for (boolean virtualThreads : new boolean[]{false, true}) {
+            try (ConfigurableApplicationContext context = start(virtualThreads)) {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                String token = register(port);
+                URI uri = URI.create("http://localhost:" + port + "/api/rentals");
+                run(uri, token, WARMUP_MILLIS);
+                long[] latencies = run(uri, token, MEASURE_MILLIS);
+                Arrays.sort(latencies);
+                results.add(String.format("%-9s %10.0f %10.1f %10.1f %10.1f", virtualThreads ? "virtual" : "platform",
+                        latencies.length * 1000.0 / MEASURE_MILLIS,
+                        percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999)));
+            }
+        }
+        System.out.printf("%-9s %10s %10s %10s %10s%n", "threads", "req/s", "p50 ms", "p99 ms", "p99.9 ms");
+        results.forEach(System.out::println);
+    }
+
+    private static ConfigurableApplicationContext start(boolean virtualThreads) {
+        String mode = virtualThreads ? "virtual" : "platform";
+        return new SpringApplicationBuilder(Projet3Application.class)
+                .profiles("test")
+                .properties("server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:bench-" + mode + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.hikari.maximum-pool-size=" + CONCURRENCY,
+                        "server.tomcat.threads.max=" + WORKER_THREADS,
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "app.concurrency-limits.enabled=false",
+                        "logging.level.root=WARN")
+                .initializers(context -> context.getBeanFactory().addBeanPostProcessor(new DatabaseLatencyPostProcessor()))
+                .run();
+    }
+
+    private String register(int port) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"name\":\"Load\",\"email\":\"load@test.com\",\"password\":\"password\"}"))
+                .build();
+        String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+        return body.replaceAll(".*\"token\"\\s*:\\s*\"([^\"]+)\".*", "$1");
+    }
+
+    private long[] run(URI uri, String token, long millis) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri).header("Authorization", "Bearer " + token).GET().build();
+        long deadline = System.currentTimeMillis() + millis;
+        // one virtual thread per client, so the load generator itself is not thread bound
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<Long>>> workers = new ArrayList<>();
+            for (int i = 0; i < CONCURRENCY; i++) {
+                workers.add(clients.submit(() -> {
+                    List<Long> latencies = new ArrayList<>();
+                    while (System.currentTimeMillis() < deadline) {
+                        long start = System.nanoTime();
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        latencies.add(System.nanoTime() - start);
+                        assertThat(response.statusCode()).isEqualTo(200);
+                    }
+                    return latencies;
+                }));
+            }
+            List<Long> all = new ArrayList<>();
+            for (Future<List<Long>> worker : workers) {
+                all.addAll(worker.get());
+            }
+            return all.stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1_000_000.0;
+    }
+
+    /**
+     * Makes the connection pool open its connections through a data source that delays every statement execution.
+     */
+    private static class DatabaseLatencyPostProcessor implements BeanPostProcessor {
+
+        @Override
+        public Object postProcessBeforeInitialization(Object bean, String beanName) {
+            if (bean instanceof HikariDataSource hikari) {
+                JdbcDataSource h2 = new JdbcDataSource();
+                h2.setURL(hikari.getJdbcUrl());
+                h2.setUser(hikari.getUsername());
+                h2.setPassword(hikari.getPassword());
+                hikari.setDataSource(proxy(DataSource.class, h2));
+            }
+            return bean;
+        }
+
+        private static <T> T proxy(Class<T> type, T target) {
+            Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (instance, method, args) -> {
+                if (method.getName().startsWith("execute")) {
+                    Thread.sleep(DATABASE_LATENCY_MILLIS);
+                }
+                Object result = invoke(method, target, args);
+                if (result instanceof Connection connection) {
+                    return proxy(Connection.class, connection);
+                }
+                if (result instanceof Statement statement) {
+                    return proxy(interfaceOf(method.getReturnType()), statement);
+                }
+                return result;
+            });
+            return type.cast(proxy);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Class<Statement> interfaceOf(Class<?> returnType) {
+            return (Class<Statement>) returnType;
+        }
+
+        private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.openclassrooms.projet3.benchmark;
+
+import com.openclassrooms.projet3.Projet3Application;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Time to first request of the application built by {@code mvn -Pfast-startup package}: time from the start of a
+ * new JVM to the answer to a registration (database, password hashing and JWT), with and without Spring AOT, the
+ * AppCDS archive and lazy initialization. The database is an in-memory H2 one, appended to the class path, and the
+ * archive comes from a training run with this same class path.
+ * <p>
+ * Skipped by the default build, run with {@code mvn -Pfast-startup package -Dtraining.skip} then
+ * {@code mvn test -Pbenchmark -Dtest=StartupTimeBenchmarkTest}, adding {@code -Dstartup.runs=10} for more runs of
+ * each mode (the median and the minimum are reported).
+ */
+@Tag("benchmark")
+class StartupTimeBenchmarkTest {
+
+    private static final Path DIRECTORY = Path.of("target/startup");
+    private static final Path ARCHIVE = DIRECTORY.resolve("application.jsa");
+    private static final String AOT = "-Dspring.aot.enabled=true";
+    private static final String LAZY = "--spring.main.lazy-initialization=true";
+
+    private record Mode(String name, List<String> jvmArguments, List<String> arguments) {
+    }
+
+    private final int runs = Integer.getInteger("startup.runs", 5);
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void measureTimeToFirstRequest() throws Exception {
+        Optional<Path> jar = applicationJar();
+        assumeTrue(jar.isPresent(), "Build the application first with mvn -Pfast-startup package -Dtraining.skip");
+        String classpath = jar.get() + File.pathSeparator
+                + Path.of(org.h2.Driver.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        Files.createDirectories(DIRECTORY);
+        Files.deleteIfExists(ARCHIVE);
+        Process training = start(classpath, "training", List.of("-XX:ArchiveClassesAtExit=" + ARCHIVE, AOT,
+                "-Dspring.context.exit=onRefresh"), List.of(), freePort());
+        assertThat(training.waitFor(5, TimeUnit.MINUTES)).isTrue();
+        assertThat(ARCHIVE).exists();
+
+        String cds = "-XX:SharedArchiveFile=" + ARCHIVE;
+        List<Mode> modes = List.of(
+                new Mode("jvm", List.of(), List.of()),
+                new Mode("lazy", List.of(), List.of(LAZY)),
+                new Mode("aot", List.of(AOT), List.of()),
+                new Mode("aot+cds", List.of(AOT, cds), List.of()),
+                new Mode("aot+cds+lazy", List.of(AOT, cds), List.of(LAZY)));
+        StringBuilder report = new StringBuilder(String.format("%n%-14s %6s %10s %10s%n", "mode", "runs", "median ms", "min ms"));
+        for (Mode mode : modes) {
+            long[] times = new long[runs];
+            for (int run = 0; run < runs; run++) {
+                times[run] = timeToFirstRequest(classpath, mode, run);
+            }
+            Arrays.sort(times);
+            report.append(String.format("%-14s %6d %10d %10d%n", mode.name(), runs, times[runs / 2], times[0]));
+        }
+        System.out.println(report);
+    }
+
+    private long timeToFirstRequest(String classpath, Mode mode, int run) throws Exception {
+        int port = freePort();
+        HttpRequest register = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"name\":\"Startup\",\"email\":\"startup@startup.test\",\"password\":\"password\"}"))
+                .build();
+        long start = System.nanoTime();
+        Process application = start(classpath, mode.name() + "-" + run, mode.jvmArguments(), mode.arguments(), port);
+        try {
+            while (true) {
+                assertThat(application.isAlive()).as("%s run %d, see its log in %s", mode.name(), run, DIRECTORY).isTrue();
+                try {
+                    HttpResponse<String> response = client.send(register, HttpResponse.BodyHandlers.ofString());
+                    assertThat(response.statusCode()).as(response.body()).isEqualTo(201);
+                    return (System.nanoTime() - start) / 1_000_000;
+                } catch (ConnectException e) {
+                    Thread.sleep(5);
+                }
+            }
+        } finally {
+            application.destroy();
+            application.waitFor(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private static Process start(String classpath, String name, List<String> jvmArguments, List<String> arguments,
+                                 int port) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArguments);
+        command.addAll(List.of("-cp", classpath, Projet3Application.class.getName(),
+                "--server.port=" + port,
+                "--management.server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:startup;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.servlet.multipart.location=" + DIRECTORY.resolve("multipart"),
+                "--app.uploads.location=" + DIRECTORY.resolve("pictures"),
+                "--app.pictures.variants.location=" + DIRECTORY.resolve("pictures/variants"),
+                "--app.messages.archive.enabled=false",
+                "--app.uploads.gc.enabled=false"));
+        command.addAll(arguments);
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(DIRECTORY.resolve(name + ".log").toFile())
+                .start();
+    }
+
+    private static Optional<Path> applicationJar() throws IOException {
+        if (!Files.isDirectory(Path.of("target/lib"))) {
+            return Optional.empty();
+        }
+        try (Stream<Path> files = Files.list(Path.of("target"))) {
+            return files.filter(file -> file.getFileName().toString().matches("projet-3-.*\\.jar")).findFirst();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
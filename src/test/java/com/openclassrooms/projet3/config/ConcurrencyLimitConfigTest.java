@@ -0,0 +1,59 @@
+package com.openclassrooms.projet3.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The concurrency limits are on by default, and a burst of logins on a fresh node, each one hashing a password, is
+ * served instead of being shed.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class ConcurrencyLimitConfigTest {
+
+    private static final int LOGINS = 32;
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void loginBurstIsServed() throws Exception {
+        String email = "burst-" + UUID.randomUUID() + "@test.com";
+        HttpResponse<String> registration = client.send(login("/api/auth/register",
+                "{\"name\":\"Burst\",\"email\":\"" + email + "\",\"password\":\"password\"}"),
+                HttpResponse.BodyHandlers.ofString());
+        assertThat(registration.statusCode()).as(registration.body()).isEqualTo(201);
+
+        List<CompletableFuture<HttpResponse<String>>> logins = IntStream.range(0, LOGINS)
+                .mapToObj(i -> client.sendAsync(login("/api/auth/login",
+                        "{\"email\":\"" + email + "\",\"password\":\"password\"}"), HttpResponse.BodyHandlers.ofString()))
+                .toList();
+
+        for (CompletableFuture<HttpResponse<String>> login : logins) {
+            HttpResponse<String> response = login.get();
+            assertThat(response.statusCode()).as(response.body()).isEqualTo(200);
+        }
+    }
+
+    private HttpRequest login(String path, String body) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
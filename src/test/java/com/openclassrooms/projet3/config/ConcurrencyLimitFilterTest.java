@@ -0,0 +1,116 @@
+package com.openclassrooms.projet3.config;
+
+import com.openclassrooms.projet3.utils.ConcurrencyLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Requests above the limit of their endpoint group are shed with a 503, and the limit follows the latency.
+ */
+class ConcurrencyLimitFilterTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    @Test
+    void requestsAboveTheLimitOfTheirGroupAreRejected() throws Exception {
+        ConcurrencyLimiter auth = new ConcurrencyLimiter(ConcurrencyLimitFilter.AUTH, 1, 1, 1);
+        ConcurrencyLimiter reads = new ConcurrencyLimiter(ConcurrencyLimitFilter.RENTAL_READS, 1, 1, 1);
+        Counter rejected = new SimpleMeterRegistry().counter("rejected");
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(
+                Map.of(ConcurrencyLimitFilter.AUTH, auth, ConcurrencyLimitFilter.RENTAL_READS, reads),
+                Map.of(ConcurrencyLimitFilter.AUTH, rejected, ConcurrencyLimitFilter.RENTAL_READS, rejected), 2);
+        assertThat(auth.tryAcquire()).isTrue();
+
+        MockHttpServletResponse login = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/auth/login"), login, new MockFilterChain());
+        MockHttpServletResponse rentals = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/rentals"), rentals, new MockFilterChain());
+
+        assertThat(login.getStatus()).isEqualTo(503);
+        assertThat(login.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(login.getContentType()).isEqualTo("application/problem+json");
+        assertThat(login.getContentAsString()).contains("\"status\":503", "\"detail\":\"Service overloaded, retry later\"");
+        assertThat(rejected.count()).isEqualTo(1);
+        assertThat(rentals.getStatus()).isEqualTo(200);
+        assertThat(reads.getInFlight()).isZero();
+    }
+
+    @Test
+    void endpointGroups() {
+        assertThat(ConcurrencyLimitFilter.group(new MockHttpServletRequest("POST", "/api/auth/register")))
+                .isEqualTo(ConcurrencyLimitFilter.AUTH);
+        assertThat(ConcurrencyLimitFilter.group(new MockHttpServletRequest("GET", "/api/rentals/3")))
+                .isEqualTo(ConcurrencyLimitFilter.RENTAL_READS);
+        assertThat(ConcurrencyLimitFilter.group(new MockHttpServletRequest("GET", "/uploads/ab/cd/picture.jpg")))
+                .isEqualTo(ConcurrencyLimitFilter.RENTAL_READS);
+        assertThat(ConcurrencyLimitFilter.group(new MockHttpServletRequest("PUT", "/api/rentals/3/picture")))
+                .isEqualTo(ConcurrencyLimitFilter.UPLOADS);
+        assertThat(ConcurrencyLimitFilter.group(new MockHttpServletRequest("PUT", "/api/rentals/3")))
+                .isEqualTo(ConcurrencyLimitFilter.RENTAL_WRITES);
+        assertThat(ConcurrencyLimitFilter.group(new MockHttpServletRequest("POST", "/api/messages")))
+                .isEqualTo(ConcurrencyLimitFilter.MESSAGES);
+        assertThat(ConcurrencyLimitFilter.group(new MockHttpServletRequest("GET", "/api/docs/index.html"))).isNull();
+    }
+
+    @Test
+    void limitGrowsWithAStableLatencyAndShrinksWhenItRises() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 10, 2, 100);
+        for (int i = 0; i < 200; i++) {
+            saturate(limiter, 10 * MILLIS);
+        }
+        int grown = limiter.getLimit();
+        assertThat(grown).isGreaterThan(10);
+
+        for (int i = 0; i < 50; i++) {
+            saturate(limiter, 100 * MILLIS);
+        }
+        assertThat(limiter.getLimit()).isLessThan(grown / 2);
+
+        int limit = limiter.getLimit();
+        assertThat(limiter.tryAcquire()).isTrue();
+        limiter.release(MILLIS, true);
+        assertThat(limiter.getLimit()).isLessThan(limit);
+    }
+
+    @Test
+    void limitIsKeptWhileTheLatencyWarmsUp() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 50, 2, 200);
+        // a burst of the first requests of a node, each one queueing behind the previous ones
+        for (int i = 0; i < 50; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+        for (int i = 0; i < 50; i++) {
+            limiter.release((i + 1) * 100 * MILLIS, false);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(50);
+    }
+
+    @Test
+    void fixedLimitDoesNotFollowTheLatency() {
+        ConcurrencyLimiter uploads = new ConcurrencyLimiter(ConcurrencyLimitFilter.UPLOADS, 4, 4, 4);
+        for (int i = 0; i < 200; i++) {
+            saturate(uploads, (i + 1) * 100 * MILLIS);
+        }
+
+        assertThat(uploads.getLimit()).isEqualTo(4);
+    }
+
+    private static void saturate(ConcurrencyLimiter limiter, long rttNanos) {
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limiter.release(rttNanos, false);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.openclassrooms.projet3.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.openclassrooms.projet3.dtos.RentalDTO;
+import com.openclassrooms.projet3.dtos.RentalListResponse;
+import com.openclassrooms.projet3.dtos.UserDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The hand-written serializers write the same JSON as the reflective ones, unless dates are compact.
+ */
+class DtoJsonModuleTest {
+
+    private final ObjectMapper reflective = objectMapper().build();
+
+    @Test
+    void sameJsonAsTheReflectiveSerializers() throws Exception {
+        ObjectMapper handWritten = objectMapper().modulesToInstall(new DtoJsonModule(false)).build();
+        RentalListResponse rentals = new RentalListResponse(Arrays.asList(rental(), new RentalDTO()));
+        UserDTO user = new UserDTO(7L, "Jean \"Jo\" Dupont", "jean@test.com", LocalDate.of(2024, 1, 15), null);
+
+        assertThat(handWritten.writeValueAsString(rentals)).isEqualTo(reflective.writeValueAsString(rentals));
+        assertThat(handWritten.writeValueAsString(rental())).isEqualTo(reflective.writeValueAsString(rental()));
+        assertThat(handWritten.writeValueAsString(user)).isEqualTo(reflective.writeValueAsString(user));
+    }
+
+    @Test
+    void compactDates() throws Exception {
+        ObjectMapper handWritten = objectMapper().modulesToInstall(new DtoJsonModule(true)).build();
+
+        assertThat(handWritten.readTree(handWritten.writeValueAsBytes(rental())).get("created_at").intValue())
+                .isEqualTo(20240105);
+    }
+
+    /**
+     * Object mapper configured as Spring Boot configures the one of the application.
+     */
+    private static Jackson2ObjectMapperBuilder objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private static RentalDTO rental() {
+        RentalDTO rental = new RentalDTO();
+        rental.setId(3L);
+        rental.setName("Maison éé \\ \n");
+        rental.setSurface(120);
+        rental.setPrice(1250.5);
+        rental.setPicture("/uploads/ab/cd/abcd.jpg");
+        rental.setDescription("Proche de la mer");
+        rental.setOwner_id(1L);
+        rental.setCreated_at(LocalDate.of(2024, 1, 5));
+        rental.setUpdated_at(LocalDate.of(12024, 12, 31));
+        return rental;
+    }
+}
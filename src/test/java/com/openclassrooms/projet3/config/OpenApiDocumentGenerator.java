@@ -0,0 +1,112 @@
+package com.openclassrooms.projet3.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.openclassrooms.projet3.Projet3Application;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Generates the OpenAPI document of the API at package time (exec-maven-plugin, prepare-package phase): starts the
+ * application with the {@code test} (in-memory database) and {@code dev} (runtime scanning) profiles, and writes its
+ * {@code /v3/api-docs} document to the given directory as {@value #DOCUMENT}, with a Swagger UI page and the assets
+ * of the swagger-ui webjar. Each file gets a gzip-compressed copy; they are served as static resources by
+ * {@link WebConfig}, so that production nodes do not scan the controllers.
+ */
+public final class OpenApiDocumentGenerator {
+
+    static final String DOCUMENT = "openapi.json";
+    private static final String WEBJAR = "META-INF/resources/webjars/swagger-ui/";
+    private static final String[] ASSETS = {"swagger-ui.css", "swagger-ui-bundle.js", "swagger-ui-standalone-preset.js"};
+    private static final String PAGE = """
+            <!DOCTYPE html>
+            <html lang="fr">
+            <head>
+                <meta charset="UTF-8">
+                <title>Châtop API</title>
+                <link rel="stylesheet" href="swagger-ui.css">
+            </head>
+            <body>
+            <div id="swagger-ui"></div>
+            <script src="swagger-ui-bundle.js"></script>
+            <script src="swagger-ui-standalone-preset.js"></script>
+            <script>
+                window.ui = SwaggerUIBundle({
+                    url: "%s",
+                    dom_id: "#swagger-ui",
+                    presets: [SwaggerUIBundle.presets.apis, SwaggerUIStandalonePreset],
+                    layout: "StandaloneLayout"
+                });
+            </script>
+            </body>
+            </html>
+            """;
+
+    private OpenApiDocumentGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Path.of(args[0]);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Projet3Application.class)
+                .profiles("test", "dev")
+                // arguments, which take precedence over application.properties, unlike default properties
+                .run("--server.port=0", "--management.server.port=0", "--logging.level.root=WARN",
+                        "--app.messages.archive.enabled=false")) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpResponse<byte[]> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/v3/api-docs/springshop-public")).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("OpenAPI document not generated: HTTP " + response.statusCode());
+            }
+            // without servers, the API is the one of the host serving the document instead of this generator
+            ObjectMapper objectMapper = new ObjectMapper();
+            ObjectNode document = (ObjectNode) objectMapper.readTree(response.body());
+            document.remove("servers");
+            Files.createDirectories(directory);
+            write(directory, DOCUMENT, objectMapper.writeValueAsBytes(document));
+        }
+        write(directory, "index.html", PAGE.formatted(DOCUMENT).getBytes(StandardCharsets.UTF_8));
+        String webjar = WEBJAR + swaggerUiVersion() + "/";
+        for (String asset : ASSETS) {
+            try (InputStream in = OpenApiDocumentGenerator.class.getClassLoader().getResourceAsStream(webjar + asset)) {
+                write(directory, asset, in.readAllBytes());
+            }
+        }
+    }
+
+    private static String swaggerUiVersion() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = OpenApiDocumentGenerator.class.getClassLoader()
+                .getResourceAsStream("META-INF/maven/org.webjars/swagger-ui/pom.properties")) {
+            properties.load(in);
+        }
+        return properties.getProperty("version");
+    }
+
+    private static void write(Path directory, String name, byte[] content) throws IOException {
+        Files.write(directory.resolve(name), content);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(directory.resolve(name + ".gz"))) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(content);
+        }
+    }
+}
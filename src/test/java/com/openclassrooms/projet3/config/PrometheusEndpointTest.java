@@ -0,0 +1,81 @@
+package com.openclassrooms.projet3.config;
+
+import com.openclassrooms.projet3.utils.ImageUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The metrics of the hot paths are published in the Prometheus format, on the management port, without
+ * authentication.
+ */
+@AutoConfigureObservability
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class PrometheusEndpointTest {
+
+    @LocalServerPort
+    private int port;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Autowired
+    private ImageUtils imageUtils;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void hotPathsArePublished() throws Exception {
+        HttpResponse<String> registration = client.send(HttpRequest.newBuilder(uri(port, "/api/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"name\":\"Metrics\",\"email\":\"metrics@test.com\",\"password\":\"password\"}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        String token = registration.body().replaceAll(".*\"token\"\\s*:\\s*\"([^\"]+)\".*", "$1");
+        client.send(HttpRequest.newBuilder(uri(port, "/api/rentals")).header("Authorization", "Bearer " + token).build(),
+                HttpResponse.BodyHandlers.discarding());
+        byte[] picture = png();
+        imageUtils.storePicture(Channels.newChannel(new ByteArrayInputStream(picture)), "image/png", picture.length);
+
+        HttpResponse<String> scrape = client.send(HttpRequest.newBuilder(uri(managementPort, "/actuator/prometheus")).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(scrape.statusCode()).isEqualTo(200);
+        assertThat(scrape.body()).contains(
+                "http_server_requests_seconds_bucket{",
+                "http_server_requests_seconds{",
+                "rentals_service_seconds_count{class=\"com.openclassrooms.projet3.service.impl.RentalServiceImpl\"",
+                "security_password_hashing_seconds_count{operation=\"encode\"",
+                "security_jwt_seconds_count{operation=\"encode\"",
+                "security_jwt_seconds_count{operation=\"decode\"",
+                "pictures_store_seconds_count{outcome=\"success\",upload=\"stream\"",
+                "pictures_store_size_bytes_sum",
+                "hikaricp_connections_active",
+                "jvm_memory_used_bytes");
+    }
+
+    private static URI uri(int port, String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static byte[] png() {
+        byte[] content = new byte[1000];
+        byte[] signature = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+        System.arraycopy(signature, 0, content, 0, signature.length);
+        return content;
+    }
+}
@@ -0,0 +1,123 @@
+package com.openclassrooms.projet3.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadReplicaRoutingDataSourceTest {
+
+    private final SwitchableDataSource replica = new SwitchableDataSource(database("replica"));
+    private final ReadReplicaRoutingDataSource routingDataSource =
+            new ReadReplicaRoutingDataSource(database("primary"), List.of(replica), Duration.ofMillis(300));
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(new LazyConnectionDataSourceProxy(routingDataSource));
+    private final TransactionTemplate writes = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+    private final TransactionTemplate reads = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+
+    @BeforeEach
+    void setUp() {
+        reads.setReadOnly(true);
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplicaAndWritesToThePrimary() {
+        assertThat(readOnly()).isEqualTo("replica");
+        assertThat(readWrite()).isEqualTo("primary");
+        assertThat(node()).isEqualTo("primary");
+    }
+
+    @Test
+    void usersReadTheirOwnWritesFromThePrimaryDuringTheWindow() throws Exception {
+        authenticate("writer@test.com");
+        writes.executeWithoutResult(status -> jdbcTemplate.update("UPDATE node SET writes = writes + 1"));
+        assertThat(readOnly()).isEqualTo("primary");
+
+        authenticate("other@test.com");
+        assertThat(readOnly()).isEqualTo("replica");
+
+        authenticate("writer@test.com");
+        Thread.sleep(400);
+        assertThat(readOnly()).isEqualTo("replica");
+    }
+
+    @Test
+    void readsFailOverToThePrimaryWhileTheReplicaIsDown() {
+        replica.down = true;
+        assertThat(readOnly()).isEqualTo("primary");
+        assertThat(routingDataSource.healthyReplicas()).isZero();
+
+        routingDataSource.checkReplicas();
+        assertThat(readOnly()).isEqualTo("primary");
+
+        replica.down = false;
+        routingDataSource.checkReplicas();
+        assertThat(routingDataSource.healthyReplicas()).isEqualTo(1);
+        assertThat(readOnly()).isEqualTo("replica");
+    }
+
+    private String readOnly() {
+        return reads.execute(status -> node());
+    }
+
+    private String readWrite() {
+        return writes.execute(status -> node());
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static void authenticate(String user) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(user, null, "USER"));
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(20), writes INT)");
+        jdbcTemplate.update("DELETE FROM node");
+        jdbcTemplate.update("INSERT INTO node VALUES (?, 0)", name);
+        return dataSource;
+    }
+
+    /**
+     * Replica that can be taken down, refusing connections like an unreachable server.
+     */
+    private static class SwitchableDataSource extends DelegatingDataSource {
+
+        private volatile boolean down;
+
+        SwitchableDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException("Connection refused");
+            }
+            return super.getConnection();
+        }
+    }
+}
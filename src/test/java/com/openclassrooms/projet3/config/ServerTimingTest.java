@@ -0,0 +1,48 @@
+package com.openclassrooms.projet3.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * With {@code app.server-timing.enabled=true}, responses carry the latency breakdown of their request.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "app.server-timing.enabled=true")
+@ActiveProfiles("test")
+class ServerTimingTest {
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void responsesCarryTheLatencyBreakdown() throws Exception {
+        HttpResponse<String> registration = client.send(HttpRequest.newBuilder(uri("/api/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"name\":\"Timing\",\"email\":\"timing@test.com\",\"password\":\"password\"}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        String token = registration.body().replaceAll(".*\"token\"\\s*:\\s*\"([^\"]+)\".*", "$1");
+
+        HttpResponse<String> rentals = client.send(HttpRequest.newBuilder(uri("/api/rentals"))
+                .header("Authorization", "Bearer " + token).build(), HttpResponse.BodyHandlers.ofString());
+
+        assertThat(rentals.statusCode()).isEqualTo(200);
+        assertThat(rentals.headers().firstValue(ServerTimingFilter.HEADER)).hasValueSatisfying(header -> assertThat(header)
+                .matches("auth;dur=[0-9.]+, db;dur=[0-9.]+(;desc=\"\\d+\")?, .*json;dur=[0-9.]+, total;dur=[0-9.]+"));
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
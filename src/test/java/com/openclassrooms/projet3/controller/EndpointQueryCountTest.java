@@ -0,0 +1,241 @@
+package com.openclassrooms.projet3.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.projet3.model.DBUser;
+import com.openclassrooms.projet3.model.Message;
+import com.openclassrooms.projet3.model.Rental;
+import com.openclassrooms.projet3.repository.CapturedStatements;
+import com.openclassrooms.projet3.repository.DBUserRepository;
+import com.openclassrooms.projet3.repository.MessageRepository;
+import com.openclassrooms.projet3.repository.RentalRepository;
+import com.openclassrooms.projet3.utils.ImageUtils;
+import com.openclassrooms.projet3.utils.StoredPicture;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Number of SQL statements run by each endpoint, so that an N+1 query or a collection loaded by mistake breaks the
+ * build. The second-level cache is emptied before each request: the counts are those of a cold cache.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = CapturedStatements.PROPERTY)
+@ActiveProfiles("test")
+class EndpointQueryCountTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private DBUserRepository userRepository;
+
+    @Autowired
+    private RentalRepository rentalRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ImageUtils imageUtils;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private String email;
+
+    @BeforeEach
+    void setUp() {
+        email = "queries-" + UUID.randomUUID() + "@test.com";
+    }
+
+    @Test
+    void authenticationEndpoints() throws Exception {
+        // email check, user, change feed
+        assertStatements(3, this::register);
+        String token = assertStatements(1, () -> objectMapper.readTree(send(json("/api/auth/login", null,
+                Map.of("email", email, "password", "password")), 200).body()).get("token").asText());
+        assertStatements(1, () -> send(get("/api/auth/me", token), 200));
+    }
+
+    @Test
+    void userEndpoint() throws Exception {
+        String token = register();
+        DBUser user = userRepository.findByEmail(email).orElseThrow();
+        assertStatements(1, () -> send(get("/api/user/" + user.getId(), token), 200));
+    }
+
+    @Test
+    void rentalReadEndpoints() throws Exception {
+        String token = register();
+        // rentals of several owners: loading each owner separately would show as one statement per owner
+        for (int i = 0; i < 3; i++) {
+            rentalRepository.save(rental(newUser()));
+        }
+        Rental rental = rentalRepository.save(rental(userRepository.findByEmail(email).orElseThrow()));
+
+        assertStatements(1, () -> send(get("/api/rentals", token), 200));
+        assertStatements(1, () -> send(get("/api/rentals/" + rental.getId(), token), 200));
+    }
+
+    @Test
+    void rentalWriteEndpoints() throws Exception {
+        String token = register();
+        // owner, picture registration and reference, rental, change feed
+        assertStatements(5, () -> send(multipart("POST", "/api/rentals", token, "Maison", true), 201));
+        Rental rental = rentalRepository.save(rental(userRepository.findByEmail(email).orElseThrow()));
+
+        // rental, owner, update, change feed
+        assertStatements(4, () -> send(multipart("PUT", "/api/rentals/" + rental.getId(), token, "Villa", false), 200));
+        // rental, owner, new picture registration and reference (the previous picture is not content-addressed), update,
+        // change feed
+        assertStatements(6, () -> send(multipart("PUT", "/api/rentals/" + rental.getId(), token, "Chalet", true), 200));
+        // rental, owner, new picture registration and reference, previous picture release, update, change feed
+        assertStatements(7, () -> send(HttpRequest.newBuilder(uri("/api/rentals/" + rental.getId() + "/picture"))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "image/png")
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(png())), 200));
+        // presigned uploads need the S3 store, the local store refuses them before any query
+        assertStatements(0, () -> send(HttpRequest.newBuilder(uri("/api/rentals/picture-uploads?sha256=" + "0".repeat(64)
+                        + "&contentType=image/png&contentLength=1000"))
+                .header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.noBody()), 501));
+    }
+
+    @Test
+    void messageEndpoints() throws Exception {
+        String token = register();
+        DBUser user = userRepository.findByEmail(email).orElseThrow();
+        Rental rental = rentalRepository.save(rental(user));
+
+        // rental, author, message
+        assertStatements(3, () -> send(json("/api/messages", token,
+                Map.of("rental_id", rental.getId(), "user_id", user.getId(), "message", "Disponible en juillet ?")), 201));
+        Message message = messageRepository.save(message(rental, user));
+        // message, requester; the author reads it without loading the rental
+        assertStatements(2, () -> send(get("/api/messages/" + message.getId(), token), 200));
+    }
+
+    @Test
+    void pictureEndpoint() throws Exception {
+        byte[] content = png();
+        StoredPicture picture = imageUtils.storePicture(Channels.newChannel(new ByteArrayInputStream(content)), "image/png", content.length);
+        assertStatements(0, () -> send(get(URI.create(picture.url()).getPath(), null), 200));
+    }
+
+    private <T> T assertStatements(int expected, Callable<T> request) throws Exception {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        CapturedStatements.clear();
+        T result = request.call();
+        assertThat(CapturedStatements.sql()).hasSize(expected);
+        return result;
+    }
+
+    private String register() throws Exception {
+        HttpResponse<String> response = send(json("/api/auth/register", null,
+                Map.of("name", "Queries", "email", email, "password", "password")), 201);
+        return objectMapper.readTree(response.body()).get("token").asText();
+    }
+
+    private DBUser newUser() {
+        DBUser user = new DBUser();
+        user.setName("Owner");
+        user.setEmail("owner-" + UUID.randomUUID() + "@test.com");
+        user.setPassword("password");
+        return userRepository.save(user);
+    }
+
+    private static Rental rental(DBUser owner) {
+        Rental rental = new Rental();
+        rental.setName("Maison");
+        rental.setSurface(80);
+        rental.setPrice(1200);
+        rental.setPicture("/uploads/ab/cd/abcd.jpg");
+        rental.setDescription("Proche de la mer");
+        rental.setOwner(owner);
+        return rental;
+    }
+
+    private static Message message(Rental rental, DBUser user) {
+        Message message = new Message();
+        message.setRental(rental);
+        message.setUser(user);
+        message.setMessage("Toujours disponible ?");
+        return message;
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request, int expectedStatus) throws Exception {
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).as(response.body()).isEqualTo(expectedStatus);
+        return response;
+    }
+
+    private HttpRequest.Builder get(String path, String token) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(path)).GET();
+        return token == null ? request : request.header("Authorization", "Bearer " + token);
+    }
+
+    private HttpRequest.Builder json(String path, String token, Map<String, ?> body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+        return token == null ? request : request.header("Authorization", "Bearer " + token);
+    }
+
+    private HttpRequest.Builder multipart(String method, String path, String token, String name, boolean withPicture) throws Exception {
+        String boundary = UUID.randomUUID().toString();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        Map<String, String> fields = Map.of("name", name, "surface", "80", "price", "1200", "description", "Proche de la mer");
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            body.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + field.getKey() + "\"\r\n\r\n"
+                    + field.getValue() + "\r\n").getBytes(StandardCharsets.UTF_8));
+        }
+        if (withPicture) {
+            body.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"picture\"; filename=\"maison.png\"\r\n"
+                    + "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            body.write(png());
+            body.write("\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+        body.write(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return HttpRequest.newBuilder(uri(path))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .method(method, HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()));
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static byte[] png() {
+        byte[] content = new byte[1000];
+        byte[] signature = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+        System.arraycopy(signature, 0, content, 0, signature.length);
+        // distinct content for every upload, stored pictures are deduplicated by digest
+        byte[] unique = UUID.randomUUID().toString().getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(unique, 0, content, signature.length, unique.length);
+        return content;
+    }
+}
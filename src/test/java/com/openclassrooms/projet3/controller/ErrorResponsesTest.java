@@ -0,0 +1,100 @@
+package com.openclassrooms.projet3.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.projet3.excepton.CustomNotFoundException;
+import com.openclassrooms.projet3.excepton.ProblemDetails;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Errors are answered as {@code application/problem+json} with the status of their cause, whichever layer raised
+ * them.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class ErrorResponsesTest {
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void errorsAreProblemDetails() throws Exception {
+        String token = objectMapper.readTree(send(post("/api/auth/register",
+                "{\"name\":\"Errors\",\"email\":\"errors@test.com\",\"password\":\"password\"}")).body()).get("token").asText();
+
+        assertProblem(send(post("/api/auth/login", "{\"email\":\"errors@test.com\",\"password\":\"wrong\"}")),
+                401, "Unauthorized", "Invalid username or password");
+        assertProblem(send(post("/api/auth/register",
+                        "{\"name\":\"Errors\",\"email\":\"errors@test.com\",\"password\":\"password\"}")),
+                400, "Bad Request", "Email already in use.");
+        assertProblem(send(get("/api/rentals/999999", token)), 404, "Not Found", "Rental not found");
+        assertProblem(send(get("/api/messages/999999", token)), 404, "Not Found", "Message not found");
+        assertProblem(send(get("/api/user/999999", token)), 404, "Not Found", "User not found");
+
+        HttpResponse<String> validation = send(get("/api/rentals/0", token));
+        assertThat(validation.statusCode()).isEqualTo(400);
+        assertThat(objectMapper.readTree(validation.body()).get("errors").get(0).asText())
+                .isEqualTo("getRentalById.id: must be greater than or equal to 1");
+
+        // exceptions of Spring MVC keep their status instead of becoming 500s
+        HttpResponse<String> unknown = send(get("/api/unknown", token));
+        assertThat(unknown.statusCode()).isEqualTo(404);
+        assertThat(unknown.headers().firstValue("Content-Type")).hasValue("application/problem+json");
+    }
+
+    @Test
+    void domainExceptionsHaveNoStackTrace() {
+        assertThat(new CustomNotFoundException("Rental not found").getStackTrace()).isEmpty();
+    }
+
+    @Test
+    void onlyConstantDetailsAreCached() {
+        assertThat(ProblemDetails.cachedBody(HttpStatus.NOT_FOUND, "Rental not found"))
+                .isSameAs(ProblemDetails.cachedBody(HttpStatus.NOT_FOUND, "Rental not found"));
+        // details quoting the request, such as an unknown path, are serialized for each response
+        assertThat(ProblemDetails.body(HttpStatus.NOT_FOUND, "No static resource api/unknown."))
+                .isNotSameAs(ProblemDetails.body(HttpStatus.NOT_FOUND, "No static resource api/unknown."));
+        assertThat(new CustomNotFoundException("Rental not found").hasConstantMessage()).isTrue();
+    }
+
+    private void assertProblem(HttpResponse<String> response, int status, String title, String detail) throws Exception {
+        assertThat(response.statusCode()).isEqualTo(status);
+        assertThat(response.headers().firstValue("Content-Type")).hasValue("application/problem+json");
+        JsonNode problem = objectMapper.readTree(response.body());
+        assertThat(problem.get("type").asText()).isEqualTo("about:blank");
+        assertThat(problem.get("title").asText()).isEqualTo(title);
+        assertThat(problem.get("status").asInt()).isEqualTo(status);
+        assertThat(problem.get("detail").asText()).isEqualTo(detail);
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private HttpRequest get(String path, String token) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Authorization", "Bearer " + token)
+                .build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
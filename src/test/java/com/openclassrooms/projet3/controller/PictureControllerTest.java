@@ -0,0 +1,119 @@
+package com.openclassrooms.projet3.controller;
+
+import com.openclassrooms.projet3.utils.ImageUtils;
+import com.openclassrooms.projet3.utils.StoredPicture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@code GET /uploads/{filename}?w=} serves the original until the variants of the picture exist, then the variant
+ * fitting the requested width if the {@code Accept} header allows JPEG, and always varies on {@code Accept}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class PictureControllerTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ImageUtils imageUtils;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private String path;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // distinct content for every test, stored pictures are deduplicated by digest
+        BufferedImage image = new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(ThreadLocalRandom.current().nextInt(0xffffff)));
+        graphics.fillRect(0, 0, 1000, 500);
+        graphics.dispose();
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", content);
+
+        StoredPicture picture = imageUtils.storePicture(Channels.newChannel(new ByteArrayInputStream(content.toByteArray())),
+                "image/png", content.size());
+        path = URI.create(picture.url()).getPath();
+    }
+
+    @Test
+    void originalIsServedUntilTheVariantsExist() throws Exception {
+        HttpResponse<byte[]> pending = get(path + "?w=300", null);
+        assertThat(pending.statusCode()).isEqualTo(200);
+        assertThat(pending.headers().firstValue("Content-Type")).hasValue("image/png");
+        assertThat(pending.headers().allValues("Vary")).contains("Accept");
+
+        HttpResponse<byte[]> variant = awaitJpeg(path + "?w=300");
+        assertThat(variant.headers().allValues("Vary")).contains("Accept");
+        assertThat(ImageIO.read(new ByteArrayInputStream(variant.body())).getWidth()).isEqualTo(320);
+    }
+
+    @Test
+    void widthSelectsTheVariant() throws Exception {
+        awaitJpeg(path + "?w=300");
+
+        assertThat(ImageIO.read(new ByteArrayInputStream(get(path + "?w=600", null).body())).getWidth()).isEqualTo(640);
+        // wider than every variant smaller than the original: the original is served
+        HttpResponse<byte[]> original = get(path + "?w=1200", null);
+        assertThat(original.headers().firstValue("Content-Type")).hasValue("image/png");
+        assertThat(ImageIO.read(new ByteArrayInputStream(original.body())).getWidth()).isEqualTo(1000);
+    }
+
+    @Test
+    void acceptHeaderNegotiatesTheFormat() throws Exception {
+        awaitJpeg(path + "?w=300");
+
+        assertThat(get(path + "?w=300", "image/webp,image/*;q=0.8").headers().firstValue("Content-Type")).hasValue("image/jpeg");
+        HttpResponse<byte[]> png = get(path + "?w=300", "image/png");
+        assertThat(png.headers().firstValue("Content-Type")).hasValue("image/png");
+        assertThat(png.headers().allValues("Vary")).contains("Accept");
+    }
+
+    @Test
+    void originalWithoutWidthDoesNotVary() throws Exception {
+        HttpResponse<byte[]> original = get(path, "image/png");
+        assertThat(original.statusCode()).isEqualTo(200);
+        assertThat(original.headers().allValues("Vary")).doesNotContain("Accept");
+    }
+
+    private HttpResponse<byte[]> awaitJpeg(String pathAndQuery) throws Exception {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        HttpResponse<byte[]> response = get(pathAndQuery, null);
+        while (!"image/jpeg".equals(response.headers().firstValue("Content-Type").orElse(null)) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            response = get(pathAndQuery, null);
+        }
+        assertThat(response.headers().firstValue("Content-Type")).hasValue("image/jpeg");
+        return response;
+    }
+
+    private HttpResponse<byte[]> get(String pathAndQuery, String accept) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + pathAndQuery));
+        if (accept != null) {
+            request.header("Accept", accept);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
@@ -0,0 +1,102 @@
+package com.openclassrooms.projet3.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.projet3.model.DBUser;
+import com.openclassrooms.projet3.model.Rental;
+import com.openclassrooms.projet3.repository.DBUserRepository;
+import com.openclassrooms.projet3.repository.RentalRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The reactive read API answers like the MVC API: same status and same JSON for the same requests.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "app.reactive.port=0")
+@ActiveProfiles({"reactive", "test"})
+class ReactiveReadApiTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private WebServer reactiveApiServer;
+
+    @Autowired
+    private DBUserRepository userRepository;
+
+    @Autowired
+    private RentalRepository rentalRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void readsMatchTheMvcApi() throws Exception {
+        String token = register();
+        DBUser owner = userRepository.findByEmail("reactive@test.com").orElseThrow();
+        Rental rental = new Rental();
+        rental.setName("Maison");
+        rental.setSurface(80);
+        rental.setPrice(1200.5);
+        rental.setPicture("/uploads/ab/cd/abcd.jpg");
+        rental.setDescription("Proche de la mer");
+        rental.setOwner(owner);
+        rental = rentalRepository.save(rental);
+
+        List<String> paths = List.of("/api/rentals", "/api/rentals/" + rental.getId(), "/api/user/" + owner.getId(),
+                "/api/rentals/999999", "/api/rentals/0", "/api/rentals/abc", "/api/user/999999");
+        for (String path : paths) {
+            HttpResponse<String> mvc = get(port, path, token);
+            HttpResponse<String> reactive = get(reactiveApiServer.getPort(), path, token);
+            assertThat(reactive.statusCode()).as(path).isEqualTo(mvc.statusCode());
+            assertThat(json(reactive)).as(path).isEqualTo(json(mvc));
+        }
+        // the database is shared with the other tests, which may have created rentals too
+        assertThat(json(get(reactiveApiServer.getPort(), "/api/rentals", token)).get("rentals").findValuesAsText("id"))
+                .contains(String.valueOf(rental.getId()));
+    }
+
+    @Test
+    void requestsWithoutAValidTokenAreRejected() throws Exception {
+        assertThat(get(reactiveApiServer.getPort(), "/api/rentals", null).statusCode()).isEqualTo(401);
+        HttpResponse<String> response = get(reactiveApiServer.getPort(), "/api/rentals", "not-a-token");
+        assertThat(response.statusCode()).isEqualTo(401);
+        assertThat(response.headers().firstValue("WWW-Authenticate")).hasValue("Bearer");
+    }
+
+    private String register() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"name\":\"Reactive\",\"email\":\"reactive@test.com\",\"password\":\"password\"}"))
+                .build();
+        return objectMapper.readTree(client.send(request, HttpResponse.BodyHandlers.ofString()).body()).get("token").asText();
+    }
+
+    private HttpResponse<String> get(int port, String path, String token) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET();
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private JsonNode json(HttpResponse<String> response) throws Exception {
+        return objectMapper.readTree(response.body());
+    }
+}
@@ -0,0 +1,157 @@
+package com.openclassrooms.projet3.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.projet3.model.DBUser;
+import com.openclassrooms.projet3.model.Rental;
+import com.openclassrooms.projet3.repository.DBUserRepository;
+import com.openclassrooms.projet3.repository.RentalRepository;
+import com.openclassrooms.projet3.utils.ImageUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@code PUT /api/rentals/{id}/picture} replaces the picture of a rental with the request body, and answers an upload
+ * over the limit, empty or not matching its declared type with a problem, keeping the previous picture.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.servlet.multipart.max-file-size=8KB")
+@ActiveProfiles("test")
+class RentalPictureUploadTest {
+
+    private static final String PREVIOUS_PICTURE = "/uploads/ab/cd/abcd.jpg";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private DBUserRepository userRepository;
+
+    @Autowired
+    private RentalRepository rentalRepository;
+
+    @Autowired
+    private ImageUtils imageUtils;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private String token;
+    private Rental rental;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String email = "uploads-" + UUID.randomUUID() + "@test.com";
+        HttpResponse<String> registered = client.send(HttpRequest.newBuilder(uri("/api/auth/register"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                "{\"name\":\"Uploads\",\"email\":\"" + email + "\",\"password\":\"password\"}"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        token = objectMapper.readTree(registered.body()).get("token").asText();
+
+        DBUser owner = userRepository.findByEmail(email).orElseThrow();
+        rental = new Rental();
+        rental.setName("Maison");
+        rental.setSurface(80);
+        rental.setPrice(1200);
+        rental.setPicture(PREVIOUS_PICTURE);
+        rental.setDescription("Proche de la mer");
+        rental.setOwner(owner);
+        rental = rentalRepository.save(rental);
+    }
+
+    @Test
+    void pictureIsReplacedByTheStreamedBody() throws Exception {
+        byte[] content = png(4 * 1024);
+
+        HttpResponse<String> response = put("image/png", HttpRequest.BodyPublishers.ofByteArray(content));
+
+        assertThat(response.statusCode()).as(response.body()).isEqualTo(200);
+        String picture = objectMapper.readTree(response.body()).get("data").get("picture").asText();
+        assertThat(picture).endsWith(imageUtils.digestOf(picture) + ".png");
+        assertThat(rentalRepository.findById(rental.getId()).orElseThrow().getPicture()).isEqualTo(picture);
+    }
+
+    @Test
+    void uploadOverTheLimitIsAbortedWithoutLeftover() throws Exception {
+        byte[] content = png(16 * 1024);
+
+        // sent chunked, the limit is only hit while the body is read
+        HttpResponse<String> response = put("image/png",
+                HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(content)));
+
+        assertProblem(response, 413);
+        assertThat(partFiles()).isZero();
+    }
+
+    @Test
+    void uploadNotMatchingItsDeclaredTypeIsRefused() throws Exception {
+        HttpResponse<String> response = put("image/jpeg", HttpRequest.BodyPublishers.ofByteArray(png(1000)));
+
+        assertProblem(response, 415);
+        assertThat(partFiles()).isZero();
+    }
+
+    @Test
+    void emptyUploadIsRefused() throws Exception {
+        HttpResponse<String> response = put("image/png", HttpRequest.BodyPublishers.noBody());
+
+        assertProblem(response, 400);
+    }
+
+    private void assertProblem(HttpResponse<String> response, int status) {
+        assertThat(response.statusCode()).as(response.body()).isEqualTo(status);
+        assertThat(response.headers().firstValue("Content-Type")).hasValue("application/problem+json");
+        assertThat(rentalRepository.findById(rental.getId()).orElseThrow().getPicture()).isEqualTo(PREVIOUS_PICTURE);
+    }
+
+    private HttpResponse<String> put(String contentType, HttpRequest.BodyPublisher body) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri("/api/rentals/" + rental.getId() + "/picture"))
+                        .header("Authorization", "Bearer " + token)
+                        .header("Content-Type", contentType)
+                        .PUT(body)
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private long partFiles() throws IOException {
+        Path uploadsDir = imageUtils.getUploadsDirectory();
+        try (Stream<Path> files = Files.list(uploadsDir)) {
+            return files.filter(file -> imageUtils.isTemporaryFile(file.getFileName().toString())).count();
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static byte[] png(int size) {
+        byte[] content = new byte[size];
+        byte[] signature = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+        System.arraycopy(signature, 0, content, 0, signature.length);
+        // distinct content for every upload, stored pictures are deduplicated by digest
+        byte[] unique = UUID.randomUUID().toString().getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(unique, 0, content, signature.length, unique.length);
+        return content;
+    }
+}
@@ -0,0 +1,35 @@
+package com.openclassrooms.projet3.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records the SQL Hibernate sends, for tests checking the statements run by a piece of code. Enabled by the
+ * {@link #PROPERTY} test property.
+ */
+public class CapturedStatements implements StatementInspector {
+
+    public static final String PROPERTY = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+            + "com.openclassrooms.projet3.repository.CapturedStatements";
+
+    private static final List<String> SQL = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        SQL.add(sql);
+        return sql;
+    }
+
+    /**
+     * Statements sent since the last {@link #clear()}, in order.
+     */
+    public static List<String> sql() {
+        return List.copyOf(SQL);
+    }
+
+    public static void clear() {
+        SQL.clear();
+    }
+}
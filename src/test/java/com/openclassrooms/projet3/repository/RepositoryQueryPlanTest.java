@@ -0,0 +1,159 @@
+package com.openclassrooms.projet3.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Method;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@code EXPLAIN} on the SQL of every query method of the repositories, against the schema created by the
+ * migrations, and fails if one of them scans a whole table or index.
+ */
+@SpringBootTest(properties = CapturedStatements.PROPERTY)
+@ActiveProfiles("test")
+class RepositoryQueryPlanTest {
+
+    // reads every rental on purpose, once per run of the migration and the garbage collection of legacy files
+    private static final Set<String> FULL_SCANS_ALLOWED = Set.of("RentalRepository.findAllPictures");
+
+    // H2 describes how each table is read in a comment: the index used and its condition, or a table scan
+    private static final Pattern TABLE_ACCESS = Pattern.compile("/\\* (PUBLIC\\.[^*]+?) \\*/");
+
+    @Autowired
+    private DBUserRepository userRepository;
+
+    @Autowired
+    private RentalRepository rentalRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private PictureBlobRepository pictureBlobRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void repositoryQueriesUseIndexes() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+        queries.put("DBUserRepository.findByEmail", () -> userRepository.findByEmail("plan@test.com"));
+        queries.put("DBUserRepository.existsByEmail", () -> userRepository.existsByEmail("plan@test.com"));
+        queries.put("RentalRepository.findAllPictures", () -> rentalRepository.findAllPictures());
+        queries.put("MessageRepository.findArchivableMessages", () -> messageRepository.findArchivableMessages(now, PageRequest.of(0, 100)));
+        queries.put("MessageRepository.deleteByIdIn", () -> messageRepository.deleteByIdIn(List.of(1L, 2L)));
+        queries.put("PictureBlobRepository.insertIfAbsent", () -> pictureBlobRepository.insertIfAbsent("0".repeat(64), "a.jpg", "image/jpeg", 1, now));
+        queries.put("PictureBlobRepository.incrementRefCount", () -> pictureBlobRepository.incrementRefCount("0".repeat(64), now));
+        queries.put("PictureBlobRepository.decrementRefCount", () -> pictureBlobRepository.decrementRefCount("0".repeat(64), now));
+        queries.put("PictureBlobRepository.findUnreferencedSince", () -> pictureBlobRepository.findUnreferencedSince(now, PageRequest.of(0, 100)));
+        queries.put("PictureBlobRepository.deleteIfUnreferenced", () -> pictureBlobRepository.deleteIfUnreferenced("0".repeat(64), now));
+
+        assertThat(queries.keySet()).as("every query method is checked").containsAll(queryMethods(
+                DBUserRepository.class, RentalRepository.class, MessageRepository.class, PictureBlobRepository.class));
+
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<String> fullScans = new ArrayList<>();
+        queries.forEach((name, query) -> {
+            CapturedStatements.clear();
+            transaction.executeWithoutResult(status -> {
+                query.run();
+                status.setRollbackOnly();
+            });
+            List<String> statements = CapturedStatements.sql();
+            assertThat(statements).as(name).isNotEmpty();
+            for (String sql : statements) {
+                if (sql.regionMatches(true, 0, "insert", 0, 6)) {
+                    continue;
+                }
+                String plan = explain(sql);
+                List<String> scans = scannedTables(plan);
+                if (!scans.isEmpty() && !FULL_SCANS_ALLOWED.contains(name)) {
+                    fullScans.add(name + " scans " + scans + ": " + plan);
+                }
+            }
+        });
+        assertThat(fullScans).isEmpty();
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                // any value of the right type: a null would let H2 simplify conditions away
+                ParameterMetaData parameters = statement.getParameterMetaData();
+                for (int i = 1; i <= parameters.getParameterCount(); i++) {
+                    statement.setObject(i, sampleValue(parameters.getParameterType(i)));
+                }
+                try (ResultSet plan = statement.executeQuery()) {
+                    plan.next();
+                    return plan.getString(1);
+                }
+            }
+        });
+    }
+
+    private static Object sampleValue(int sqlType) {
+        return switch (sqlType) {
+            case Types.CHAR, Types.VARCHAR, Types.LONGVARCHAR -> "x";
+            case Types.DATE -> LocalDate.now();
+            case Types.TIMESTAMP -> LocalDateTime.now();
+            default -> 1;
+        };
+    }
+
+    /**
+     * Tables read without a condition on an index: {@code PUBLIC.RENTALS.tableScan}, or an index without condition.
+     */
+    private static List<String> scannedTables(String plan) {
+        List<String> scans = new ArrayList<>();
+        Matcher matcher = TABLE_ACCESS.matcher(plan);
+        while (matcher.find()) {
+            String access = matcher.group(1);
+            if (access.contains(".tableScan") || !access.contains(":")) {
+                scans.add(access);
+            }
+        }
+        return scans;
+    }
+
+    private static Set<String> queryMethods(Class<?>... repositories) {
+        return Arrays.stream(repositories)
+                .flatMap(repository -> Arrays.stream(repository.getDeclaredMethods())
+                        .map(Method::getName)
+                        .map(method -> repository.getSimpleName() + "." + method))
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,116 @@
+package com.openclassrooms.projet3.service.impl;
+
+import com.openclassrooms.projet3.Projet3Application;
+import com.openclassrooms.projet3.model.DBUser;
+import com.openclassrooms.projet3.model.Rental;
+import com.openclassrooms.projet3.model.RegistrationRequest;
+import com.openclassrooms.projet3.repository.DBUserRepository;
+import com.openclassrooms.projet3.repository.RentalRepository;
+import com.openclassrooms.projet3.service.AuthenticationService;
+import com.openclassrooms.projet3.service.CacheChangeFeedService;
+import com.openclassrooms.projet3.service.RentalService;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two nodes sharing a database, each with its own second-level cache: a write on one node is evicted from the cache
+ * of the other once it applied the change feed, including the changes made while it was stopped.
+ */
+class CacheChangeFeedServiceImplTest {
+
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private final List<CacheManager> cacheManagers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+        cacheManagers.forEach(CacheManager::close);
+    }
+
+    @Test
+    void writesOnOneNodeAreEvictedFromTheOther() throws Exception {
+        ConfigurableApplicationContext a = start("node-a");
+        ConfigurableApplicationContext b = start("node-b");
+        // the feed of each node starts at its end
+        assertThat(b.getBean(CacheChangeFeedService.class).applyChanges()).isZero();
+
+        DBUser owner = a.getBean(DBUserRepository.class).findByEmail(register(a, "feed-owner@test.com")).orElseThrow();
+        Rental rental = a.getBean(RentalRepository.class).save(rental(owner, "Studio"));
+        assertThat(b.getBean(RentalService.class).findRentalDTOById(rental.getId()).getName()).isEqualTo("Studio");
+        assertThat(b.getBean(DBUserRepository.class).existsByEmail("feed-user@test.com")).isFalse();
+
+        a.getBean(RentalService.class).updateRental(rental.getId(), "Grand studio", 40, 700, "Studio", null,
+                "feed-owner@test.com");
+        register(a, "feed-user@test.com");
+        // node b still reads its cache...
+        assertThat(b.getBean(RentalService.class).findRentalDTOById(rental.getId()).getName()).isEqualTo("Studio");
+        assertThat(b.getBean(DBUserRepository.class).existsByEmail("feed-user@test.com")).isFalse();
+
+        // ...until it applies the changes of node a, node a having nothing to apply
+        assertThat(b.getBean(CacheChangeFeedService.class).applyChanges()).isEqualTo(3);
+        assertThat(a.getBean(CacheChangeFeedService.class).applyChanges()).isZero();
+        assertThat(b.getBean(RentalService.class).findRentalDTOById(rental.getId()).getName()).isEqualTo("Grand studio");
+        assertThat(b.getBean(DBUserRepository.class).existsByEmail("feed-user@test.com")).isTrue();
+
+        // a restarted node resumes where it stopped
+        b.close();
+        nodes.remove(b);
+        a.getBean(RentalService.class).updateRental(rental.getId(), "Studio meublé", 40, 750, "Studio", null,
+                "feed-owner@test.com");
+        ConfigurableApplicationContext restarted = start("node-b");
+        assertThat(restarted.getBean(CacheChangeFeedService.class).applyChanges()).isEqualTo(1);
+    }
+
+    private ConfigurableApplicationContext start(String nodeId) throws Exception {
+        // Ehcache shares a cache manager between the users of a configuration in the same class loader
+        CacheManager cacheManager = Caching.getCachingProvider(EhcacheCachingProvider.class.getName())
+                .getCacheManager(getClass().getResource("/ehcache.xml").toURI(),
+                        new URLClassLoader(new URL[0], getClass().getClassLoader()));
+        cacheManagers.add(cacheManager);
+        ConfigurableApplicationContext node = new SpringApplicationBuilder(Projet3Application.class)
+                .profiles("test")
+                .initializers(context -> context.getBeanFactory().registerSingleton("nodeCacheManager",
+                        (HibernatePropertiesCustomizer) properties ->
+                                properties.put("hibernate.javax.cache.cache_manager", cacheManager)))
+                // arguments, which take precedence over application.properties, unlike default properties
+                .run("--server.port=0",
+                        "--management.server.port=-1",
+                        "--spring.datasource.url=jdbc:h2:mem:cache-feed;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "--app.cache-changes.node-id=" + nodeId,
+                        "--logging.level.root=WARN");
+        nodes.add(node);
+        return node;
+    }
+
+    private static String register(ConfigurableApplicationContext node, String email) {
+        RegistrationRequest request = new RegistrationRequest();
+        request.setName(email);
+        request.setEmail(email);
+        request.setPassword("password");
+        node.getBean(AuthenticationService.class).registerUserAndGenerateToken(request);
+        return email;
+    }
+
+    private static Rental rental(DBUser owner, String name) {
+        Rental rental = new Rental();
+        rental.setName(name);
+        rental.setSurface(40);
+        rental.setPrice(700);
+        rental.setDescription(name);
+        rental.setOwner(owner);
+        return rental;
+    }
+}
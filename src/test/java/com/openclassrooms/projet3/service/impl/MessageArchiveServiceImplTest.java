@@ -0,0 +1,91 @@
+package com.openclassrooms.projet3.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.openclassrooms.projet3.model.MessageArchiveEntry;
+import com.openclassrooms.projet3.repository.MessageRepository;
+import com.openclassrooms.projet3.service.JobLockService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageArchiveServiceImplTest {
+
+    @TempDir
+    Path archiveDir;
+
+    @Test
+    void archivedMessagesAreGroupedByMonthAndReadableById() throws Exception {
+        MessageRepository repository = mock(MessageRepository.class);
+        List<MessageArchiveEntry> batch = List.of(
+                entry(1L, LocalDateTime.of(2023, 1, 10, 9, 0)),
+                entry(2L, LocalDateTime.of(2023, 1, 31, 23, 59)),
+                entry(3L, LocalDateTime.of(2023, 2, 1, 0, 0)));
+        when(repository.findArchivableMessages(any(LocalDateTime.class), any(Pageable.class))).thenReturn(batch, List.of());
+
+        MessageArchiveServiceImpl service = service(repository, lock(true));
+
+        assertThat(service.archiveExpiredMessages()).isEqualTo(3);
+        verify(repository).deleteByIdIn(anyCollection());
+        assertThat(Files.exists(archiveDir.resolve("2023-01").resolve("1-2.jsonl.gz"))).isTrue();
+        assertThat(Files.exists(archiveDir.resolve("2023-02").resolve("3-3.jsonl.gz"))).isTrue();
+
+        Optional<MessageArchiveEntry> found = service.findArchivedMessage(2L);
+        assertThat(found).contains(batch.get(1));
+        assertThat(service.findArchivedMessage(4L)).isEmpty();
+    }
+
+    @Test
+    void messagesAreNotArchivedWhileAnotherNodeHoldsTheLock() throws Exception {
+        MessageRepository repository = mock(MessageRepository.class);
+        JobLockService jobLockService = lock(false);
+
+        assertThat(service(repository, jobLockService).archiveExpiredMessages()).isZero();
+        verify(repository, never()).findArchivableMessages(any(LocalDateTime.class), any(Pageable.class));
+        verify(jobLockService, never()).unlock(anyString());
+    }
+
+    @Test
+    void segmentsWrittenByAnotherNodeAreFound() throws Exception {
+        MessageArchiveServiceImpl reader = service(mock(MessageRepository.class), lock(true));
+        assertThat(reader.findArchivedMessage(1L)).isEmpty();
+
+        MessageRepository repository = mock(MessageRepository.class);
+        MessageArchiveEntry archived = entry(1L, LocalDateTime.of(2023, 1, 10, 9, 0));
+        when(repository.findArchivableMessages(any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(archived));
+        service(repository, lock(true)).archiveExpiredMessages();
+
+        assertThat(reader.findArchivedMessage(1L)).contains(archived);
+    }
+
+    private MessageArchiveServiceImpl service(MessageRepository repository, JobLockService jobLockService) {
+        return new MessageArchiveServiceImpl(repository, new ObjectMapper().registerModule(new JavaTimeModule()),
+                jobLockService, true, 365, 500, 20, archiveDir.toString(), Duration.ofHours(1), Duration.ZERO);
+    }
+
+    private static JobLockService lock(boolean acquired) {
+        JobLockService jobLockService = mock(JobLockService.class);
+        when(jobLockService.tryLock(anyString(), any(Duration.class))).thenReturn(acquired);
+        return jobLockService;
+    }
+
+    private static MessageArchiveEntry entry(long id, LocalDateTime createdAt) {
+        return new MessageArchiveEntry(id, 10L, 20L, "message " + id, createdAt, createdAt);
+    }
+}
@@ -0,0 +1,91 @@
+package com.openclassrooms.projet3.service.impl;
+
+import com.openclassrooms.projet3.excepton.CustomNotFoundException;
+import com.openclassrooms.projet3.model.DBUser;
+import com.openclassrooms.projet3.model.Message;
+import com.openclassrooms.projet3.model.Rental;
+import com.openclassrooms.projet3.repository.DBUserRepository;
+import com.openclassrooms.projet3.repository.MessageRepository;
+import com.openclassrooms.projet3.repository.RentalRepository;
+import com.openclassrooms.projet3.service.MessageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * A message is readable by its author and by the owner of its rental, and is not found for anyone else.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class MessageServiceImplTest {
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private DBUserRepository userRepository;
+
+    @Autowired
+    private RentalRepository rentalRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    private DBUser owner;
+    private DBUser author;
+    private Message message;
+
+    @BeforeEach
+    void setUp() {
+        owner = user();
+        author = user();
+        Rental rental = new Rental();
+        rental.setName("Maison");
+        rental.setSurface(80);
+        rental.setPrice(1200);
+        rental.setPicture("/uploads/ab/cd/abcd.jpg");
+        rental.setDescription("Proche de la mer");
+        rental.setOwner(owner);
+        rentalRepository.save(rental);
+
+        message = new Message();
+        message.setRental(rental);
+        message.setUser(author);
+        message.setMessage("Toujours disponible ?");
+        messageRepository.save(message);
+    }
+
+    @Test
+    void theAuthorReadsTheMessage() throws Exception {
+        assertThat(messageService.findMessageDTOById(message.getId(), author.getEmail()).getMessage())
+                .isEqualTo("Toujours disponible ?");
+    }
+
+    @Test
+    void theOwnerOfTheRentalReadsTheMessage() throws Exception {
+        assertThat(messageService.findMessageDTOById(message.getId(), owner.getEmail()).getUser_id())
+                .isEqualTo(author.getId());
+    }
+
+    @Test
+    void anyoneElseDoesNotFindTheMessage() {
+        assertThatThrownBy(() -> messageService.findMessageDTOById(message.getId(), user().getEmail()))
+                .isInstanceOf(CustomNotFoundException.class)
+                .hasMessage("Message not found");
+    }
+
+    private DBUser user() {
+        DBUser user = new DBUser();
+        user.setName("User");
+        user.setEmail("messages-" + UUID.randomUUID() + "@test.com");
+        user.setPassword("password");
+        return userRepository.save(user);
+    }
+}
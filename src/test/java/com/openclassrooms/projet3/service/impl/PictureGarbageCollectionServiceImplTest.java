@@ -0,0 +1,107 @@
+package com.openclassrooms.projet3.service.impl;
+
+import com.openclassrooms.projet3.model.PictureBlob;
+import com.openclassrooms.projet3.repository.PictureBlobRepository;
+import com.openclassrooms.projet3.repository.RentalRepository;
+import com.openclassrooms.projet3.service.PictureVariantService;
+import com.openclassrooms.projet3.utils.PictureShards;
+import com.openclassrooms.projet3.utils.impl.ImageUtilsImpl;
+import com.openclassrooms.projet3.utils.impl.LocalPictureStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PictureGarbageCollectionServiceImplTest {
+
+    private static final String UNREFERENCED = "aa" + "0".repeat(62);
+    private static final String ORPHAN = "bb" + "0".repeat(62);
+    private static final String REFERENCED = "cc" + "0".repeat(62);
+    private static final String RECENT_ORPHAN = "dd" + "0".repeat(62);
+
+    @TempDir
+    Path uploadsDir;
+
+    @Test
+    void unreferencedAndOrphanFilesAreDeletedOnceTheGracePeriodIsOver() throws Exception {
+        PictureBlobRepository blobRepository = mock(PictureBlobRepository.class);
+        RentalRepository rentalRepository = mock(RentalRepository.class);
+        PictureVariantService variantService = mock(PictureVariantService.class);
+
+        PictureBlob unreferenced = new PictureBlob();
+        unreferenced.setDigest(UNREFERENCED);
+        unreferenced.setFilename(UNREFERENCED + ".jpg");
+        when(blobRepository.findUnreferencedSince(any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(unreferenced));
+        when(blobRepository.deleteIfUnreferenced(eq(UNREFERENCED), any(LocalDateTime.class))).thenReturn(1);
+        when(blobRepository.existsById(REFERENCED)).thenReturn(true);
+        when(rentalRepository.findAllPictures()).thenReturn(List.of(reference(2L, "http://localhost:3001/uploads/2_kept.jpg")));
+
+        Path unreferencedFile = old(store(UNREFERENCED));
+        Path orphanFile = old(store(ORPHAN));
+        Path referencedFile = old(store(REFERENCED));
+        Path recentOrphanFile = store(RECENT_ORPHAN);
+        Path legacyFile = old(Files.write(uploadsDir.resolve("1_removed.jpg"), new byte[]{1}));
+        Path referencedLegacyFile = old(Files.write(uploadsDir.resolve("2_kept.jpg"), new byte[]{1}));
+        Path interruptedUpload = old(Files.write(uploadsDir.resolve("upload-123.part"), new byte[]{1}));
+
+        LocalPictureStore store = new LocalPictureStore(uploadsDir.toString());
+        ImageUtilsImpl imageUtils = new ImageUtilsImpl(store, new SimpleMeterRegistry(), uploadsDir.toString(), DataSize.ofMegabytes(1), DataSize.ofKilobytes(4), 1);
+        PictureGarbageCollectionServiceImpl collector = new PictureGarbageCollectionServiceImpl(blobRepository, rentalRepository,
+                imageUtils, store, variantService, mock(PlatformTransactionManager.class), true, Duration.ofHours(24), 100, 10, Duration.ZERO, 256);
+
+        assertThat(collector.collectGarbage()).isEqualTo(4);
+
+        assertThat(unreferencedFile).doesNotExist();
+        assertThat(orphanFile).doesNotExist();
+        assertThat(legacyFile).doesNotExist();
+        assertThat(interruptedUpload).doesNotExist();
+        assertThat(referencedFile).exists();
+        assertThat(recentOrphanFile).exists();
+        assertThat(referencedLegacyFile).exists();
+        verify(variantService).deleteVariants(UNREFERENCED);
+        verify(variantService).deleteVariants(ORPHAN);
+        // the pictures of the rentals are read once for all the legacy files
+        verify(rentalRepository).findAllPictures();
+    }
+
+    private static RentalRepository.PictureReference reference(Long id, String picture) {
+        return new RentalRepository.PictureReference() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getPicture() {
+                return picture;
+            }
+        };
+    }
+
+    private Path store(String digest) throws Exception {
+        Path shard = Files.createDirectories(PictureShards.directory(uploadsDir, digest));
+        return Files.write(shard.resolve(digest + ".jpg"), new byte[]{1});
+    }
+
+    private static Path old(Path file) throws Exception {
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        return file;
+    }
+}
@@ -0,0 +1,146 @@
+package com.openclassrooms.projet3.service.impl;
+
+import com.openclassrooms.projet3.model.DBUser;
+import com.openclassrooms.projet3.model.PictureBlob;
+import com.openclassrooms.projet3.model.Rental;
+import com.openclassrooms.projet3.repository.DBUserRepository;
+import com.openclassrooms.projet3.repository.PictureBlobRepository;
+import com.openclassrooms.projet3.repository.RentalRepository;
+import com.openclassrooms.projet3.service.DBUserService;
+import com.openclassrooms.projet3.service.RentalService;
+import com.openclassrooms.projet3.utils.ImageUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reference counts of the stored pictures follow the rentals pointing to them: identical uploads share one picture,
+ * and replacing the picture of a rental or deleting it, directly or with its owner, releases its reference. Pictures
+ * are stored before the transaction of the rental opens, so an upload never holds a database connection.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class PictureServiceImplTest {
+
+    @Autowired
+    private RentalService rentalService;
+
+    @Autowired
+    private DBUserService dbUserService;
+
+    @Autowired
+    private DBUserRepository userRepository;
+
+    @Autowired
+    private RentalRepository rentalRepository;
+
+    @Autowired
+    private PictureBlobRepository pictureBlobRepository;
+
+    @Autowired
+    private ImageUtils imageUtils;
+
+    @Test
+    void identicalUploadsShareOnePicture() throws Exception {
+        String email = user().getEmail();
+        byte[] content = png();
+
+        Rental first = rentalService.createRental("Maison", 80, 1200, "Maison", picture(content), null, email);
+        Rental second = rentalService.createRental("Villa", 120, 2000, "Villa", picture(content), null, email);
+
+        assertThat(second.getPicture()).isEqualTo(first.getPicture());
+        assertThat(refCount(first.getPicture())).isEqualTo(2);
+    }
+
+    @Test
+    void replacingAPictureReleasesThePreviousOne() throws Exception {
+        String email = user().getEmail();
+        Rental rental = rentalService.createRental("Maison", 80, 1200, "Maison", picture(png()), null, email);
+        String previous = rental.getPicture();
+
+        Rental updated = rentalService.updateRental(rental.getId(), "Maison", 80, 1200, "Maison", picture(png()), email);
+
+        assertThat(refCount(previous)).isZero();
+        assertThat(refCount(updated.getPicture())).isEqualTo(1);
+    }
+
+    @Test
+    void picturesAreStoredOutsideOfTheRentalTransaction() throws Exception {
+        String email = user().getEmail();
+        MockMultipartFile picture = new MockMultipartFile("picture", "maison.png", "image/png", png()) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                assertThat(TransactionSynchronizationManager.isActualTransactionActive()).isFalse();
+                return super.getInputStream();
+            }
+        };
+
+        Rental rental = rentalService.createRental("Maison", 80, 1200, "Maison", picture, null, email);
+        rentalService.updateRental(rental.getId(), "Maison", 80, 1200, "Maison", picture, email);
+
+        assertThat(refCount(rental.getPicture())).isEqualTo(1);
+    }
+
+    @Test
+    void deletingARentalReleasesItsPicture() throws Exception {
+        String email = user().getEmail();
+        byte[] content = png();
+        Rental kept = rentalService.createRental("Maison", 80, 1200, "Maison", picture(content), null, email);
+        Rental deleted = rentalService.createRental("Villa", 120, 2000, "Villa", picture(content), null, email);
+
+        rentalService.deleteRental(deleted.getId());
+
+        assertThat(rentalRepository.existsById(deleted.getId())).isFalse();
+        assertThat(refCount(kept.getPicture())).isEqualTo(1);
+    }
+
+    @Test
+    void deletingAUserReleasesThePicturesOfTheirRentals() throws Exception {
+        DBUser owner = user();
+        Rental first = rentalService.createRental("Maison", 80, 1200, "Maison", picture(png()), null, owner.getEmail());
+        Rental second = rentalService.createRental("Villa", 120, 2000, "Villa", picture(png()), null, owner.getEmail());
+
+        dbUserService.deleteUser(owner.getId());
+
+        assertThat(userRepository.existsById(owner.getId())).isFalse();
+        assertThat(rentalRepository.existsById(first.getId())).isFalse();
+        assertThat(refCount(first.getPicture())).isZero();
+        assertThat(refCount(second.getPicture())).isZero();
+    }
+
+    private int refCount(String pictureUrl) {
+        return pictureBlobRepository.findById(imageUtils.digestOf(pictureUrl)).map(PictureBlob::getRefCount).orElseThrow();
+    }
+
+    private DBUser user() {
+        DBUser user = new DBUser();
+        user.setName("Owner");
+        user.setEmail("pictures-" + UUID.randomUUID() + "@test.com");
+        user.setPassword("password");
+        return userRepository.save(user);
+    }
+
+    private static MockMultipartFile picture(byte[] content) {
+        return new MockMultipartFile("picture", "maison.png", "image/png", content);
+    }
+
+    private static byte[] png() {
+        byte[] content = new byte[1000];
+        byte[] signature = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+        System.arraycopy(signature, 0, content, 0, signature.length);
+        // distinct content for every call, stored pictures are deduplicated by digest
+        byte[] unique = UUID.randomUUID().toString().getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(unique, 0, content, signature.length, unique.length);
+        return content;
+    }
+}
@@ -0,0 +1,92 @@
+package com.openclassrooms.projet3.service.impl;
+
+import com.openclassrooms.projet3.utils.PictureVariant;
+import com.openclassrooms.projet3.utils.StoredPicture;
+import com.openclassrooms.projet3.utils.impl.ImageUtilsImpl;
+import com.openclassrooms.projet3.utils.impl.LocalPictureStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Variants are generated in the background, then the smallest one at least as wide as requested is selected, as
+ * long as the client accepts JPEG.
+ */
+class PictureVariantServiceImplTest {
+
+    private static final List<MediaType> ANY = List.of();
+
+    @TempDir
+    Path uploadsDir;
+
+    private PictureVariantServiceImpl variantService;
+    private String filename;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        LocalPictureStore store = new LocalPictureStore(uploadsDir.toString());
+        ImageUtilsImpl imageUtils = new ImageUtilsImpl(store, new SimpleMeterRegistry(), uploadsDir.toString(),
+                DataSize.ofMegabytes(1), DataSize.ofKilobytes(4), 1);
+        variantService = new PictureVariantServiceImpl(imageUtils, store, new int[]{1280, 320, 640}, 0.8f,
+                uploadsDir.resolve("variants").toString(), 1, 10, false);
+
+        Path original = uploadsDir.resolve("original.png");
+        ImageIO.write(new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB), "png", original.toFile());
+        StoredPicture picture = imageUtils.importPicture(original);
+        filename = picture.filename();
+    }
+
+    @AfterEach
+    void tearDown() {
+        variantService.shutdown();
+    }
+
+    @Test
+    void originalIsServedWhileTheVariantsArePending() throws Exception {
+        assertThat(variantService.findBestVariant(filename, 300, ANY)).isEmpty();
+        assertThat(awaitVariant(300)).isPresent();
+    }
+
+    @Test
+    void smallestVariantAtLeastAsWideAsRequestedIsSelected() throws Exception {
+        assertThat(awaitVariant(300).orElseThrow().width()).isEqualTo(320);
+        assertThat(variantService.findBestVariant(filename, 320, ANY).orElseThrow().width()).isEqualTo(320);
+        assertThat(variantService.findBestVariant(filename, 500, ANY).orElseThrow().width()).isEqualTo(640);
+        // no variant is generated wider than the original, which is then served as is
+        assertThat(variantService.findBestVariant(filename, 900, ANY)).isEmpty();
+    }
+
+    @Test
+    void variantsAreOnlyServedToClientsAcceptingJpeg() throws Exception {
+        awaitVariant(300).orElseThrow();
+
+        assertThat(variantService.findBestVariant(filename, 300, MediaType.parseMediaTypes("image/webp,image/*;q=0.8")))
+                .map(PictureVariant::contentType).hasValue("image/jpeg");
+        assertThat(variantService.findBestVariant(filename, 300, MediaType.parseMediaTypes("*/*")))
+                .map(PictureVariant::contentType).hasValue("image/jpeg");
+        assertThat(variantService.findBestVariant(filename, 300, MediaType.parseMediaTypes("image/png"))).isEmpty();
+        assertThat(variantService.findBestVariant(filename, 300, MediaType.parseMediaTypes("image/jpeg;q=0"))).isEmpty();
+    }
+
+    private Optional<PictureVariant> awaitVariant(int width) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        Optional<PictureVariant> variant = variantService.findBestVariant(filename, width, ANY);
+        while (variant.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            variant = variantService.findBestVariant(filename, width, ANY);
+        }
+        return variant;
+    }
+}
@@ -0,0 +1,98 @@
+package com.openclassrooms.projet3.service.impl;
+
+import com.openclassrooms.projet3.model.DBUser;
+import com.openclassrooms.projet3.model.Rental;
+import com.openclassrooms.projet3.repository.DBUserRepository;
+import com.openclassrooms.projet3.repository.RentalRepository;
+import com.openclassrooms.projet3.service.RentalService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rentals, their owners and the user by email lookups are read from the second-level cache once loaded, and
+ * written changes are visible right away.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class RentalServiceImplTest {
+
+    @Autowired
+    private RentalService rentalService;
+
+    @Autowired
+    private RentalRepository rentalRepository;
+
+    @Autowired
+    private DBUserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+    }
+
+    @Test
+    void repeatedRentalReadsDoNotHitTheDatabase() {
+        Rental rental = rentalRepository.save(rental(user("cached-owner@test.com"), "Appartement"));
+        rentalService.findRentalDTOById(rental.getId());
+
+        statistics.clear();
+        for (int i = 0; i < 3; i++) {
+            assertThat(rentalService.findRentalDTOById(rental.getId()).getName()).isEqualTo("Appartement");
+        }
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getDomainDataRegionStatistics("rentals").getHitCount()).isEqualTo(3);
+    }
+
+    @Test
+    void writesInvalidateCachedRentalsAndQueries() {
+        Rental rental = rentalRepository.save(rental(user("updated-owner@test.com"), "Studio"));
+        rentalService.findRentalDTOById(rental.getId());
+
+        rental.setName("Grand studio");
+        rentalRepository.save(rental);
+        assertThat(rentalService.findRentalDTOById(rental.getId()).getName()).isEqualTo("Grand studio");
+
+        assertThat(userRepository.existsByEmail("new-user@test.com")).isFalse();
+        statistics.clear();
+        assertThat(userRepository.existsByEmail("new-user@test.com")).isFalse();
+        assertThat(userRepository.findByEmail("updated-owner@test.com")).isPresent();
+        assertThat(userRepository.findByEmail("updated-owner@test.com")).isPresent();
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(2);
+
+        user("new-user@test.com");
+        assertThat(userRepository.existsByEmail("new-user@test.com")).isTrue();
+    }
+
+    private DBUser user(String email) {
+        DBUser user = new DBUser();
+        user.setName(email);
+        user.setEmail(email);
+        user.setPassword("password");
+        return userRepository.save(user);
+    }
+
+    private static Rental rental(DBUser owner, String name) {
+        Rental rental = new Rental();
+        rental.setName(name);
+        rental.setSurface(40);
+        rental.setPrice(700);
+        rental.setDescription(name);
+        rental.setOwner(owner);
+        return rental;
+    }
+}
@@ -0,0 +1,257 @@
+package com.openclassrooms.projet3.utils.impl;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory stand-in for an S3-compatible storage, with path-style addressing, for the tests of
+ * {@link S3PictureStore}.
+ * <p>
+ * It implements the operations the store uses (put, copy, get with a range, head, delete, list v2) and checks the
+ * {@code x-amz-checksum-sha256} header of uploads like S3 does. Signatures and expirations are not checked.
+ */
+class FakeS3Server implements AutoCloseable {
+
+    private final HttpServer server;
+    private final Map<String, ConcurrentSkipListMap<String, S3Object>> buckets = new ConcurrentHashMap<>();
+
+    FakeS3Server() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    void createBucket(String bucket) {
+        buckets.putIfAbsent(bucket, new ConcurrentSkipListMap<>());
+    }
+
+    /**
+     * Simulates the passing of time for an object, e.g. to make it older than a grace period.
+     */
+    void setLastModified(String bucket, String key, Instant lastModified) {
+        buckets.get(bucket).computeIfPresent(key, (k, object) -> new S3Object(object.content(), object.contentType(), lastModified));
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath().substring(1);
+            int slash = path.indexOf('/');
+            String bucketName = slash < 0 ? path : path.substring(0, slash);
+            String key = slash < 0 ? "" : path.substring(slash + 1);
+            ConcurrentSkipListMap<String, S3Object> bucket = buckets.get(bucketName);
+            if (bucket == null) {
+                error(exchange, 404, "NoSuchBucket");
+                return;
+            }
+            switch (exchange.getRequestMethod()) {
+                case "PUT" -> put(exchange, bucket, key);
+                case "GET" -> {
+                    if (key.isEmpty()) {
+                        list(exchange, bucketName, bucket);
+                    } else {
+                        get(exchange, bucket, key, true);
+                    }
+                }
+                case "HEAD" -> get(exchange, bucket, key, false);
+                case "DELETE" -> {
+                    bucket.remove(key);
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                default -> error(exchange, 405, "MethodNotAllowed");
+            }
+        }
+    }
+
+    private void put(HttpExchange exchange, Map<String, S3Object> bucket, String key) throws IOException {
+        String copySource = exchange.getRequestHeaders().getFirst("x-amz-copy-source");
+        if (copySource != null) {
+            String source = URLDecoder.decode(copySource, StandardCharsets.UTF_8);
+            S3Object original = bucket.get(source.substring(source.indexOf('/', source.startsWith("/") ? 1 : 0) + 1));
+            if (original == null) {
+                error(exchange, 404, "NoSuchKey");
+                return;
+            }
+            String contentType = "REPLACE".equals(exchange.getRequestHeaders().getFirst("x-amz-metadata-directive"))
+                    ? exchange.getRequestHeaders().getFirst("Content-Type") : original.contentType();
+            S3Object copy = new S3Object(original.content(), contentType, Instant.now());
+            bucket.put(key, copy);
+            xml(exchange, 200, "<CopyObjectResult><LastModified>" + iso(copy.lastModified()) + "</LastModified><ETag>"
+                    + copy.etag() + "</ETag></CopyObjectResult>");
+            return;
+        }
+
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        String contentSha256 = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        if (contentSha256 != null && contentSha256.startsWith("STREAMING-")) {
+            body = decodeAwsChunked(body);
+        }
+        String checksum = exchange.getRequestHeaders().getFirst("x-amz-checksum-sha256");
+        if (checksum != null && !checksum.equals(Base64.getEncoder().encodeToString(digest("SHA-256", body)))) {
+            error(exchange, 400, "BadDigest");
+            return;
+        }
+        S3Object object = new S3Object(body, exchange.getRequestHeaders().getFirst("Content-Type"), Instant.now());
+        bucket.put(key, object);
+        exchange.getResponseHeaders().set("ETag", object.etag());
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void get(HttpExchange exchange, Map<String, S3Object> bucket, String key, boolean withBody) throws IOException {
+        S3Object object = bucket.get(key);
+        if (object == null) {
+            if (withBody) {
+                error(exchange, 404, "NoSuchKey");
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+            return;
+        }
+        byte[] content = object.content();
+        int status = 200;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null && range.startsWith("bytes=")) {
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            int start = Integer.parseInt(bounds[0]);
+            int end = Math.min(Integer.parseInt(bounds[1]), content.length - 1);
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+            content = Arrays.copyOfRange(content, start, end + 1);
+            status = 206;
+        }
+        exchange.getResponseHeaders().set("ETag", object.etag());
+        exchange.getResponseHeaders().set("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME.format(object.lastModified().atOffset(ZoneOffset.UTC)));
+        if (object.contentType() != null) {
+            exchange.getResponseHeaders().set("Content-Type", object.contentType());
+        }
+        if (withBody) {
+            exchange.sendResponseHeaders(status, content.length);
+            exchange.getResponseBody().write(content);
+        } else {
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(content.length));
+            exchange.sendResponseHeaders(status, -1);
+        }
+    }
+
+    private void list(HttpExchange exchange, String bucketName, ConcurrentSkipListMap<String, S3Object> bucket) throws IOException {
+        Map<String, String> query = query(exchange.getRequestURI());
+        String prefix = query.getOrDefault("prefix", "");
+        String delimiter = query.get("delimiter");
+        StringBuilder contents = new StringBuilder();
+        int count = 0;
+        for (Map.Entry<String, S3Object> entry : bucket.tailMap(prefix).entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            if (delimiter != null && key.indexOf(delimiter, prefix.length()) >= 0) {
+                continue;
+            }
+            S3Object object = entry.getValue();
+            contents.append("<Contents><Key>").append(key).append("</Key><LastModified>").append(iso(object.lastModified()))
+                    .append("</LastModified><ETag>").append(object.etag()).append("</ETag><Size>").append(object.content().length)
+                    .append("</Size><StorageClass>STANDARD</StorageClass></Contents>");
+            count++;
+        }
+        xml(exchange, 200, "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\"><Name>" + bucketName
+                + "</Name><Prefix>" + prefix + "</Prefix><KeyCount>" + count + "</KeyCount><MaxKeys>1000</MaxKeys>"
+                + "<IsTruncated>false</IsTruncated>" + contents + "</ListBucketResult>");
+    }
+
+    private static byte[] decodeAwsChunked(byte[] body) {
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        int position = 0;
+        while (position < body.length) {
+            int lineEnd = indexOfCrlf(body, position);
+            String header = new String(body, position, lineEnd - position, StandardCharsets.US_ASCII);
+            int size = Integer.parseInt(header.split(";")[0], 16);
+            if (size == 0) {
+                break;
+            }
+            decoded.write(body, lineEnd + 2, size);
+            position = lineEnd + 2 + size + 2;
+        }
+        return decoded.toByteArray();
+    }
+
+    private static int indexOfCrlf(byte[] body, int from) {
+        for (int i = from; i < body.length - 1; i++) {
+            if (body[i] == '\r' && body[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return body.length;
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> parameters = new HashMap<>();
+        if (uri.getRawQuery() != null) {
+            for (String parameter : uri.getRawQuery().split("&")) {
+                int equals = parameter.indexOf('=');
+                String name = equals < 0 ? parameter : parameter.substring(0, equals);
+                String value = equals < 0 ? "" : URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8);
+                parameters.put(name, value);
+            }
+        }
+        return parameters;
+    }
+
+    private static void error(HttpExchange exchange, int status, String code) throws IOException {
+        xml(exchange, status, "<Error><Code>" + code + "</Code><Message>" + code + "</Message></Error>");
+    }
+
+    private static void xml(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (InputStream ignored = exchange.getRequestBody()) {
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+
+    private static String iso(Instant instant) {
+        return DateTimeFormatter.ISO_INSTANT.format(instant);
+    }
+
+    private static byte[] digest(String algorithm, byte[] content) {
+        try {
+            return MessageDigest.getInstance(algorithm).digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record S3Object(byte[] content, String contentType, Instant lastModified) {
+
+        String etag() {
+            return "\"" + HexFormat.of().formatHex(digest("MD5", content)) + "\"";
+        }
+    }
+}
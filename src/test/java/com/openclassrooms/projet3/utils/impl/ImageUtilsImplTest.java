@@ -0,0 +1,133 @@
+package com.openclassrooms.projet3.utils.impl;
+
+import com.openclassrooms.projet3.excepton.CustomBadRequestException;
+import com.openclassrooms.projet3.excepton.CustomPayloadTooLargeException;
+import com.openclassrooms.projet3.excepton.CustomServiceUnavailableException;
+import com.openclassrooms.projet3.excepton.CustomUnsupportedMediaTypeException;
+import com.openclassrooms.projet3.utils.StoredPicture;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Streamed uploads are checked while they are read: they are aborted at the upload limit or when their first bytes
+ * do not match the declared type, without leaving their temporary file behind.
+ */
+class ImageUtilsImplTest {
+
+    private static final int MAX_UPLOAD_SIZE = 8 * 1024;
+
+    @TempDir
+    Path uploadsDir;
+
+    private LocalPictureStore store;
+    private ImageUtilsImpl imageUtils;
+
+    @BeforeEach
+    void setUp() {
+        store = new LocalPictureStore(uploadsDir.toString());
+        imageUtils = new ImageUtilsImpl(store, new SimpleMeterRegistry(), uploadsDir.toString(),
+                DataSize.ofBytes(MAX_UPLOAD_SIZE), DataSize.ofKilobytes(1), 1);
+    }
+
+    @Test
+    void streamedPictureIsStoredUnderItsDigest() throws Exception {
+        byte[] content = png(MAX_UPLOAD_SIZE);
+
+        StoredPicture picture = imageUtils.storePicture(channel(content), "image/png", content.length);
+
+        assertThat(picture.size()).isEqualTo(content.length);
+        assertThat(picture.contentType()).isEqualTo("image/png");
+        assertThat(Files.readAllBytes(store.localFile(imageUtils.pictureKey(picture.filename())).orElseThrow())).isEqualTo(content);
+        assertThat(partFiles()).isZero();
+    }
+
+    @Test
+    void uploadIsAbortedAtTheSizeLimit() throws Exception {
+        // no declared length, as with a chunked body, so the limit is only hit while reading
+        assertThatThrownBy(() -> imageUtils.storePicture(channel(png(MAX_UPLOAD_SIZE + 1)), "image/png", -1))
+                .isInstanceOf(CustomPayloadTooLargeException.class);
+        assertThat(partFiles()).isZero();
+    }
+
+    @Test
+    void uploadNotMatchingItsDeclaredTypeIsRefused() throws Exception {
+        assertThatThrownBy(() -> imageUtils.storePicture(channel(png(1000)), "image/jpeg", 1000))
+                .isInstanceOf(CustomUnsupportedMediaTypeException.class)
+                .hasMessage("Picture content does not match its declared type image/jpeg");
+        assertThat(partFiles()).isZero();
+    }
+
+    @Test
+    void emptyUploadIsRefused() throws Exception {
+        assertThatThrownBy(() -> imageUtils.storePicture(channel(new byte[0]), "image/png", 0))
+                .isInstanceOf(CustomBadRequestException.class);
+        assertThat(partFiles()).isZero();
+    }
+
+    @Test
+    void uploadIsRefusedAtOnceWhenEveryBufferIsInUse() throws Exception {
+        byte[] content = png(1000);
+        ReadableByteChannel source = channel(content);
+        // the only buffer is held by the upload being read when the second one starts
+        ReadableByteChannel holdingTheBuffer = new ReadableByteChannel() {
+            private boolean first = true;
+
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                if (first) {
+                    first = false;
+                    assertThatThrownBy(() -> imageUtils.storePicture(channel(png(1000)), "image/png", 1000))
+                            .isInstanceOf(CustomServiceUnavailableException.class);
+                }
+                return source.read(dst);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return source.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                source.close();
+            }
+        };
+
+        assertThat(imageUtils.storePicture(holdingTheBuffer, "image/png", content.length).size()).isEqualTo(content.length);
+    }
+
+    private long partFiles() throws IOException {
+        try (Stream<Path> files = Files.list(uploadsDir)) {
+            return files.filter(file -> imageUtils.isTemporaryFile(file.getFileName().toString())).count();
+        }
+    }
+
+    private static ReadableByteChannel channel(byte[] content) {
+        return Channels.newChannel(new ByteArrayInputStream(content));
+    }
+
+    private static byte[] png(int size) {
+        byte[] content = new byte[size];
+        byte[] signature = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+        System.arraycopy(signature, 0, content, 0, signature.length);
+        for (int i = signature.length; i < size; i++) {
+            content[i] = (byte) i;
+        }
+        return content;
+    }
+}
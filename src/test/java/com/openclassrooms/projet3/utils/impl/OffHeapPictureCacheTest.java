@@ -0,0 +1,99 @@
+package com.openclassrooms.projet3.utils.impl;
+
+import com.openclassrooms.projet3.utils.CachedPicture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapPictureCacheTest {
+
+    private static final int BLOCK = 1024;
+
+    @TempDir
+    Path dir;
+
+    // room for 4 blocks, in 2 slabs
+    private final OffHeapPictureCache cache = new OffHeapPictureCache(true, DataSize.ofBytes(4 * BLOCK), DataSize.ofBytes(2 * BLOCK),
+            DataSize.ofBytes(BLOCK), DataSize.ofBytes(4 * BLOCK), true);
+
+    @Test
+    void loadedPictureIsServedFromMemoryAcrossBlocks() throws Exception {
+        byte[] content = content(2500, 3);
+        Path file = Files.write(dir.resolve("a.jpg"), content);
+
+        read(file, content.length);
+        Files.write(file, new byte[content.length]);
+
+        try (CachedPicture cached = cache.acquire(file, content.length).orElseThrow()) {
+            assertThat(transfer(cached, 1000, 1100)).isEqualTo(Arrays.copyOfRange(content, 1000, 2100));
+        }
+        assertThat(cache.hitRatio()).isEqualTo(0.5);
+        assertThat(cache.residentBytes()).isEqualTo(content.length);
+    }
+
+    @Test
+    void pictureRequestedOnceDoesNotEvictMorePopularOnes() throws Exception {
+        Path popular = Files.write(dir.resolve("popular.jpg"), content(4 * BLOCK, 1));
+        Path oneOff = Files.write(dir.resolve("one-off.jpg"), content(BLOCK, 2));
+
+        read(popular, 4 * BLOCK);
+        read(popular, 4 * BLOCK);
+        assertThat(cache.acquire(oneOff, BLOCK)).isEmpty();
+
+        // requested more often than the cached picture, the newcomer gets admitted
+        for (int i = 0; i < 3; i++) {
+            read(oneOff, BLOCK);
+        }
+        try (CachedPicture cached = cache.acquire(oneOff, BLOCK).orElseThrow()) {
+            assertThat(transfer(cached, 0, BLOCK)).isEqualTo(content(BLOCK, 2));
+        }
+        assertThat(cache.residentBytes()).isEqualTo(BLOCK);
+    }
+
+    @Test
+    void evictedPictureStaysReadableUntilReleased() throws Exception {
+        byte[] content = content(4 * BLOCK, 5);
+        Path first = Files.write(dir.resolve("first.jpg"), content);
+        Path second = Files.write(dir.resolve("second.jpg"), content(4 * BLOCK, 6));
+
+        try (CachedPicture held = cache.acquire(first, content.length).orElseThrow()) {
+            for (int i = 0; i < 3; i++) {
+                read(second, 4 * BLOCK);
+            }
+            // the blocks of the evicted picture are still in use, so the newcomer could not take them
+            assertThat(cache.residentBytes()).isZero();
+            assertThat(transfer(held, 0, content.length)).isEqualTo(content);
+        }
+        try (CachedPicture cached = cache.acquire(second, 4 * BLOCK).orElseThrow()) {
+            assertThat(transfer(cached, 0, 4 * BLOCK)).isEqualTo(content(4 * BLOCK, 6));
+        }
+    }
+
+    private void read(Path file, long size) throws Exception {
+        Optional<CachedPicture> cached = cache.acquire(file, size);
+        cached.ifPresent(CachedPicture::close);
+    }
+
+    private static byte[] transfer(CachedPicture cached, long position, long count) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cached.transferTo(position, count, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    private static byte[] content(int length, int seed) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) (i * 31 + seed);
+        }
+        return content;
+    }
+}
@@ -0,0 +1,147 @@
+package com.openclassrooms.projet3.utils.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PictureResponseWriterImplTest {
+
+    private static final String DIGEST = "a".repeat(64);
+
+    @TempDir
+    Path uploadsDir;
+
+    private final OffHeapPictureCache cache = new OffHeapPictureCache(true, DataSize.ofMegabytes(1), DataSize.ofKilobytes(256),
+            DataSize.ofKilobytes(4), DataSize.ofKilobytes(64), true);
+    private final PictureResponseWriterImpl writer = new PictureResponseWriterImpl(cache, DataSize.ofKilobytes(48), Duration.ofHours(1));
+    private final byte[] content = new byte[1000];
+    private Path picture;
+
+    @BeforeEach
+    void storePicture() throws Exception {
+        Arrays.fill(content, (byte) 7);
+        content[10] = 1;
+        picture = Files.write(uploadsDir.resolve(DIGEST + ".jpg"), content);
+        // caches the picture
+        write(new MockHttpServletRequest("GET", "/uploads/" + DIGEST + ".jpg"));
+    }
+
+    @Test
+    void contentAddressedPictureIsServedWithStrongETagAndImmutableCaching() throws Exception {
+        MockHttpServletResponse response = write(new MockHttpServletRequest("GET", "/uploads/" + DIGEST + ".jpg"));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"" + DIGEST + ".jpg\"");
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).contains("immutable");
+        assertThat(response.getContentLengthLong()).isEqualTo(content.length);
+        assertThat(response.getContentAsByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    void matchingIfNoneMatchIsAnsweredWithNotModified() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/" + DIGEST + ".jpg");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\", \"" + DIGEST + ".jpg\"");
+
+        MockHttpServletResponse response = write(request);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void singleRangeIsAnsweredWithPartialContent() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/" + DIGEST + ".jpg");
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-19");
+
+        MockHttpServletResponse response = write(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 10-19/1000");
+        assertThat(response.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, 10, 20));
+    }
+
+    @Test
+    void rangeBeyondTheEndIsNotSatisfiable() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/" + DIGEST + ".jpg");
+        request.addHeader(HttpHeaders.RANGE, "bytes=1000-");
+
+        MockHttpServletResponse response = write(request);
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */1000");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"bytes=--5", "bytes=-5-10", "bytes=-+5", "bytes=+10-19", "bytes=10--19", "bytes=10-+19",
+            "bytes=x-19", "bytes=99999999999999999999-"})
+    void malformedRangeIsIgnored(String range) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/" + DIGEST + ".jpg");
+        request.addHeader(HttpHeaders.RANGE, range);
+
+        MockHttpServletResponse response = write(request);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+        assertThat(response.getContentAsByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    void rangeIsIgnoredWhenIfRangeNoLongerMatches() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/" + DIGEST + ".jpg");
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-19");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"previous\"");
+
+        MockHttpServletResponse response = write(request);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    void cachedPictureIsServedFromMemory() throws Exception {
+        Files.write(picture, new byte[content.length]);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/" + DIGEST + ".jpg");
+        request.addHeader(HttpHeaders.RANGE, "bytes=5-14");
+
+        MockHttpServletResponse response = write(request);
+
+        // the content was cached by the first request, before the file was overwritten
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, 5, 15));
+        assertThat(cache.hitRatio()).isEqualTo(0.5);
+    }
+
+    @Test
+    void largePictureIsHandedToSendfileWhenSupported() throws Exception {
+        Path large = Files.write(uploadsDir.resolve(DIGEST + ".png"), new byte[100 * 1024]);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/" + DIGEST + ".png");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(request, response, large, MediaType.IMAGE_PNG, true);
+
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename")).isEqualTo(large.toAbsolutePath().toString());
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(100L * 1024);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    private MockHttpServletResponse write(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        writer.write(request, response, picture, MediaType.IMAGE_JPEG, true);
+        return response;
+    }
+}
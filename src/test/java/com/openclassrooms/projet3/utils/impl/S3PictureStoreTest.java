@@ -0,0 +1,130 @@
+package com.openclassrooms.projet3.utils.impl;
+
+import com.openclassrooms.projet3.utils.PresignedUpload;
+import com.openclassrooms.projet3.utils.StoredObject;
+import com.openclassrooms.projet3.utils.StoredPicture;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class S3PictureStoreTest {
+
+    private static final String BUCKET = "pictures";
+    // headers the JDK HTTP client computes itself and refuses to take from the caller
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("content-length", "host", "expect", "connection");
+
+    @TempDir
+    Path tempDir;
+
+    private FakeS3Server server;
+    private S3PictureStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeS3Server();
+        server.createBucket(BUCKET);
+        store = new S3PictureStore(server.endpoint(), BUCKET, "us-east-1", true, "test", "test", Duration.ofMinutes(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+        server.close();
+    }
+
+    @Test
+    void storedObjectsCanBeReadListedRefreshedAndDeleted() throws Exception {
+        byte[] content = png(1000);
+        Path file = Files.write(tempDir.resolve("picture.png"), content);
+
+        store.put("ab/cd/abcd.png", file, "image/png");
+        store.put("legacy.png", file, "image/png");
+
+        StoredObject object = store.stat("ab/cd/abcd.png").orElseThrow();
+        assertThat(object.size()).isEqualTo(content.length);
+        assertThat(object.contentType()).isEqualTo("image/png");
+        try (InputStream in = store.open("ab/cd/abcd.png")) {
+            assertThat(in.readAllBytes()).isEqualTo(content);
+        }
+        assertThat(store.readHead("ab/cd/abcd.png", 8)).isEqualTo(Arrays.copyOf(content, 8));
+
+        assertThat(store.list("ab/", true).map(StoredObject::key)).containsExactly("ab/cd/abcd.png");
+        assertThat(store.list("", false).map(StoredObject::key)).containsExactly("legacy.png");
+
+        Instant old = Instant.now().minus(Duration.ofDays(2));
+        server.setLastModified(BUCKET, "ab/cd/abcd.png", old);
+        assertThat(store.refresh("ab/cd/abcd.png")).isTrue();
+        assertThat(store.stat("ab/cd/abcd.png").orElseThrow().lastModified()).isAfter(old);
+        assertThat(store.stat("ab/cd/abcd.png").orElseThrow().contentType()).isEqualTo("image/png");
+
+        store.delete("ab/cd/abcd.png");
+        assertThat(store.stat("ab/cd/abcd.png")).isEmpty();
+        assertThat(store.refresh("ab/cd/abcd.png")).isFalse();
+        assertThatThrownBy(() -> store.open("ab/cd/abcd.png")).isInstanceOf(NoSuchFileException.class);
+        assertThat(store.localFile("legacy.png")).isEmpty();
+        assertThat(store.downloadUrl("legacy.png")).hasValueSatisfying(url -> assertThat(url.getPath()).isEqualTo("/pictures/legacy.png"));
+    }
+
+    @Test
+    void presignedUploadIsBoundToTheDigestAndCanBeRegistered() throws Exception {
+        ImageUtilsImpl imageUtils = new ImageUtilsImpl(store, new SimpleMeterRegistry(), tempDir.toString(), DataSize.ofMegabytes(1), DataSize.ofKilobytes(4), 2);
+        byte[] content = png(5000);
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+
+        PresignedUpload upload = imageUtils.presignPictureUpload(sha256, "image/png", content.length);
+        assertThat(upload.key()).isEqualTo(sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256 + ".png");
+        assertThat(upload.method()).isEqualTo("PUT");
+
+        byte[] tampered = content.clone();
+        tampered[content.length - 1] ^= 1;
+        assertThat(send(upload, tampered).statusCode()).isEqualTo(400);
+        assertThat(store.stat(upload.key())).isEmpty();
+
+        assertThat(send(upload, content).statusCode()).isEqualTo(200);
+        StoredPicture picture = imageUtils.registerUploadedPicture(upload.key());
+        assertThat(picture.sha256()).isEqualTo(sha256);
+        assertThat(picture.size()).isEqualTo(content.length);
+        assertThat(picture.url()).isEqualTo("/uploads/" + sha256 + ".png");
+    }
+
+    private static HttpResponse<String> send(PresignedUpload upload, byte[] content) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(upload.url())
+                .method(upload.method(), HttpRequest.BodyPublishers.ofByteArray(content));
+        upload.headers().forEach((name, value) -> {
+            if (!RESTRICTED_HEADERS.contains(name.toLowerCase())) {
+                request.header(name, value);
+            }
+        });
+        return HttpClient.newHttpClient().send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static byte[] png(int length) {
+        byte[] content = new byte[length];
+        byte[] signature = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+        System.arraycopy(signature, 0, content, 0, signature.length);
+        for (int i = signature.length; i < length; i++) {
+            content[i] = (byte) i;
+        }
+        return content;
+    }
+}